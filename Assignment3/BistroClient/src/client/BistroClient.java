@@ -7,7 +7,7 @@ import ocsf.client.AbstractClient;
  * OCSF client implementation for the Bistro system.
  * Receives messages from the server and forwards them to the ClientController.
  */
-public class BistroClient extends AbstractClient {
+public class BistroClient extends AbstractClient implements ServerConnection {
 
     private ClientController controller;
 
@@ -26,6 +26,7 @@ public class BistroClient extends AbstractClient {
      *
      * @param controller client controller (facade)
      */
+    @Override
     public void setController(ClientController controller) {
         this.controller = controller;
     }
@@ -2,6 +2,7 @@ package client;
 
 import client.Commands;
 import common.Message;
+import common.Paging;
 import entities.OpeningHours;
 import entities.SpecialHours;
 import entities.Table;
@@ -9,26 +10,44 @@ import entities.Table;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.time.YearMonth;
 import entities.MonthlyReport;
 
 /**
  * Client-side facade responsible for sending requests to the server, and
  * dispatching server responses to the currently active UI.
+ *
+ * Every request is tagged with a request ID and returns a future that completes
+ * with the matching response, so many requests can be in flight on one
+ * connection. Responses to the request methods are also passed to the current
+ * listener; {@link #request(String, Object)} answers through the future only.
  */
 public class ClientController {
 
-	private final BistroClient client;
+	private final ServerConnection client;
 	private MessageListener listener;
 
+	private final AtomicLong nextRequestId = new AtomicLong();
+	private final Map<Long, PendingRequest> inFlight = new ConcurrentHashMap<>();
+
+	/** A request waiting for its response; onPartial receives streamed chunks before the final one. */
+	private record PendingRequest(String command, CompletableFuture<Message> future, boolean notifyListener,
+			Consumer<Message> onPartial) { }
+
 	/**
-	 * Creates a new facade wrapper around the OCSF client.
+	 * Creates a new facade wrapper around a server connection.
 	 *
-	 * @param client OCSF client instance
+	 * @param client OCSF or framed client instance
 	 */
-	public ClientController(BistroClient client) {
+	public ClientController(ServerConnection client) {
 		this.client = client;
 		this.client.setController(this);
 	}
@@ -68,16 +87,177 @@ public class ClientController {
 	}
 
 	/**
-	 * Called by BistroClient when a Message arrives from the server.
+	 * Called by the server connection when a Message arrives from the server.
+	 * Completes the matching in-flight request, then notifies the listener.
+	 * Streamed chunks that are followed by more go to the request's chunk consumer only.
 	 *
 	 * @param msg server message
 	 */
 	void deliver(Message msg) {
-		if (listener != null && msg != null) {
+		if (msg == null) {
+			return;
+		}
+
+		if (msg.getRequestId() != 0 && Paging.isPartial(msg)) {
+			PendingRequest streaming = inFlight.get(msg.getRequestId());
+			if (streaming != null && streaming.onPartial() != null) {
+				streaming.onPartial().accept(msg);
+			}
+			return;
+		}
+
+		PendingRequest pending = msg.getRequestId() != 0 ? inFlight.remove(msg.getRequestId()) : null;
+		if (pending != null) {
+			pending.future().complete(msg);
+			if (!pending.notifyListener()) {
+				return;
+			}
+		} else if ("DISCONNECTED".equals(msg.getCommand())) {
+			failInFlight(msg.getError());
+		}
+
+		if (listener != null) {
 			listener.onMessage(msg);
 		}
 	}
 
+	/**
+	 * Sends a request whose response is delivered only through the returned future,
+	 * not to the listener. Several calls can be issued back to back; they are
+	 * pipelined over the connection and each future gets its own response.
+	 *
+	 * @param command the command to send
+	 * @param data    the request data
+	 * @return future completed with the server response, or with a failure
+	 *         message if the request could not be sent
+	 */
+	public CompletableFuture<Message> request(String command, Object data) {
+		try {
+			return send(new Message(command, data), false);
+		} catch (IOException e) {
+			return CompletableFuture.completedFuture(Message.fail(command, "Failed to send request: " + e.getMessage()));
+		}
+	}
+
+	/**
+	 * Sends several requests as one BATCH message. The server runs them in order
+	 * on a single pooled connection and answers with one composite response.
+	 * The response goes to the returned future only, not to the listener.
+	 *
+	 * @param requests the sub-requests
+	 * @param snapshot if true, all sub-requests read from one consistent database
+	 *                 snapshot (only allowed for read-only commands)
+	 * @return future completed with the list of sub-responses, in request order,
+	 *         or with a single failure message if the whole batch failed
+	 */
+	public CompletableFuture<List<Message>> batch(List<Message> requests, boolean snapshot) {
+		Map<String, Object> data = new HashMap<>();
+		data.put("requests", new ArrayList<>(requests));
+		data.put("singleConnection", true);
+		data.put("snapshot", snapshot);
+
+		return request(Commands.BATCH, data).thenApply(response -> {
+			if (response.isSuccess() && response.getData() instanceof List<?> list) {
+				List<Message> results = new ArrayList<>();
+				for (Object o : list) {
+					results.add((Message) o);
+				}
+				return results;
+			}
+			return List.of(response);
+		});
+	}
+
+	/**
+	 * Sends a list request (GET_RESERVATIONS, GET_ALL_SUBSCRIBERS, GET_WAITLIST) in
+	 * streaming mode. The server sends the rows in chunks as it reads them; every chunk,
+	 * including the final one, is passed to onChunk as it arrives, so the first rows can
+	 * be shown before the whole list was read. Nothing goes to the listener.
+	 *
+	 * @param command the list command
+	 * @param options paging options (see {@link Paging}); may be empty
+	 * @param onChunk called with each chunk message, on the connection's thread
+	 * @return future completed with the final chunk, or with a failure message
+	 */
+	public CompletableFuture<Message> stream(String command, Map<String, Object> options, Consumer<Message> onChunk) {
+		Map<String, Object> data = new HashMap<>(options);
+		data.put(Paging.STREAM, true);
+		try {
+			return send(new Message(command, data), false, onChunk).thenApply(response -> {
+				onChunk.accept(response);
+				return response;
+			});
+		} catch (IOException e) {
+			return CompletableFuture.completedFuture(Message.fail(command, "Failed to send request: " + e.getMessage()));
+		}
+	}
+
+	/**
+	 * Subscribes to change event topics (see {@link common.ChangeEvent}).
+	 * Afterwards the server pushes a {@link Commands#CHANGE_EVENT} message to the
+	 * listener whenever data of one of the topics changes.
+	 * The SUBSCRIBE response goes to the returned future only.
+	 *
+	 * @param topics topic names, e.g. ChangeEvent.TABLES
+	 * @return future completed with the server response (data: all subscribed topics)
+	 */
+	public CompletableFuture<Message> subscribe(List<String> topics) {
+		return request(Commands.SUBSCRIBE, new ArrayList<>(topics));
+	}
+
+	/**
+	 * Cancels all change event subscriptions of this connection.
+	 *
+	 * @return future completed with the server response
+	 */
+	public CompletableFuture<Message> unsubscribe() {
+		return request(Commands.UNSUBSCRIBE, null);
+	}
+
+	/**
+	 * @return number of requests still waiting for a response
+	 */
+	public int getInFlightCount() {
+		return inFlight.size();
+	}
+
+	/**
+	 * Sends a request whose response also goes to the listener.
+	 */
+	private CompletableFuture<Message> send(Message msg) throws IOException {
+		return send(msg, true);
+	}
+
+	private CompletableFuture<Message> send(Message msg, boolean notifyListener) throws IOException {
+		return send(msg, notifyListener, null);
+	}
+
+	private CompletableFuture<Message> send(Message msg, boolean notifyListener, Consumer<Message> onPartial)
+			throws IOException {
+		long id = nextRequestId.incrementAndGet();
+		CompletableFuture<Message> future = new CompletableFuture<>();
+		inFlight.put(id, new PendingRequest(msg.getCommand(), future, notifyListener, onPartial));
+		try {
+			client.sendToServer(msg.withRequestId(id));
+		} catch (IOException e) {
+			inFlight.remove(id);
+			throw e;
+		}
+		return future;
+	}
+
+	/**
+	 * Completes all in-flight requests with a failure after the connection was lost.
+	 */
+	private void failInFlight(String error) {
+		for (Long id : inFlight.keySet()) {
+			PendingRequest pending = inFlight.remove(id);
+			if (pending != null) {
+				pending.future().complete(Message.fail(pending.command(), error));
+			}
+		}
+	}
+
 	// User
 
 	/**
@@ -85,23 +265,37 @@ public class ClientController {
 	 *
 	 * @param email    user email
 	 * @param password user password
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void login(String email, String password) throws IOException {
+	public CompletableFuture<Message> login(String email, String password) throws IOException {
 		Map<String, Object> data = new HashMap<>();
 		data.put("email", email);
 		data.put("password", password);
-		client.sendToServer(new Message(Commands.LOGIN, data));
+		return send(new Message(Commands.LOGIN, data));
 	}
 
 	/**
 	 * Sends a LOGIN_BY_SUBSCRIBER_NUMBER request to the server.
 	 *
 	 * @param subscriberNumber subscriber number
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void loginBySubscriberNumber(String subscriberNumber) throws IOException {
-		client.sendToServer(new Message(Commands.LOGIN_BY_SUBSCRIBER_NUMBER, subscriberNumber));
+	public CompletableFuture<Message> loginBySubscriberNumber(String subscriberNumber) throws IOException {
+		return send(new Message(Commands.LOGIN_BY_SUBSCRIBER_NUMBER, subscriberNumber));
+	}
+
+	/**
+	 * Ends the login of this connection. The server forgets the user's role and
+	 * cancels all change event subscriptions, so the next user of the terminal
+	 * starts without the previous user's rights.
+	 * The response goes to the returned future only.
+	 *
+	 * @return future completed with the server response
+	 */
+	public CompletableFuture<Message> logout() {
+		return request(Commands.LOGOUT, null);
 	}
 
 	/**
@@ -114,9 +308,10 @@ public class ClientController {
 	 * @param password         subscriber password
 	 * @param subscriberNumber unique subscriber number
 	 * @param membershipCard   QR code for membership card
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void registerSubscriber(String name, String email, String phone, String password, String subscriberNumber,
+	public CompletableFuture<Message> registerSubscriber(String name, String email, String phone, String password, String subscriberNumber,
 			String membershipCard) throws IOException {
 		Map<String, Object> data = new HashMap<>();
 		data.put("name", name);
@@ -125,26 +320,28 @@ public class ClientController {
 		data.put("password", password);
 		data.put("subscriberNumber", subscriberNumber);
 		data.put("membershipCard", membershipCard);
-		client.sendToServer(new Message(Commands.REGISTER_SUBSCRIBER, data));
+		return send(new Message(Commands.REGISTER_SUBSCRIBER, data));
 	}
 
 	/**
 	 * Requests all subscribers (for staff view).
 	 *
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void getAllSubscribers() throws IOException {
-		client.sendToServer(new Message(Commands.GET_ALL_SUBSCRIBERS, null));
+	public CompletableFuture<Message> getAllSubscribers() throws IOException {
+		return send(new Message(Commands.GET_ALL_SUBSCRIBERS, null));
 	}
 
 	/**
 	 * Requests a specific subscriber by their subscriber number.
 	 *
 	 * @param subscriberNumber the subscriber number to search for
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void getSubscriberByNumber(String subscriberNumber) throws IOException {
-		client.sendToServer(new Message(Commands.GET_SUBSCRIBER_BY_NUMBER, subscriberNumber));
+	public CompletableFuture<Message> getSubscriberByNumber(String subscriberNumber) throws IOException {
+		return send(new Message(Commands.GET_SUBSCRIBER_BY_NUMBER, subscriberNumber));
 	}
 
 	// Reservation (customer + staff)
@@ -154,13 +351,14 @@ public class ClientController {
 	 *
 	 * @param date   booking date
 	 * @param guests number of guests
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void getAvailableSlots(LocalDate date, int guests) throws IOException {
+	public CompletableFuture<Message> getAvailableSlots(LocalDate date, int guests) throws IOException {
 		Map<String, Object> data = new HashMap<>();
 		data.put("date", date.toString());
 		data.put("guestCount", guests);
-		client.sendToServer(new Message(Commands.GET_AVAILABLE_SLOTS, data));
+		return send(new Message(Commands.GET_AVAILABLE_SLOTS, data));
 	}
 
 	/**
@@ -168,13 +366,32 @@ public class ClientController {
 	 *
 	 * @param date   originally requested date
 	 * @param guests number of guests
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void getAlternativeSlots(LocalDate date, int guests) throws IOException {
+	public CompletableFuture<Message> getAlternativeSlots(LocalDate date, int guests) throws IOException {
 		Map<String, Object> data = new HashMap<>();
 		data.put("date", date.toString());
 		data.put("guestCount", guests);
-		client.sendToServer(new Message(Commands.GET_ALTERNATIVE_SLOTS, data));
+		return send(new Message(Commands.GET_ALTERNATIVE_SLOTS, data));
+	}
+
+	/**
+	 * Requests a per-day availability summary (open, free slots, first/last free time)
+	 * for a date range.
+	 *
+	 * @param from   first date
+	 * @param to     last date (inclusive)
+	 * @param guests number of guests
+	 * @return future completed with the server response
+	 * @throws IOException if sending fails
+	 */
+	public CompletableFuture<Message> getAvailabilityCalendar(LocalDate from, LocalDate to, int guests) throws IOException {
+		Map<String, Object> data = new HashMap<>();
+		data.put("from", from.toString());
+		data.put("to", to.toString());
+		data.put("guestCount", guests);
+		return send(new Message(Commands.GET_AVAILABILITY_CALENDAR, data));
 	}
 
 	/**
@@ -184,19 +401,20 @@ public class ClientController {
 	 * @param time             booking time
 	 * @param guestCount       number of guests
 	 * @param subscriberNumber subscriber id/number
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void createReservation(LocalDate date, LocalTime time, int guestCount, String subscriberNumber)
+	public CompletableFuture<Message> createReservation(LocalDate date, LocalTime time, int guestCount, String subscriberNumber)
 			throws IOException {
 		Map<String, Object> data = new HashMap<>();
 		data.put("bookingDate", date.toString());
 		data.put("bookingTime", time.toString());
 		data.put("guestCount", guestCount);
 		data.put("subscriberNumber", subscriberNumber);
-		client.sendToServer(new Message(Commands.CREATE_RESERVATION, data));
+		return send(new Message(Commands.CREATE_RESERVATION, data));
 	}
 
-	public void createReservation(LocalDate date, LocalTime time, int guestCount, String subscriberNumber,
+	public CompletableFuture<Message> createReservation(LocalDate date, LocalTime time, int guestCount, String subscriberNumber,
 	        String guestPhone, String guestEmail) throws IOException {
 
 	    Map<String, Object> data = new HashMap<>();
@@ -207,7 +425,7 @@ public class ClientController {
 	    data.put("guestPhone", guestPhone);
 	    data.put("guestEmail", guestEmail);
 
-	    client.sendToServer(new Message(Commands.CREATE_RESERVATION, data));
+	    return send(new Message(Commands.CREATE_RESERVATION, data));
 	}
 
 
@@ -215,66 +433,72 @@ public class ClientController {
 	 * Sends a CANCEL_RESERVATION request.
 	 *
 	 * @param confirmationCode reservation confirmation code
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void cancelReservation(String confirmationCode) throws IOException {
+	public CompletableFuture<Message> cancelReservation(String confirmationCode) throws IOException {
 		Map<String, Object> data = new HashMap<>();
 		data.put("confirmationCode", confirmationCode);
-		client.sendToServer(new Message(Commands.CANCEL_RESERVATION, data));
+		return send(new Message(Commands.CANCEL_RESERVATION, data));
 	}
 
 	/**
 	 * Staff-only: requests all reservations.
 	 *
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void getAllReservations() throws IOException {
-		client.sendToServer(new Message(Commands.GET_RESERVATIONS, null));
+	public CompletableFuture<Message> getAllReservations() throws IOException {
+		return send(new Message(Commands.GET_RESERVATIONS, null));
 	}
 
 	/**
 	 * Requests reservations for a specific subscriber.
 	 *
 	 * @param subscriberNumber subscriber id/number
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void getUserReservations(String subscriberNumber) throws IOException {
+	public CompletableFuture<Message> getUserReservations(String subscriberNumber) throws IOException {
 		Map<String, Object> data = new HashMap<>();
 		data.put("subscriberNumber", subscriberNumber);
-		client.sendToServer(new Message(Commands.GET_USER_RESERVATIONS, data));
+		return send(new Message(Commands.GET_USER_RESERVATIONS, data));
 	}
 
 	/**
 	 * Requests the list of current diners (occupied tables with reservation info).
 	 *
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void getCurrentDiners() throws IOException {
-		client.sendToServer(new Message(Commands.GET_CURRENT_DINERS, null));
+	public CompletableFuture<Message> getCurrentDiners() throws IOException {
+		return send(new Message(Commands.GET_CURRENT_DINERS, null));
 	}
 
 	/**
 	 * Sends a GET_BILL request by confirmation code.
 	 *
 	 * @param confirmationCode the confirmation code
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void getBillByCode(String confirmationCode) throws IOException {
+	public CompletableFuture<Message> getBillByCode(String confirmationCode) throws IOException {
 		Map<String, Object> data = new HashMap<>();
 		data.put("confirmationCode", confirmationCode);
-		client.sendToServer(new Message(Commands.GET_BILL, data));
+		return send(new Message(Commands.GET_BILL, data));
 	}
 
 	/**
 	 * Sends a PAY_BILL request by confirmation code.
 	 *
 	 * @param confirmationCode the confirmation code
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void payBillByCode(String confirmationCode) throws IOException {
+	public CompletableFuture<Message> payBillByCode(String confirmationCode) throws IOException {
 		Map<String, Object> data = new HashMap<>();
 		data.put("confirmationCode", confirmationCode);
-		client.sendToServer(new Message(Commands.PAY_BILL, data));
+		return send(new Message(Commands.PAY_BILL, data));
 	}
 
 	// Waitlist
@@ -282,10 +506,11 @@ public class ClientController {
 	/**
 	 * Requests the current waitlist.
 	 *
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void getWaitlist() throws IOException {
-		client.sendToServer(new Message(Commands.GET_WAITLIST, null));
+	public CompletableFuture<Message> getWaitlist() throws IOException {
+		return send(new Message(Commands.GET_WAITLIST, null));
 	}
 
 	/**
@@ -293,13 +518,14 @@ public class ClientController {
 	 *
 	 * @param numberOfDiners   number of diners
 	 * @param subscriberNumber subscriber number
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void joinWaitlist(int numberOfDiners, String subscriberNumber) throws IOException {
+	public CompletableFuture<Message> joinWaitlist(int numberOfDiners, String subscriberNumber) throws IOException {
 		Map<String, Object> data = new HashMap<>();
 		data.put("numberOfDiners", numberOfDiners);
 		data.put("subscriberNumber", subscriberNumber);
-		client.sendToServer(new Message(Commands.JOIN_WAITLIST, data));
+		return send(new Message(Commands.JOIN_WAITLIST, data));
 	}
 
 	/**
@@ -309,21 +535,22 @@ public class ClientController {
 	 * @param subscriberNumber subscriber number (null if walk-in guest)
 	 * @param guestPhone       guest phone (null if subscriber)
 	 * @param guestEmail       guest email (null if subscriber)
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void joinWaitlist(int numberOfDiners, String subscriberNumber, String guestPhone, String guestEmail)
+	public CompletableFuture<Message> joinWaitlist(int numberOfDiners, String subscriberNumber, String guestPhone, String guestEmail)
 			throws IOException {
 		Map<String, Object> data = new HashMap<>();
 		data.put("numberOfDiners", numberOfDiners);
 		data.put("subscriberNumber", subscriberNumber);
 		data.put("guestPhone", guestPhone);
 		data.put("guestEmail", guestEmail);
-		client.sendToServer(new Message(Commands.JOIN_WAITLIST, data));
+		return send(new Message(Commands.JOIN_WAITLIST, data));
 	}
 	/**
 	 * Terminal: Join waitlist after checking availability.
 	 */
-	public void joinWaitlistTerminal(int diners, String membershipCard, 
+	public CompletableFuture<Message> joinWaitlistTerminal(int diners, String membershipCard, 
 	        String phone, String email) throws IOException {
 	    Map<String, Object> data = new java.util.HashMap<>();
 	    data.put("numberOfDiners", diners);
@@ -331,25 +558,26 @@ public class ClientController {
 	    data.put("guestPhone", phone);
 	    data.put("guestEmail", email);
 	    
-	    client.sendToServer(new Message(Commands.JOIN_WAITLIST, data));
+	    return send(new Message(Commands.JOIN_WAITLIST, data));
 	}
 
 	/**
 	 * Sends a LEAVE_WAITLIST request.
 	 *
 	 * @param entryCode waitlist entry code
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void leaveWaitlist(String entryCode) throws IOException {
+	public CompletableFuture<Message> leaveWaitlist(String entryCode) throws IOException {
 		Map<String, Object> data = new HashMap<>();
 		data.put("entryCode", entryCode);
-		client.sendToServer(new Message(Commands.LEAVE_WAITLIST, data));
+		return send(new Message(Commands.LEAVE_WAITLIST, data));
 	}
 
 	/**
 	 * Terminal: Check availability and join waitlist if needed.
 	 */
-	public void checkAvailabilityTerminal(int diners, String subscriberOrCard, 
+	public CompletableFuture<Message> checkAvailabilityTerminal(int diners, String subscriberOrCard, 
 	        String phone, String email, boolean isSubscriber) throws IOException {
 	    Map<String, Object> data = new java.util.HashMap<>();
 	    data.put("numberOfDiners", diners);
@@ -364,7 +592,7 @@ public class ClientController {
 	        data.put("guestEmail", email);
 	    }
 	    
-	    client.sendToServer(new Message(Commands.CHECK_AVAILABILITY_TERMINAL, data));
+	    return send(new Message(Commands.CHECK_AVAILABILITY_TERMINAL, data));
 	}
 
 	// Tables
@@ -372,10 +600,11 @@ public class ClientController {
 	/**
 	 * Requests all tables.
 	 *
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void getTables() throws IOException {
-		client.sendToServer(new Message(Commands.GET_TABLES, null));
+	public CompletableFuture<Message> getTables() throws IOException {
+		return send(new Message(Commands.GET_TABLES, null));
 	}
 
 	/**
@@ -384,36 +613,39 @@ public class ClientController {
 	 * @param tableNumber   table number
 	 * @param seatCapacity  number of seats
 	 * @param tableLocation location string
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void addTable(int tableNumber, int seatCapacity, String tableLocation) throws IOException {
+	public CompletableFuture<Message> addTable(int tableNumber, int seatCapacity, String tableLocation) throws IOException {
 		Map<String, Object> data = new HashMap<>();
 		data.put("tableNumber", tableNumber);
 		data.put("seatCapacity", seatCapacity);
 		data.put("tableLocation", tableLocation);
-		client.sendToServer(new Message(Commands.ADD_TABLE, data));
+		return send(new Message(Commands.ADD_TABLE, data));
 	}
 
 	/**
 	 * Sends an UPDATE_TABLE request.
 	 *
 	 * @param table updated table object
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void updateTable(Table table) throws IOException {
-		client.sendToServer(new Message(Commands.UPDATE_TABLE, table));
+	public CompletableFuture<Message> updateTable(Table table) throws IOException {
+		return send(new Message(Commands.UPDATE_TABLE, table));
 	}
 
 	/**
 	 * Sends a DELETE_TABLE request.
 	 *
 	 * @param tableNumber table number
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void deleteTable(int tableNumber) throws IOException {
+	public CompletableFuture<Message> deleteTable(int tableNumber) throws IOException {
 		Map<String, Object> data = new HashMap<>();
 		data.put("tableNumber", tableNumber);
-		client.sendToServer(new Message(Commands.DELETE_TABLE, data));
+		return send(new Message(Commands.DELETE_TABLE, data));
 	}
 
 	// Opening Hours
@@ -421,20 +653,22 @@ public class ClientController {
 	/**
 	 * Requests weekly opening hours list.
 	 *
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void getOpeningHours() throws IOException {
-		client.sendToServer(new Message(Commands.GET_OPENING_HOURS, null));
+	public CompletableFuture<Message> getOpeningHours() throws IOException {
+		return send(new Message(Commands.GET_OPENING_HOURS, null));
 	}
 
 	/**
 	 * Sends an UPDATE_OPENING_HOURS request.
 	 *
 	 * @param hours updated opening hours row
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void updateOpeningHours(OpeningHours hours) throws IOException {
-		client.sendToServer(new Message(Commands.UPDATE_OPENING_HOURS, hours));
+	public CompletableFuture<Message> updateOpeningHours(OpeningHours hours) throws IOException {
+		return send(new Message(Commands.UPDATE_OPENING_HOURS, hours));
 	}
 
 	// Special Hours
@@ -442,92 +676,100 @@ public class ClientController {
 	/**
 	 * Requests special hours list.
 	 *
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void getSpecialHours() throws IOException {
-		client.sendToServer(new Message(Commands.GET_SPECIAL_HOURS, null));
+	public CompletableFuture<Message> getSpecialHours() throws IOException {
+		return send(new Message(Commands.GET_SPECIAL_HOURS, null));
 	}
 
 	/**
 	 * Sends a LOST_CODE request to retrieve reservation confirmation code.
 	 *
 	 * @param identifier email or phone entered by the user
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void lostCode(String identifier) throws IOException {
+	public CompletableFuture<Message> lostCode(String identifier) throws IOException {
 		Map<String, Object> data = new HashMap<>();
 		data.put("identifier", identifier);
-		client.sendToServer(new Message(Commands.LOST_CODE, data));
+		return send(new Message(Commands.LOST_CODE, data));
 	}
 
 	/**
 	 * Sends a LOST_CODE_WAITLIST request to retrieve waitlist entry code.
 	 *
 	 * @param identifier email or phone entered by the user
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void lostCodeWaitlist(String identifier) throws IOException {
+	public CompletableFuture<Message> lostCodeWaitlist(String identifier) throws IOException {
 		Map<String, Object> data = new HashMap<>();
 		data.put("identifier", identifier);
-		client.sendToServer(new Message(Commands.LOST_CODE_WAITLIST, data));
+		return send(new Message(Commands.LOST_CODE_WAITLIST, data));
 	}
 
 	/**
 	 * Sends an ADD_SPECIAL_HOURS request.
 	 *
 	 * @param special special hours row to add
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void addSpecialHours(SpecialHours special) throws IOException {
-		client.sendToServer(new Message(Commands.ADD_SPECIAL_HOURS, special));
+	public CompletableFuture<Message> addSpecialHours(SpecialHours special) throws IOException {
+		return send(new Message(Commands.ADD_SPECIAL_HOURS, special));
 	}
 
 	/**
 	 * Sends a PAY_BILL request to the server.
 	 *
 	 * @param billNumber bill identifier
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void payBill(int billNumber) throws IOException {
+	public CompletableFuture<Message> payBill(int billNumber) throws IOException {
 		Map<String, Object> data = new HashMap<>();
 		data.put("billNumber", billNumber);
-		client.sendToServer(new Message(Commands.PAY_BILL, data));
+		return send(new Message(Commands.PAY_BILL, data));
 	}
 
 	/**
 	 * Sends a SEAT_BY_CODE request to seat a customer by confirmation code.
 	 *
 	 * @param confirmationCode reservation confirmation code
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void seatByCode(String confirmationCode) throws IOException {
+	public CompletableFuture<Message> seatByCode(String confirmationCode) throws IOException {
 		Map<String, Object> data = new HashMap<>();
 		data.put("confirmationCode", confirmationCode);
-		client.sendToServer(new Message(Commands.SEAT_BY_CODE, data));
+		return send(new Message(Commands.SEAT_BY_CODE, data));
 	}
 	
 	/**
 	 * Gets reservations for a subscriber by their membership card code.
 	 *
 	 * @param membershipCard the membership card code
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void getReservationsByMembershipCard(String membershipCard) throws IOException {
+	public CompletableFuture<Message> getReservationsByMembershipCard(String membershipCard) throws IOException {
 	    Map<String, Object> data = new HashMap<>();
 	    data.put("membershipCard", membershipCard);
-	    client.sendToServer(new Message(Commands.GET_RESERVATIONS_BY_CARD, data));
+	    return send(new Message(Commands.GET_RESERVATIONS_BY_CARD, data));
 	}
 
 	/**
 	 * Sends a DELETE_SPECIAL_HOURS request to the server.
 	 *
 	 * @param specialDate date to delete special hours for
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void deleteSpecialHours(LocalDate specialDate) throws IOException {
+	public CompletableFuture<Message> deleteSpecialHours(LocalDate specialDate) throws IOException {
 		Map<String, Object> data = new HashMap<>();
 		data.put("specialDate", specialDate.toString());
-		client.sendToServer(new Message(Commands.DELETE_SPECIAL_HOURS, data));
+		return send(new Message(Commands.DELETE_SPECIAL_HOURS, data));
 	}
 
 	// Reports (Manager/Staff)
@@ -537,13 +779,14 @@ public class ClientController {
 	 *
 	 * @param year  report year
 	 * @param month report month (1-12)
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void getNotificationLogReport(int year, int month) throws IOException {
+	public CompletableFuture<Message> getNotificationLogReport(int year, int month) throws IOException {
 		Map<String, Object> data = new HashMap<>();
 		data.put("year", year);
 		data.put("month", month);
-		client.sendToServer(new Message(Commands.GET_NOTIFICATION_LOG, data));
+		return send(new Message(Commands.GET_NOTIFICATION_LOG, data));
 	}
 
 	/**
@@ -551,13 +794,14 @@ public class ClientController {
 	 *
 	 * @param year  report year
 	 * @param month report month (1-12)
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void getTimeReport(int year, int month) throws IOException {
+	public CompletableFuture<Message> getTimeReport(int year, int month) throws IOException {
 		Map<String, Object> data = new HashMap<>();
 		data.put("year", year);
 		data.put("month", month);
-		client.sendToServer(new Message(Commands.GET_TIME_REPORT, data));
+		return send(new Message(Commands.GET_TIME_REPORT, data));
 	}
 
 	/**
@@ -565,22 +809,24 @@ public class ClientController {
 	 *
 	 * @param year  report year
 	 * @param month report month (1-12)
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void getSubscribersReport(int year, int month) throws IOException {
+	public CompletableFuture<Message> getSubscribersReport(int year, int month) throws IOException {
 		Map<String, Object> data = new HashMap<>();
 		data.put("year", year);
 		data.put("month", month);
-		client.sendToServer(new Message(Commands.GET_SUBSCRIBERS_REPORT, data));
+		return send(new Message(Commands.GET_SUBSCRIBERS_REPORT, data));
 	}
 
 	/**
 	 * Requests a list of available months that have reports.
 	 *
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void getMonthlyReportsList() throws IOException {
-		client.sendToServer(new Message(Commands.GET_MONTHLY_REPORTS_LIST, null));
+	public CompletableFuture<Message> getMonthlyReportsList() throws IOException {
+		return send(new Message(Commands.GET_MONTHLY_REPORTS_LIST, null));
 	}
 
 	/**
@@ -588,20 +834,22 @@ public class ClientController {
 	 *
 	 * @param year  report year
 	 * @param month report month (1-12)
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void generateReports(int year, int month) throws IOException {
+	public CompletableFuture<Message> generateReports(int year, int month) throws IOException {
 		MonthlyReport report = MonthlyReport.createForMonth(year, month);
-		client.sendToServer(new Message(Commands.GENERATE_REPORTS, report));
+		return send(new Message(Commands.GENERATE_REPORTS, report));
 	}
 
 	/**
 	 * Sends a generic message to the server.
 	 *
 	 * @param message the message to send
+	 * @return future completed with the server response
 	 * @throws IOException if sending fails
 	 */
-	public void sendToServer(Message message) throws IOException {
-		client.sendToServer(message);
+	public CompletableFuture<Message> sendToServer(Message message) throws IOException {
+		return send(message);
 	}
 }
\ No newline at end of file
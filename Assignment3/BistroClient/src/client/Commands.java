@@ -11,6 +11,7 @@ public final class Commands {
 
     // User
     public static final String LOGIN = "LOGIN";
+    public static final String LOGOUT = "LOGOUT";
     public static final String LOGIN_BY_SUBSCRIBER_NUMBER = "LOGIN_BY_SUBSCRIBER_NUMBER";
     public static final String REGISTER_SUBSCRIBER = "REGISTER_SUBSCRIBER";
     public static final String GET_USER = "GET_USER";
@@ -26,6 +27,7 @@ public final class Commands {
     public static final String GET_RESERVATIONS = "GET_RESERVATIONS";
     public static final String GET_USER_RESERVATIONS = "GET_USER_RESERVATIONS";
     public static final String GET_ALTERNATIVE_SLOTS = "GET_ALTERNATIVE_SLOTS";
+    public static final String GET_AVAILABILITY_CALENDAR = "GET_AVAILABILITY_CALENDAR";
 
     // Waitlist
     public static final String JOIN_WAITLIST = "JOIN_WAITLIST";
@@ -68,4 +70,18 @@ public final class Commands {
     // Waitlist -> Terminal
     public static final String CHECK_AVAILABILITY_TERMINAL = "CHECK_AVAILABILITY_TERMINAL";
     public static final String GET_RESERVATIONS_BY_CARD = "GET_RESERVATIONS_BY_CARD";
+
+    // Several requests in one round trip
+    public static final String BATCH = "BATCH";
+
+    // Change events pushed by the server
+    public static final String SUBSCRIBE = "SUBSCRIBE";
+    public static final String UNSUBSCRIBE = "UNSUBSCRIBE";
+    public static final String CHANGE_EVENT = "CHANGE_EVENT";
+
+    // Server Monitoring (Staff)
+    public static final String GET_COMMAND_STATS = "GET_COMMAND_STATS";
+    public static final String GET_COMPRESSION_STATS = "GET_COMPRESSION_STATS";
+    public static final String GET_ADMISSION_STATS = "GET_ADMISSION_STATS";
+    public static final String GET_POOL_STATS = "GET_POOL_STATS";
 }
\ No newline at end of file
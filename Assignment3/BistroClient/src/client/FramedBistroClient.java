@@ -0,0 +1,166 @@
+package client;
+
+import common.Message;
+import common.WireFormat;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Map;
+
+/**
+ * Client for the NIO server transport.
+ * Sends and receives messages as length-prefixed frames (see {@link WireFormat})
+ * and forwards every received Message to the ClientController from a reader thread.
+ * Right after connecting it offers its wire protocols and compression codecs with
+ * a HELLO message and switches to what the server picks.
+ */
+public class FramedBistroClient implements ServerConnection {
+
+    private final String host;
+    private final int port;
+
+    private ClientController controller;
+    private Socket socket;
+    private DataInputStream input;
+    private DataOutputStream output;
+    private Thread readerThread;
+    private volatile boolean readyToStop = false;
+    private volatile int protocol = WireFormat.PROTOCOL_JAVA;
+    private volatile boolean compression = false;
+
+    /**
+     * Creates a framed client for the given host and port.
+     *
+     * @param host server host
+     * @param port server port
+     */
+    public FramedBistroClient(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    @Override
+    public void setController(ClientController controller) {
+        this.controller = controller;
+    }
+
+    @Override
+    public synchronized void openConnection() throws IOException {
+        if (isConnected()) {
+            return;
+        }
+
+        Socket s = new Socket();
+        try {
+            s.connect(new InetSocketAddress(host, port));
+            s.setTcpNoDelay(true);
+            input = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            output = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+        } catch (IOException e) {
+            s.close();
+            throw e;
+        }
+
+        socket = s;
+        readyToStop = false;
+        protocol = WireFormat.PROTOCOL_JAVA;
+        compression = false;
+        readerThread = new Thread(this::readLoop, "bistro-client-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+
+        sendToServer(new Message(WireFormat.HELLO, WireFormat.helloOffer()));
+    }
+
+    @Override
+    public void closeConnection() throws IOException {
+        readyToStop = true;
+        closeSocket();
+        if (controller != null) {
+            controller.deliver(Message.fail("DISCONNECTED", "Connection was closed"));
+        }
+    }
+
+    @Override
+    public void sendToServer(Object msg) throws IOException {
+        DataOutputStream out = output;
+        if (socket == null || out == null) {
+            throw new SocketException("socket does not exist");
+        }
+
+        byte[] frame = WireFormat.encode(msg, protocol, compression);
+        synchronized (out) {
+            out.write(frame);
+            out.flush();
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return readerThread != null && readerThread.isAlive();
+    }
+
+    /**
+     * Reads frames until the connection is closed.
+     */
+    private void readLoop() {
+        DataInputStream in = input;
+        try {
+            while (!readyToStop) {
+                int length = in.readInt();
+                WireFormat.checkFrameLength(length);
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                handleMessageFromServer(WireFormat.decode(payload, 0, length));
+            }
+        } catch (Exception e) {
+            if (!readyToStop) {
+                // Lost the server: fail the pending requests like closeConnection() does
+                closeSocket();
+                if (controller != null) {
+                    controller.deliver(Message.fail("DISCONNECTED", "Connection was lost"));
+                }
+            }
+        }
+    }
+
+    private void handleMessageFromServer(Object msg) {
+        if (msg instanceof Message m && WireFormat.HELLO.equals(m.getCommand())) {
+            if (m.isSuccess() && m.getData() instanceof Integer chosen) {
+                protocol = chosen;
+            } else if (m.isSuccess() && m.getData() instanceof Map<?, ?> chosen) {
+                if (chosen.get(WireFormat.HELLO_PROTOCOL) instanceof Integer p) {
+                    protocol = p;
+                }
+                compression = chosen.get(WireFormat.HELLO_COMPRESSION) != null;
+            }
+            return;
+        }
+        if (controller == null) return;
+
+        if (msg instanceof Message m) {
+            controller.deliver(m);
+        } else {
+            controller.deliver(Message.fail("UNEXPECTED_MESSAGE", "Server sent unsupported object: " + msg));
+        }
+    }
+
+    private synchronized void closeSocket() {
+        try {
+            if (socket != null) {
+                socket.close();
+            }
+        } catch (IOException ignored) {
+        } finally {
+            socket = null;
+            input = null;
+            output = null;
+        }
+    }
+}
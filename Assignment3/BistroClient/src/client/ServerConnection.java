@@ -0,0 +1,45 @@
+package client;
+
+import java.io.IOException;
+
+/**
+ * Network connection from the client to the Bistro server.
+ * Implemented by the OCSF-based {@link BistroClient} and by the framed
+ * {@link FramedBistroClient} that talks to the NIO server transport.
+ */
+public interface ServerConnection {
+
+    /**
+     * Opens the connection to the server.
+     *
+     * @throws IOException if the connection cannot be established
+     */
+    void openConnection() throws IOException;
+
+    /**
+     * Closes the connection to the server.
+     *
+     * @throws IOException if closing fails
+     */
+    void closeConnection() throws IOException;
+
+    /**
+     * Sends an object to the server.
+     *
+     * @param msg the object to send
+     * @throws IOException if the send fails
+     */
+    void sendToServer(Object msg) throws IOException;
+
+    /**
+     * @return true if the client is connected
+     */
+    boolean isConnected();
+
+    /**
+     * Sets the controller that will receive incoming messages.
+     *
+     * @param controller client controller (facade)
+     */
+    void setController(ClientController controller);
+}
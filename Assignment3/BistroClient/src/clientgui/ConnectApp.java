@@ -2,6 +2,8 @@ package clientgui;
 
 import client.BistroClient;
 import client.ClientController;
+import client.FramedBistroClient;
+import client.ServerConnection;
 import entities.Subscriber;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -31,7 +33,7 @@ public final class ConnectApp {
 
     public static void init(Stage stage, String host, int port) throws IOException {
         primaryStage = stage;
-        controller = new ClientController(new BistroClient(host, port));
+        controller = new ClientController(createConnection(host, port));
         controller.connect();
 
         // DEV FIX: if you keep CSS/FXML/images under src (not resources),
@@ -40,6 +42,18 @@ public final class ConnectApp {
         ensureDevResourcesCopied();
     }
 
+    /**
+     * Picks the client matching the server transport.
+     * Use -Dbistro.transport=ocsf to talk to a server started with the OCSF transport.
+     */
+    private static ServerConnection createConnection(String host, int port) {
+        String transport = System.getProperty("bistro.transport", "nio");
+        if ("ocsf".equalsIgnoreCase(transport)) {
+            return new BistroClient(host, port);
+        }
+        return new FramedBistroClient(host, port);
+    }
+
     public static ClientController getController() {
         return controller;
     }
@@ -15,12 +15,16 @@ import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controller for searching available reservation slots.
  * Sends GET_AVAILABLE_SLOTS and displays the returned times.
  * If no slots available, suggests alternative dates/times.
+ * The date picker is colored by GET_AVAILABILITY_CALENDAR: green if the day has
+ * plenty of free times, orange if few, red if none, and closed days are disabled.
  */
 public class ReservationSearchController implements MessageListener {
 
@@ -41,6 +45,9 @@ public class ReservationSearchController implements MessageListener {
     private LocalDate selectedAlternativeDate = null;
     private String selectedAlternativeTime = null;
 
+    // Day summaries of the bookable month for the current party size
+    private final Map<LocalDate, Map<?, ?>> calendar = new HashMap<>();
+
     public void init(ClientController controller, Subscriber subscriber) {
         this.subscriber = subscriber;
         init(controller);
@@ -68,8 +75,31 @@ public class ReservationSearchController implements MessageListener {
                 LocalDate max = today.plusMonths(1);
 
                 setDisable(item.isBefore(today) || item.isAfter(max));
+                setStyle("");
+                setTooltip(null);
+                if (isDisabled()) return;
+
+                Map<?, ?> day = calendar.get(item);
+                if (day == null) return;
+                if (!Boolean.TRUE.equals(day.get("open"))) {
+                    setDisable(true);
+                    setTooltip(new Tooltip("Closed"));
+                    return;
+                }
+
+                int free = day.get("freeSlots") instanceof Integer n ? n : 0;
+                int total = day.get("totalSlots") instanceof Integer n ? n : 0;
+                if (free == 0) {
+                    setStyle("-fx-background-color: #f4b6b6;");
+                    setTooltip(new Tooltip("Fully booked"));
+                } else {
+                    setStyle(free * 3 < total ? "-fx-background-color: #f9d9a8;" : "-fx-background-color: #c4e8c2;");
+                    setTooltip(new Tooltip(free + " free times, " + day.get("firstFree") + " - " + day.get("lastFree")));
+                }
             }
         });
+        dinersSpinner.valueProperty().addListener((obs, oldV, newV) -> requestCalendar());
+        requestCalendar();
 
         resultLabel.setText("");
         timesList.getItems().clear();
@@ -88,6 +118,18 @@ public class ReservationSearchController implements MessageListener {
         });
     }
 
+    /**
+     * Requests the availability summary of the bookable month for the current party size.
+     */
+    private void requestCalendar() {
+        try {
+            LocalDate today = LocalDate.now();
+            controller.getAvailabilityCalendar(today, today.plusMonths(1), dinersSpinner.getValue());
+        } catch (IOException e) {
+            // The picker simply stays uncolored
+        }
+    }
+
     /**
      * Parses alternative selection to extract date and time.
      */
@@ -200,6 +242,29 @@ public class ReservationSearchController implements MessageListener {
             handleAlternativeSlotsResponse(m);
             return;
         }
+
+        // Handle availability calendar response
+        if (Commands.GET_AVAILABILITY_CALENDAR.equals(command)) {
+            handleCalendarResponse(m);
+            return;
+        }
+    }
+
+    /**
+     * Handles the response for GET_AVAILABILITY_CALENDAR.
+     */
+    private void handleCalendarResponse(Message m) {
+        if (!m.isSuccess() || !(m.getData() instanceof List<?> list)) {
+            return;
+        }
+        Platform.runLater(() -> {
+            calendar.clear();
+            for (Object o : list) {
+                if (o instanceof Map<?, ?> day && day.get("date") instanceof LocalDate date) {
+                    calendar.put(date, day);
+                }
+            }
+        });
     }
 
     /**
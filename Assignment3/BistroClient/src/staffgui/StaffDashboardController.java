@@ -3,7 +3,9 @@ package staffgui;
 import client.ClientController;
 import client.Commands;
 import client.MessageListener;
+import common.ChangeEvent;
 import common.Message;
+import common.Paging;
 import entities.MonthlyReport;
 import entities.OpeningHours;
 import entities.Reservation;
@@ -13,6 +15,7 @@ import entities.Table;
 import entities.User;
 import entities.WaitlistEntry;
 import entities.User.UserRole;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -29,10 +32,13 @@ import java.time.LocalTime;
 import java.time.Month;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.Map;
+import java.util.Set;
+import javafx.util.Duration;
 import javafx.scene.layout.HBox;
 import javafx.scene.control.Alert;
 
@@ -152,6 +158,12 @@ public class StaffDashboardController implements MessageListener {
     // Currently selected subscriber for history view
     private Subscriber selectedSubscriber;
 
+    // Change events arriving within this delay are merged into one reload
+    private static final Duration EVENT_COALESCE_DELAY = Duration.millis(300);
+
+    // Topics changed since the last reload (FX thread only)
+    private final Set<String> staleTopics = new HashSet<>();
+
     /**
      * Report table row (field-value pair).
      */
@@ -188,12 +200,8 @@ public class StaffDashboardController implements MessageListener {
         setupReportsUI();
         setupSubscribersTableListener();
 
-        refreshReservations();
-        refreshWaitlist();
-        refreshCurrentDiners();
-        refreshTables();
-        refreshOpeningHours();
-        refreshSpecialHours();
+        loadDashboard();
+        subscribeToChanges();
         
      // Hide Reports tab for non-managers
         if (staffUser != null && staffUser.getUserRole() != User.UserRole.MANAGER) {
@@ -435,11 +443,12 @@ public class StaffDashboardController implements MessageListener {
     }
 
     /**
-     * Returns to the home screen.
+     * Logs out on the server and returns to the home screen.
      */
     @FXML
     private void onLogout() {
         try {
+            controller.logout();
             clientgui.ConnectApp.showWelcome();
         } catch (Exception e) {
             showError("Logout failed: " + e.getMessage());
@@ -448,12 +457,109 @@ public class StaffDashboardController implements MessageListener {
 
  // Refresh Actions
 
+    /**
+     * Loads all dashboard tabs at once. Reservations, the longest list, are streamed
+     * so the first rows show right away; the other five reads travel as one BATCH
+     * request, run on one database connection against a consistent snapshot, and
+     * come back in a single response.
+     */
+    private void loadDashboard() {
+        status("Loading dashboard...");
+        streamReservations();
+        List<Message> loads = List.of(
+                new Message(Commands.GET_WAITLIST, null),
+                new Message(Commands.GET_CURRENT_DINERS, null),
+                new Message(Commands.GET_TABLES, null),
+                new Message(Commands.GET_OPENING_HOURS, null),
+                new Message(Commands.GET_SPECIAL_HOURS, null));
+
+        controller.batch(loads, true)
+                .thenAccept(responses -> {
+                    responses.forEach(this::onMessage);
+                    if (responses.stream().allMatch(Message::isSuccess)) {
+                        Platform.runLater(() -> status("Dashboard loaded."));
+                    }
+                });
+    }
+
+    /**
+     * Streams the reservations list: the first chunk replaces the table contents
+     * and later chunks are appended as they arrive.
+     */
+    private void streamReservations() {
+        controller.stream(Commands.GET_RESERVATIONS, Map.of(), chunk -> Platform.runLater(() -> {
+            if (!chunk.isSuccess()) {
+                showError("Failed to load reservations: " + chunk.getError());
+                return;
+            }
+            @SuppressWarnings("unchecked")
+            List<Reservation> rows = (List<Reservation>) Paging.items(chunk);
+            if (Integer.valueOf(0).equals(((Map<?, ?>) chunk.getData()).get(Paging.CHUNK))) {
+                reservationsTable.setItems(FXCollections.observableArrayList(rows));
+            } else {
+                reservationsTable.getItems().addAll(rows);
+            }
+            status(Paging.isPartial(chunk)
+                    ? "Loading reservations... " + reservationsTable.getItems().size()
+                    : "Reservations loaded: " + reservationsTable.getItems().size());
+        }));
+    }
+
+    /**
+     * Asks the server to push change events for the live views, so the tables,
+     * waitlist and reservations tabs update without pressing refresh.
+     */
+    private void subscribeToChanges() {
+        controller.subscribe(List.of(ChangeEvent.TABLES, ChangeEvent.WAITLIST, ChangeEvent.RESERVATIONS))
+                .thenAccept(response -> {
+                    if (!response.isSuccess()) {
+                        Platform.runLater(() -> showError("Live updates unavailable: " + response.getError()));
+                    }
+                });
+    }
+
+    /**
+     * Marks the topic of a change event as stale. The first event schedules a
+     * reload; events arriving before it runs (e.g. the table and reservation
+     * events of one payment) are served by the same reload.
+     */
+    private void onChangeEvent(ChangeEvent event) {
+        if (staleTopics.isEmpty()) {
+            PauseTransition delay = new PauseTransition(EVENT_COALESCE_DELAY);
+            delay.setOnFinished(e -> reloadStaleTopics());
+            delay.play();
+        }
+        staleTopics.add(event.getTopic());
+    }
+
+    /**
+     * Reloads only the lists whose topic changed, in one BATCH request.
+     */
+    private void reloadStaleTopics() {
+        List<Message> loads = new ArrayList<>();
+        if (staleTopics.contains(ChangeEvent.RESERVATIONS)) {
+            streamReservations();
+        }
+        if (staleTopics.contains(ChangeEvent.WAITLIST)) {
+            loads.add(new Message(Commands.GET_WAITLIST, null));
+        }
+        if (staleTopics.contains(ChangeEvent.TABLES)) {
+            loads.add(new Message(Commands.GET_TABLES, null));
+            loads.add(new Message(Commands.GET_CURRENT_DINERS, null));
+        }
+        staleTopics.clear();
+
+        if (!loads.isEmpty()) {
+            controller.batch(loads, true).thenAccept(responses -> responses.forEach(this::onMessage));
+        }
+    }
+
     @FXML
     public void refreshReservations() {
         try {
             controller.setListener(this);
             status("Loading reservations...");
-            controller.getAllReservations();
+            streamReservations();
         } catch (Exception e) {
             showError("Failed to load reservations: " + e.getMessage());
         }
@@ -1016,6 +1122,8 @@ public class StaffDashboardController implements MessageListener {
 
             switch (m.getCommand()) {
 
+                case Commands.CHANGE_EVENT -> onChangeEvent((ChangeEvent) m.getData());
+
                 case Commands.GET_RESERVATIONS -> {
                     @SuppressWarnings("unchecked")
                     List<Reservation> list = (List<Reservation>) m.getData();
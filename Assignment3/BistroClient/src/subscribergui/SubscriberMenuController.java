@@ -68,6 +68,9 @@ public class SubscriberMenuController {
 
     @FXML
     private void onBack() throws Exception {
+        if (controller != null) {
+            controller.logout();
+        }
         ConnectApp.showWelcome();
     }
 }
\ No newline at end of file
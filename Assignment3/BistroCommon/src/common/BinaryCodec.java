@@ -0,0 +1,664 @@
+package common;
+
+import entities.Bill;
+import entities.OpeningHours;
+import entities.Reservation;
+import entities.SpecialHours;
+import entities.Subscriber;
+import entities.Table;
+import entities.User;
+import entities.WaitlistEntry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of {@link Message} and the common entities.
+ *
+ * A payload starts with {@link #MAGIC} and the codec version, followed by the message fields.
+ * Values are written with a one-byte type tag. Strings, numbers, dates, lists, maps, change events and the
+ * entities used on the wire (Reservation, WaitlistEntry, Table, Bill, User, Subscriber,
+ * OpeningHours, SpecialHours) have their own tags. Anything else is embedded as a
+ * Java-serialized blob, so every Serializable payload still goes through.
+ */
+public final class BinaryCodec {
+
+    /** First byte of every binary payload. Java serialization streams start with 0xAC instead. */
+    public static final byte MAGIC = (byte) 0xB1;
+
+    /** Layout version written after the magic byte. Version 2 added the message request ID. */
+    public static final int VERSION = 2;
+
+    // Value tags
+    private static final int T_NULL = 0;
+    private static final int T_STRING = 1;
+    private static final int T_INT = 2;
+    private static final int T_LONG = 3;
+    private static final int T_TRUE = 4;
+    private static final int T_FALSE = 5;
+    private static final int T_DOUBLE = 6;
+    private static final int T_DECIMAL = 7;
+    private static final int T_DATE = 8;
+    private static final int T_TIME = 9;
+    private static final int T_DATE_TIME = 10;
+    private static final int T_TIMESTAMP = 11;
+    private static final int T_LIST = 12;
+    private static final int T_MAP = 13;
+    private static final int T_MESSAGE = 14;
+    private static final int T_CHANGE_EVENT = 15;
+    private static final int T_RESERVATION = 20;
+    private static final int T_WAITLIST_ENTRY = 21;
+    private static final int T_TABLE = 22;
+    private static final int T_BILL = 23;
+    private static final int T_USER = 24;
+    private static final int T_SUBSCRIBER = 25;
+    private static final int T_OPENING_HOURS = 26;
+    private static final int T_SPECIAL_HOURS = 27;
+    private static final int T_SERIALIZED = 127;
+
+    private BinaryCodec() {}
+
+    /**
+     * Checks whether a payload was written by this codec.
+     *
+     * @param payload buffer holding the payload
+     * @param offset start of the payload
+     * @param length payload length
+     * @return true if the payload starts with the binary magic byte
+     */
+    public static boolean isBinary(byte[] payload, int offset, int length) {
+        return length > 0 && payload[offset] == MAGIC;
+    }
+
+    /**
+     * Encodes an object into a frame: a {@code headerSize}-byte gap followed by the payload.
+     * The caller fills in the header.
+     *
+     * @param msg the object to encode
+     * @param headerSize number of bytes to reserve in front of the payload
+     * @return the frame bytes
+     * @throws IOException if an embedded value cannot be serialized
+     */
+    public static byte[] encode(Object msg, int headerSize) throws IOException {
+        Output out = new Output(BufferPool.acquire());
+        try {
+            out.position = headerSize;
+            out.writeByte(MAGIC);
+            out.writeByte(VERSION);
+            out.writeValue(msg);
+            return out.toByteArray();
+        } finally {
+            BufferPool.release(out.buffer);
+        }
+    }
+
+    /**
+     * Decodes a binary payload.
+     *
+     * @param payload buffer holding the payload
+     * @param offset start of the payload
+     * @param length payload length
+     * @return the decoded object
+     * @throws IOException if the payload is corrupt or has an unsupported version
+     * @throws ClassNotFoundException if an embedded serialized value references an unknown class
+     */
+    public static Object decode(byte[] payload, int offset, int length) throws IOException, ClassNotFoundException {
+        Input in = new Input(payload, offset, offset + length);
+        if (in.readByte() != MAGIC) {
+            throw new StreamCorruptedException("Not a binary payload");
+        }
+        in.version = in.readByte();
+        if (in.version < 1 || in.version > VERSION) {
+            throw new StreamCorruptedException("Unsupported codec version: " + in.version);
+        }
+        return in.readValue();
+    }
+
+    /**
+     * Growable output buffer.
+     */
+    private static final class Output {
+
+        byte[] buffer;
+        int position;
+
+        Output(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        byte[] toByteArray() {
+            byte[] result = new byte[position];
+            System.arraycopy(buffer, 0, result, 0, position);
+            return result;
+        }
+
+        private void ensure(int extra) {
+            if (position + extra > buffer.length) {
+                byte[] bigger = new byte[Math.max(buffer.length * 2, position + extra)];
+                System.arraycopy(buffer, 0, bigger, 0, position);
+                BufferPool.release(buffer);
+                buffer = bigger;
+            }
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buffer[position++] = (byte) b;
+        }
+
+        /** Unsigned variable-length int, 7 bits per byte. */
+        void writeVarInt(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                buffer[position++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buffer[position++] = (byte) v;
+        }
+
+        /** Zig-zag encoded variable-length long, so small negatives stay short. */
+        void writeVarLong(long v) {
+            ensure(10);
+            long z = (v << 1) ^ (v >> 63);
+            while ((z & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((z & 0x7F) | 0x80);
+                z >>>= 7;
+            }
+            buffer[position++] = (byte) z;
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarInt(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeString(String s) {
+            writeBytes(s.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void writeValue(Object v) throws IOException {
+            if (v == null) {
+                writeByte(T_NULL);
+                return;
+            }
+
+            Class<?> type = v.getClass();
+            if (type == String.class) {
+                writeByte(T_STRING);
+                writeString((String) v);
+            } else if (type == Integer.class) {
+                writeByte(T_INT);
+                writeVarLong((Integer) v);
+            } else if (type == Long.class) {
+                writeByte(T_LONG);
+                writeVarLong((Long) v);
+            } else if (type == Boolean.class) {
+                writeByte((Boolean) v ? T_TRUE : T_FALSE);
+            } else if (type == Double.class) {
+                writeByte(T_DOUBLE);
+                writeVarLong(Double.doubleToRawLongBits((Double) v));
+            } else if (type == BigDecimal.class) {
+                BigDecimal d = (BigDecimal) v;
+                writeByte(T_DECIMAL);
+                writeVarLong(d.scale());
+                writeBytes(d.unscaledValue().toByteArray());
+            } else if (type == LocalDate.class) {
+                writeByte(T_DATE);
+                writeVarLong(((LocalDate) v).toEpochDay());
+            } else if (type == LocalTime.class) {
+                writeByte(T_TIME);
+                writeVarLong(((LocalTime) v).toNanoOfDay());
+            } else if (type == LocalDateTime.class) {
+                LocalDateTime dt = (LocalDateTime) v;
+                writeByte(T_DATE_TIME);
+                writeVarLong(dt.toLocalDate().toEpochDay());
+                writeVarLong(dt.toLocalTime().toNanoOfDay());
+            } else if (type == Timestamp.class) {
+                Timestamp ts = (Timestamp) v;
+                writeByte(T_TIMESTAMP);
+                writeVarLong(ts.getTime());
+                writeVarInt(ts.getNanos());
+            } else if (v instanceof List<?> list) {
+                writeByte(T_LIST);
+                writeVarInt(list.size());
+                for (Object item : list) {
+                    writeValue(item);
+                }
+            } else if (v instanceof Map<?, ?> map) {
+                writeByte(T_MAP);
+                writeVarInt(map.size());
+                for (Map.Entry<?, ?> e : map.entrySet()) {
+                    writeValue(e.getKey());
+                    writeValue(e.getValue());
+                }
+            } else if (type == Message.class) {
+                Message m = (Message) v;
+                writeByte(T_MESSAGE);
+                writeValue(m.getCommand());
+                writeVarLong(m.getRequestId());
+                writeByte(m.isSuccess() ? 1 : 0);
+                writeValue(m.getError());
+                writeValue(m.getData());
+            } else if (type == ChangeEvent.class) {
+                ChangeEvent e = (ChangeEvent) v;
+                writeByte(T_CHANGE_EVENT);
+                writeValue(e.getTopic());
+                writeValue(e.getAction());
+                writeValue(e.getKey());
+                writeValue(e.getDate());
+                writeVarLong(e.getTimestamp());
+            } else if (type == Reservation.class) {
+                writeByte(T_RESERVATION);
+                writeReservation((Reservation) v);
+            } else if (type == WaitlistEntry.class) {
+                writeByte(T_WAITLIST_ENTRY);
+                writeWaitlistEntry((WaitlistEntry) v);
+            } else if (type == Table.class) {
+                writeByte(T_TABLE);
+                writeTable((Table) v);
+            } else if (type == Bill.class) {
+                writeByte(T_BILL);
+                writeBill((Bill) v);
+            } else if (type == User.class) {
+                writeByte(T_USER);
+                writeUser((User) v);
+            } else if (type == Subscriber.class) {
+                Subscriber s = (Subscriber) v;
+                writeByte(T_SUBSCRIBER);
+                writeUser(s);
+                writeValue(s.getSubscriberNumber());
+                writeValue(s.getMembershipCard());
+            } else if (type == OpeningHours.class) {
+                writeByte(T_OPENING_HOURS);
+                writeOpeningHours((OpeningHours) v);
+            } else if (type == SpecialHours.class) {
+                writeByte(T_SPECIAL_HOURS);
+                writeSpecialHours((SpecialHours) v);
+            } else {
+                writeByte(T_SERIALIZED);
+                writeBytes(serialize(v));
+            }
+        }
+
+        /** Enum constant as ordinal + 1, 0 for null. */
+        private void writeEnum(Enum<?> e) {
+            writeVarInt(e == null ? 0 : e.ordinal() + 1);
+        }
+
+        private void writeReservation(Reservation r) throws IOException {
+            writeVarInt(r.getReservationId());
+            writeValue(r.getConfirmationCode());
+            writeValue(r.getBookingDate());
+            writeValue(r.getBookingTime());
+            writeVarInt(r.getGuestCount());
+            writeValue(r.getSubscriberNumber());
+            writeEnum(r.getStatus());
+            writeValue(r.getAssignedTableNumber());
+            writeValue(r.getWalkInPhone());
+            writeValue(r.getWalkInEmail());
+        }
+
+        private void writeWaitlistEntry(WaitlistEntry w) throws IOException {
+            writeVarInt(w.getEntryId());
+            writeValue(w.getRequestTime());
+            writeVarInt(w.getNumberOfDiners());
+            writeValue(w.getEntryCode());
+            writeValue(w.getSubscriberNumber());
+            writeValue(w.getWalkInPhone());
+            writeValue(w.getWalkInEmail());
+            writeValue(w.getNotifiedAt());
+        }
+
+        private void writeTable(Table t) throws IOException {
+            writeVarInt(t.getTableNumber());
+            writeVarInt(t.getSeatCapacity());
+            writeValue(t.getTableLocation());
+            writeEnum(t.getTableStatus());
+            writeValue(t.getReservationStart());
+            writeValue(t.getReservationEnd());
+        }
+
+        private void writeBill(Bill b) throws IOException {
+            writeVarInt(b.getBillNumber());
+            writeValue(b.getTotalPrice());
+            writeValue(b.getDiscountValue());
+            writeValue(b.getPaymentDate());
+            writeVarInt(b.getTableNumber());
+            writeValue(b.getSubscriberNumber());
+        }
+
+        private void writeUser(User u) throws IOException {
+            writeVarInt(u.getUserId());
+            writeValue(u.getName());
+            writeValue(u.getEmailAddress());
+            writeValue(u.getPhoneNumber());
+            writeValue(u.getUserPassword());
+            writeEnum(u.getUserRole());
+            writeByte(u.isAccountStatus() ? 1 : 0);
+            writeValue(u.getRegistrationDate());
+        }
+
+        private void writeOpeningHours(OpeningHours h) throws IOException {
+            writeVarInt(h.getId());
+            writeEnum(h.getWeekday());
+            writeValue(h.getOpeningTime());
+            writeValue(h.getClosingTime());
+        }
+
+        private void writeSpecialHours(SpecialHours h) throws IOException {
+            writeVarInt(h.getSpecialId());
+            writeValue(h.getSpecialDate());
+            writeValue(h.getOpeningTime());
+            writeValue(h.getClosingTime());
+            writeByte(h.getClosedFlag() ? 1 : 0);
+        }
+
+        private static byte[] serialize(Object v) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(v);
+            }
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * Reader over a payload slice.
+     */
+    private static final class Input {
+
+        private final byte[] buffer;
+        private int position;
+        private final int limit;
+        int version = VERSION;
+
+        Input(byte[] buffer, int position, int limit) {
+            this.buffer = buffer;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        int readByte() throws IOException {
+            if (position >= limit) {
+                throw new StreamCorruptedException("Unexpected end of payload");
+            }
+            return buffer[position++];
+        }
+
+        int readVarInt() throws IOException {
+            int result = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                result |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new StreamCorruptedException("Malformed varint");
+        }
+
+        long readVarLong() throws IOException {
+            long z = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                int b = readByte();
+                z |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (z >>> 1) ^ -(z & 1);
+                }
+            }
+            throw new StreamCorruptedException("Malformed varlong");
+        }
+
+        byte[] readBytes() throws IOException {
+            int length = readVarInt();
+            if (length < 0 || length > limit - position) {
+                throw new StreamCorruptedException("Invalid length: " + length);
+            }
+            byte[] bytes = new byte[length];
+            System.arraycopy(buffer, position, bytes, 0, length);
+            position += length;
+            return bytes;
+        }
+
+        String readString() throws IOException {
+            int length = readVarInt();
+            if (length < 0 || length > limit - position) {
+                throw new StreamCorruptedException("Invalid length: " + length);
+            }
+            String s = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return s;
+        }
+
+        Object readValue() throws IOException, ClassNotFoundException {
+            int tag = readByte();
+            switch (tag) {
+                case T_NULL:
+                    return null;
+                case T_STRING:
+                    return readString();
+                case T_INT:
+                    return (int) readVarLong();
+                case T_LONG:
+                    return readVarLong();
+                case T_TRUE:
+                    return Boolean.TRUE;
+                case T_FALSE:
+                    return Boolean.FALSE;
+                case T_DOUBLE:
+                    return Double.longBitsToDouble(readVarLong());
+                case T_DECIMAL: {
+                    int scale = (int) readVarLong();
+                    return new BigDecimal(new BigInteger(readBytes()), scale);
+                }
+                case T_DATE:
+                    return LocalDate.ofEpochDay(readVarLong());
+                case T_TIME:
+                    return LocalTime.ofNanoOfDay(readVarLong());
+                case T_DATE_TIME: {
+                    LocalDate date = LocalDate.ofEpochDay(readVarLong());
+                    return LocalDateTime.of(date, LocalTime.ofNanoOfDay(readVarLong()));
+                }
+                case T_TIMESTAMP: {
+                    Timestamp ts = new Timestamp(readVarLong());
+                    ts.setNanos(readVarInt());
+                    return ts;
+                }
+                case T_LIST: {
+                    int size = readVarInt();
+                    List<Object> list = new ArrayList<>(Math.min(size, 1024));
+                    for (int i = 0; i < size; i++) {
+                        list.add(readValue());
+                    }
+                    return list;
+                }
+                case T_MAP: {
+                    int size = readVarInt();
+                    Map<Object, Object> map = new LinkedHashMap<>();
+                    for (int i = 0; i < size; i++) {
+                        map.put(readValue(), readValue());
+                    }
+                    return map;
+                }
+                case T_MESSAGE:
+                    return readMessage();
+                case T_CHANGE_EVENT: {
+                    String topic = (String) readValue();
+                    String action = (String) readValue();
+                    Serializable key = (Serializable) readValue();
+                    LocalDate date = (LocalDate) readValue();
+                    return new ChangeEvent(topic, action, key, date, readVarLong());
+                }
+                case T_RESERVATION:
+                    return readReservation();
+                case T_WAITLIST_ENTRY:
+                    return readWaitlistEntry();
+                case T_TABLE:
+                    return readTable();
+                case T_BILL:
+                    return readBill();
+                case T_USER:
+                    return readUser(new User());
+                case T_SUBSCRIBER: {
+                    Subscriber s = new Subscriber();
+                    readUser(s);
+                    s.setSubscriberNumber((String) readValue());
+                    s.setMembershipCard((String) readValue());
+                    return s;
+                }
+                case T_OPENING_HOURS:
+                    return readOpeningHours();
+                case T_SPECIAL_HOURS:
+                    return readSpecialHours();
+                case T_SERIALIZED: {
+                    byte[] bytes = readBytes();
+                    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                        return in.readObject();
+                    }
+                }
+                default:
+                    throw new StreamCorruptedException("Unknown value tag: " + tag);
+            }
+        }
+
+        private Message readMessage() throws IOException, ClassNotFoundException {
+            String command = (String) readValue();
+            long requestId = version >= 2 ? readVarLong() : 0L;
+            boolean success = readByte() != 0;
+            String error = (String) readValue();
+            Object data = readValue();
+            Message m = success ? Message.ok(command, data) : Message.fail(command, error);
+            return requestId == 0 ? m : m.withRequestId(requestId);
+        }
+
+        private <E extends Enum<E>> E readEnum(Class<E> type) throws IOException {
+            int ordinal = readVarInt();
+            if (ordinal == 0) {
+                return null;
+            }
+            E[] constants = type.getEnumConstants();
+            if (ordinal > constants.length) {
+                throw new StreamCorruptedException("Unknown " + type.getSimpleName() + " ordinal: " + (ordinal - 1));
+            }
+            return constants[ordinal - 1];
+        }
+
+        // Entities are rebuilt through their setters. Fields still at their
+        // default value are skipped, since several setters reject null or zero.
+
+        private Reservation readReservation() throws IOException, ClassNotFoundException {
+            Reservation r = new Reservation();
+            r.setReservationId(readVarInt());
+            String code = (String) readValue();
+            if (code != null) r.setConfirmationCode(code);
+            LocalDate date = (LocalDate) readValue();
+            if (date != null) r.setBookingDate(date);
+            LocalTime time = (LocalTime) readValue();
+            if (time != null) r.setBookingTime(time);
+            int guests = readVarInt();
+            if (guests > 0) r.setGuestCount(guests);
+            r.setSubscriberNumber((String) readValue());
+            Reservation.ReservationStatus status = readEnum(Reservation.ReservationStatus.class);
+            if (status != null) r.setReservationStatus(status);
+            r.setAssignedTableNumber((Integer) readValue());
+            r.setWalkInPhone((String) readValue());
+            r.setWalkInEmail((String) readValue());
+            return r;
+        }
+
+        private WaitlistEntry readWaitlistEntry() throws IOException, ClassNotFoundException {
+            WaitlistEntry w = new WaitlistEntry();
+            w.setEntryId(readVarInt());
+            LocalDateTime requested = (LocalDateTime) readValue();
+            if (requested != null) w.setRequestTime(requested);
+            int diners = readVarInt();
+            if (diners > 0) w.setNumberOfDiners(diners);
+            String code = (String) readValue();
+            if (code != null) w.setEntryCode(code);
+            w.setSubscriberNumber((String) readValue());
+            w.setWalkInPhone((String) readValue());
+            w.setWalkInEmail((String) readValue());
+            w.setNotifiedAt((LocalDateTime) readValue());
+            return w;
+        }
+
+        private Table readTable() throws IOException, ClassNotFoundException {
+            Table t = new Table();
+            t.setTableNumber(readVarInt());
+            t.setSeatCapacity(readVarInt());
+            t.setTableLocation((String) readValue());
+            t.setTableStatus(readEnum(Table.TableStatus.class));
+            t.setReservationStart((Timestamp) readValue());
+            t.setReservationEnd((Timestamp) readValue());
+            return t;
+        }
+
+        private Bill readBill() throws IOException, ClassNotFoundException {
+            Bill b = new Bill();
+            b.setBillNumber(readVarInt());
+            BigDecimal total = (BigDecimal) readValue();
+            if (total != null) b.setTotalPrice(total);
+            BigDecimal discount = (BigDecimal) readValue();
+            if (discount != null) b.setDiscountValue(discount);
+            LocalDate paid = (LocalDate) readValue();
+            if (paid != null) b.setPaymentDate(paid);
+            int table = readVarInt();
+            if (table > 0) b.setTableNumber(table);
+            b.setSubscriberNumber((String) readValue());
+            return b;
+        }
+
+        private User readUser(User u) throws IOException, ClassNotFoundException {
+            u.setUserId(readVarInt());
+            u.setName((String) readValue());
+            u.setEmailAddress((String) readValue());
+            u.setPhoneNumber((String) readValue());
+            u.setUserPassword((String) readValue());
+            u.setUserRole(readEnum(User.UserRole.class));
+            u.setAccountStatus(readByte() != 0);
+            u.setRegistrationDate((Timestamp) readValue());
+            return u;
+        }
+
+        private OpeningHours readOpeningHours() throws IOException, ClassNotFoundException {
+            OpeningHours h = new OpeningHours();
+            h.setId(readVarInt());
+            OpeningHours.Weekday day = readEnum(OpeningHours.Weekday.class);
+            if (day != null) h.setWeekday(day);
+            LocalTime open = (LocalTime) readValue();
+            if (open != null) h.setOpeningTime(open);
+            LocalTime close = (LocalTime) readValue();
+            if (close != null) h.setClosingTime(close);
+            return h;
+        }
+
+        private SpecialHours readSpecialHours() throws IOException, ClassNotFoundException {
+            SpecialHours h = new SpecialHours();
+            h.setSpecialId(readVarInt());
+            LocalDate date = (LocalDate) readValue();
+            if (date != null) h.setSpecialDate(date);
+            h.setOpeningTime((LocalTime) readValue());
+            h.setClosingTime((LocalTime) readValue());
+            h.setClosedFlag(readByte() != 0);
+            return h;
+        }
+    }
+}
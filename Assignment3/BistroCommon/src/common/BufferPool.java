@@ -0,0 +1,44 @@
+package common;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Small shared pool of scratch byte arrays used while encoding frames.
+ * Requests run on virtual threads, so a ThreadLocal buffer would be allocated
+ * per request anyway; a shared pool lets consecutive encodes reuse the same arrays.
+ * Arrays that grew beyond {@link #MAX_POOLED_SIZE} are left to the garbage collector.
+ */
+public final class BufferPool {
+
+    /** Size of a freshly allocated buffer. */
+    public static final int BUFFER_SIZE = 8 * 1024;
+
+    /** Largest buffer kept in the pool after use. */
+    public static final int MAX_POOLED_SIZE = 256 * 1024;
+
+    private static final ArrayBlockingQueue<byte[]> POOL = new ArrayBlockingQueue<>(32);
+
+    private BufferPool() {}
+
+    /**
+     * Borrows a buffer of at least {@link #BUFFER_SIZE} bytes.
+     *
+     * @return a buffer from the pool, or a new one if the pool is empty
+     */
+    public static byte[] acquire() {
+        byte[] buffer = POOL.poll();
+        return buffer != null ? buffer : new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Returns a buffer to the pool. Oversized buffers and buffers beyond
+     * the pool capacity are dropped.
+     *
+     * @param buffer the buffer to return
+     */
+    public static void release(byte[] buffer) {
+        if (buffer != null && buffer.length <= MAX_POOLED_SIZE) {
+            POOL.offer(buffer);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package common;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * A small notification pushed by the server after data changed.
+ * Clients register for topics with the SUBSCRIBE command and receive events as
+ * {@code Message.ok(ChangeEvent.COMMAND, event)} without a request ID.
+ * An event only says what changed (topic, action and a key such as a table number),
+ * so a client can refresh just the affected view instead of polling full lists.
+ */
+public class ChangeEvent implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** Command of the messages that carry change events. */
+    public static final String COMMAND = "CHANGE_EVENT";
+
+    /** Table status, capacity or location changed; the key is the table number. */
+    public static final String TABLES = "TABLES";
+
+    /** The waitlist changed. */
+    public static final String WAITLIST = "WAITLIST";
+
+    /** A reservation changed; the key is the reservation ID when known. */
+    public static final String RESERVATIONS = "RESERVATIONS";
+
+    /** Like {@link #RESERVATIONS}, but only for reservations booked for today. */
+    public static final String TODAY_RESERVATIONS = "TODAY_RESERVATIONS";
+
+    private final String topic;
+    private final String action;
+    private final Serializable key; // Integer or String
+    private final LocalDate date;
+    private final long timestamp;
+
+    /**
+     * Creates a change event stamped with the current time.
+     *
+     * @param topic the topic (see the constants of this class)
+     * @param action what happened, e.g. "OCCUPIED" or "CANCELLED"
+     * @param key the affected row (table number, reservation ID), or null
+     * @param date the booking date of a reservation event, or null
+     */
+    public ChangeEvent(String topic, String action, Serializable key, LocalDate date) {
+        this(topic, action, key, date, System.currentTimeMillis());
+    }
+
+    /**
+     * Creates a change event.
+     *
+     * @param topic the topic
+     * @param action what happened
+     * @param key the affected row, or null
+     * @param date the booking date of a reservation event, or null
+     * @param timestamp when the change happened (milliseconds since the epoch)
+     */
+    public ChangeEvent(String topic, String action, Serializable key, LocalDate date, long timestamp) {
+        this.topic = topic;
+        this.action = action;
+        this.key = key;
+        this.date = date;
+        this.timestamp = timestamp;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public Serializable getKey() {
+        return key;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent{" +
+                "topic='" + topic + '\'' +
+                ", action='" + action + '\'' +
+                ", key=" + key +
+                ", date=" + date +
+                '}';
+    }
+}
@@ -0,0 +1,208 @@
+package common;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Optional compression of large frame payloads.
+ *
+ * Only payloads of at least {@link #getThreshold()} bytes are compressed, so small
+ * requests and responses are sent exactly as before. A compressed payload starts with
+ * {@link #MARKER}, followed by the 4-byte original length and the compressed bytes;
+ * decoding recognises it from the first byte like the other payload encodings.
+ * A payload that does not get smaller is sent uncompressed.
+ *
+ * The codec is the JDK's Deflater at its fastest level. Compression is negotiated in the
+ * HELLO handshake; -Dbistro.compression=off disables it and -Dbistro.compression.threshold
+ * changes the threshold.
+ */
+public final class FrameCompressor {
+
+    /** First byte of a compressed payload. */
+    public static final byte MARKER = (byte) 0xC5;
+
+    /** Name of the codec in the HELLO handshake. */
+    public static final String DEFLATE = "deflate";
+
+    /** Default smallest payload size that is compressed. */
+    public static final int DEFAULT_THRESHOLD = 1024;
+
+    private static final int PREFIX_SIZE = 5;
+
+    private static final int THRESHOLD = Integer.getInteger("bistro.compression.threshold", DEFAULT_THRESHOLD);
+
+    // Deflater and Inflater hold native memory, so they are pooled instead of created per frame
+    private static final ArrayBlockingQueue<Deflater> DEFLATERS = new ArrayBlockingQueue<>(8);
+    private static final ArrayBlockingQueue<Inflater> INFLATERS = new ArrayBlockingQueue<>(8);
+
+    private static final LongAdder compressed = new LongAdder();
+    private static final LongAdder belowThreshold = new LongAdder();
+    private static final LongAdder incompressible = new LongAdder();
+    private static final LongAdder decompressed = new LongAdder();
+    private static final LongAdder bytesBefore = new LongAdder();
+    private static final LongAdder bytesAfter = new LongAdder();
+    private static final LongAdder compressNanos = new LongAdder();
+
+    private FrameCompressor() {}
+
+    /**
+     * Returns the codecs this side can use, preferred first.
+     *
+     * @return list of codec names, empty if compression is disabled
+     */
+    public static List<String> supportedCodecs() {
+        if ("off".equalsIgnoreCase(System.getProperty("bistro.compression"))) {
+            return List.of();
+        }
+        return List.of(DEFLATE);
+    }
+
+    /**
+     * @return smallest payload size in bytes that is compressed
+     */
+    public static int getThreshold() {
+        return THRESHOLD;
+    }
+
+    /**
+     * Compresses the payload of a complete frame if it is large enough and actually shrinks.
+     *
+     * @param frame a frame (length prefix + payload)
+     * @return the compressed frame, or the same array if it was left as is
+     */
+    public static byte[] compress(byte[] frame) {
+        int length = frame.length - WireFormat.HEADER_SIZE;
+        if (length < THRESHOLD) {
+            belowThreshold.increment();
+            return frame;
+        }
+
+        long start = System.nanoTime();
+        Deflater deflater = DEFLATERS.poll();
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.BEST_SPEED);
+        }
+        try {
+            deflater.setInput(frame, WireFormat.HEADER_SIZE, length);
+            deflater.finish();
+
+            // Only a result smaller than the original is useful, so the output never needs to grow
+            int dataStart = WireFormat.HEADER_SIZE + PREFIX_SIZE;
+            byte[] out = new byte[dataStart + length - PREFIX_SIZE];
+            int position = dataStart;
+            while (!deflater.finished() && position < out.length) {
+                position += deflater.deflate(out, position, out.length - position);
+            }
+            if (!deflater.finished()) {
+                incompressible.increment();
+                return frame;
+            }
+
+            ByteBuffer header = ByteBuffer.wrap(out);
+            header.putInt(0, position - WireFormat.HEADER_SIZE);
+            header.put(WireFormat.HEADER_SIZE, MARKER);
+            header.putInt(WireFormat.HEADER_SIZE + 1, length);
+
+            compressed.increment();
+            bytesBefore.add(length);
+            bytesAfter.add(position - WireFormat.HEADER_SIZE);
+            return Arrays.copyOf(out, position);
+        } finally {
+            deflater.reset();
+            if (!DEFLATERS.offer(deflater)) {
+                deflater.end();
+            }
+            compressNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Checks whether a payload was written by {@link #compress(byte[])}.
+     *
+     * @param payload buffer holding the payload
+     * @param offset start of the payload
+     * @param length payload length
+     * @return true if the payload is compressed
+     */
+    public static boolean isCompressed(byte[] payload, int offset, int length) {
+        return length > 0 && payload[offset] == MARKER;
+    }
+
+    /**
+     * Restores the original payload of a compressed payload.
+     *
+     * @param payload buffer holding the compressed payload
+     * @param offset start of the payload
+     * @param length payload length
+     * @return the original payload bytes
+     * @throws IOException if the payload is corrupt
+     */
+    public static byte[] decompress(byte[] payload, int offset, int length) throws IOException {
+        if (length < PREFIX_SIZE) {
+            throw new StreamCorruptedException("Compressed payload too short: " + length);
+        }
+        int originalLength = ByteBuffer.wrap(payload).getInt(offset + 1);
+        WireFormat.checkFrameLength(originalLength);
+
+        Inflater inflater = INFLATERS.poll();
+        if (inflater == null) {
+            inflater = new Inflater();
+        }
+        try {
+            inflater.setInput(payload, offset + PREFIX_SIZE, length - PREFIX_SIZE);
+            byte[] out = new byte[originalLength];
+            int position = 0;
+            while (position < originalLength) {
+                int n = inflater.inflate(out, position, originalLength - position);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                position += n;
+            }
+            if (position != originalLength || !inflater.finished()) {
+                throw new StreamCorruptedException("Compressed payload has the wrong length");
+            }
+            decompressed.increment();
+            return out;
+        } catch (DataFormatException e) {
+            throw new StreamCorruptedException("Invalid compressed payload: " + e.getMessage());
+        } finally {
+            inflater.reset();
+            if (!INFLATERS.offer(inflater)) {
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * Returns the compression counters of this process.
+     *
+     * @return map of counter name to value
+     */
+    public static Map<String, Object> getStats() {
+        long before = bytesBefore.sum();
+        long after = bytesAfter.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("codec", supportedCodecs().isEmpty() ? "off" : DEFLATE);
+        stats.put("thresholdBytes", THRESHOLD);
+        stats.put("framesCompressed", compressed.sum());
+        stats.put("framesBelowThreshold", belowThreshold.sum());
+        stats.put("framesIncompressible", incompressible.sum());
+        stats.put("framesDecompressed", decompressed.sum());
+        stats.put("bytesBeforeCompression", before);
+        stats.put("bytesAfterCompression", after);
+        stats.put("compressionRatio", before == 0 ? "-" : String.format("%.2f", (double) after / before));
+        stats.put("compressMs", String.format("%.1f", compressNanos.sum() / 1_000_000.0));
+        return stats;
+    }
+}
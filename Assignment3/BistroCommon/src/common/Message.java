@@ -6,6 +6,8 @@ import java.io.Serializable;
  * Represents a message that is sent between the client and the server.
  * Each message contains a command string and optional data.
  * It can also represent a successful response or an error.
+ * A request may carry a request ID; the server copies it into the response
+ * so the client can match responses to requests.
  */
 public class Message implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -14,15 +16,24 @@ public class Message implements Serializable {
     private final Object data;
     private final boolean success;
     private final String error;
+    private final long requestId;
 
     /**
      * Creates a new message.
      */
-    private Message(String command, Object data, boolean success, String error) {
+    private Message(String command, Object data, boolean success, String error, long requestId) {
         this.command = command;
         this.data = data;
         this.success = success;
         this.error = error;
+        this.requestId = requestId;
+    }
+
+    /**
+     * Creates a new message without a request ID.
+     */
+    private Message(String command, Object data, boolean success, String error) {
+        this(command, data, success, error, 0L);
     }
 
     /**
@@ -57,6 +68,16 @@ public class Message implements Serializable {
         return new Message(command, null, false, error);
     }
    
+    /**
+     * Returns a copy of this message carrying the given request ID.
+     *
+     * @param requestId the request ID (0 means none)
+     * @return a message with the same content and the given ID
+     */
+    public Message withRequestId(long requestId) {
+        return new Message(command, data, success, error, requestId);
+    }
+
     /**
      * Gets the command string.
      * 
@@ -93,10 +114,20 @@ public class Message implements Serializable {
         return error;
     }
 
+    /**
+     * Gets the request ID used to match a response to its request.
+     * 
+     * @return the request ID, or 0 if the message has none
+     */
+    public long getRequestId() {
+        return requestId;
+    }
+
     @Override
     public String toString() {
         return "Message{" +
                 "command='" + command + '\'' +
+                ", requestId=" + requestId +
                 ", success=" + success +
                 ", error='" + error + '\'' +
                 ", data=" + data +
@@ -0,0 +1,87 @@
+package common;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keys and helpers for paged and streamed list requests.
+ *
+ * List commands (GET_RESERVATIONS, GET_ALL_SUBSCRIBERS, GET_WAITLIST) return the whole
+ * list when sent without data. When the data is a map of options they return one page
+ * instead, as a map with {@link #ITEMS}, {@link #NEXT_CURSOR} and {@link #LAST}.
+ * The cursor of a page is passed back unchanged to get the next one.
+ *
+ * With {@link #STREAM} set, the server sends the rows in several chunks as it reads them.
+ * All chunks carry the request's ID; every chunk except the final one has {@link #LAST} false.
+ */
+public final class Paging {
+
+    // Request options
+
+    /** Page size (default 50, at most 500). */
+    public static final String LIMIT = "limit";
+
+    /** Cursor returned with the previous page; absent for the first page. */
+    public static final String CURSOR = "cursor";
+
+    /** Send the rows in chunks as they are read. Without a limit, all rows are sent. */
+    public static final String STREAM = "stream";
+
+    /** First date to include (LocalDate or yyyy-MM-dd). */
+    public static final String FROM_DATE = "fromDate";
+
+    /** Last date to include (LocalDate or yyyy-MM-dd). */
+    public static final String TO_DATE = "toDate";
+
+    /** Reservation status to list (default ACTIVE, "ALL" for any status). */
+    public static final String STATUS = "status";
+
+    // Response fields
+
+    /** The rows of this page or chunk. */
+    public static final String ITEMS = "items";
+
+    /** Cursor for the next page, or null if there are no more rows. */
+    public static final String NEXT_CURSOR = "nextCursor";
+
+    /** Index of a streamed chunk, starting at 0. */
+    public static final String CHUNK = "chunk";
+
+    /** False if more chunks of the same request follow, true for a page or the final chunk. */
+    public static final String LAST = "last";
+
+    private Paging() {}
+
+    /**
+     * Checks whether a message is a streamed chunk that will be followed by more.
+     *
+     * @param msg a response message
+     * @return true if more chunks of the same request will follow
+     */
+    public static boolean isPartial(Message msg) {
+        return msg.getData() instanceof Map<?, ?> map && Boolean.FALSE.equals(map.get(LAST));
+    }
+
+    /**
+     * Returns the rows of a page or chunk response.
+     *
+     * @param msg a paged or streamed response
+     * @return the rows, or an empty list if the message has none
+     */
+    public static List<?> items(Message msg) {
+        if (msg.getData() instanceof Map<?, ?> map && map.get(ITEMS) instanceof List<?> list) {
+            return list;
+        }
+        return List.of();
+    }
+
+    /**
+     * Returns the cursor of the next page.
+     *
+     * @param msg a paged response
+     * @return the cursor, or null if this was the last page
+     */
+    public static Object nextCursor(Message msg) {
+        return msg.getData() instanceof Map<?, ?> map ? map.get(NEXT_CURSOR) : null;
+    }
+}
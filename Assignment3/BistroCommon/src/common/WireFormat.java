@@ -0,0 +1,209 @@
+package common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Length-prefixed framing used by the non-blocking Bistro transport.
+ * Every frame is a 4-byte big-endian payload length followed by the payload.
+ * The payload holds one object and can be decoded independently of other frames.
+ *
+ * Two payload encodings exist. {@link #PROTOCOL_JAVA} is plain Java serialization and
+ * {@link #PROTOCOL_BINARY} is the compact {@link BinaryCodec}. The client offers the
+ * protocols it supports in a {@link #HELLO} message right after connecting, and both
+ * sides then encode with the version the server picked. Decoding detects the encoding
+ * from the first payload byte, so frames sent before the handshake completes still work.
+ * Starting with -Dbistro.codec=java disables the binary codec on that side.
+ *
+ * The handshake also negotiates {@link FrameCompressor} compression of large payloads.
+ * A compressed payload is recognised from its first byte as well.
+ */
+public final class WireFormat {
+
+    /** Size of the length prefix in bytes. */
+    public static final int HEADER_SIZE = 4;
+
+    /** Largest payload accepted from the network (16 MB). */
+    public static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+
+    /** Java serialization payloads. Always supported. */
+    public static final int PROTOCOL_JAVA = 1;
+
+    /** BinaryCodec payloads. */
+    public static final int PROTOCOL_BINARY = 2;
+
+    /** Handshake command carrying the offered protocols (request) or the chosen one (response). */
+    public static final String HELLO = "HELLO";
+
+    /** HELLO keys: offered protocol list / chosen protocol / offered codec list or chosen codec. */
+    public static final String HELLO_PROTOCOLS = "protocols";
+    public static final String HELLO_PROTOCOL = "protocol";
+    public static final String HELLO_COMPRESSION = "compression";
+
+    private WireFormat() {}
+
+    /**
+     * Returns the protocols this side can speak, preferred first.
+     *
+     * @return list of protocol versions
+     */
+    public static List<Integer> supportedProtocols() {
+        if ("java".equalsIgnoreCase(System.getProperty("bistro.codec"))) {
+            return List.of(PROTOCOL_JAVA);
+        }
+        return List.of(PROTOCOL_BINARY, PROTOCOL_JAVA);
+    }
+
+    /**
+     * Builds the data of the client's HELLO request: the supported protocols
+     * and compression codecs.
+     *
+     * @return HELLO request data
+     */
+    public static Map<String, Object> helloOffer() {
+        Map<String, Object> offer = new HashMap<>();
+        offer.put(HELLO_PROTOCOLS, supportedProtocols());
+        offer.put(HELLO_COMPRESSION, FrameCompressor.supportedCodecs());
+        return offer;
+    }
+
+    /**
+     * Picks the best protocol both sides support.
+     *
+     * @param offered the HELLO data sent by the peer (a {@link #helloOffer()} map,
+     *                or the plain list of protocol versions sent by older clients)
+     * @return the chosen protocol, {@link #PROTOCOL_JAVA} if nothing else matches
+     */
+    public static int negotiate(Object offered) {
+        if (offered instanceof Map<?, ?> map) {
+            offered = map.get(HELLO_PROTOCOLS);
+        }
+        if (offered instanceof List<?> list) {
+            for (Integer protocol : supportedProtocols()) {
+                if (list.contains(protocol)) {
+                    return protocol;
+                }
+            }
+        }
+        return PROTOCOL_JAVA;
+    }
+
+    /**
+     * Picks the compression codec both sides support.
+     *
+     * @param offered the HELLO data sent by the peer
+     * @return the codec name, or null to send everything uncompressed
+     */
+    public static String negotiateCompression(Object offered) {
+        if (offered instanceof Map<?, ?> map && map.get(HELLO_COMPRESSION) instanceof List<?> list) {
+            for (String codec : FrameCompressor.supportedCodecs()) {
+                if (list.contains(codec)) {
+                    return codec;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Encodes an object with the given protocol, compressing large payloads if requested.
+     *
+     * @param msg the object to encode
+     * @param protocol {@link #PROTOCOL_JAVA} or {@link #PROTOCOL_BINARY}
+     * @param compress true if compression was negotiated with the peer
+     * @return the frame bytes
+     * @throws IOException if the object cannot be encoded
+     */
+    public static byte[] encode(Object msg, int protocol, boolean compress) throws IOException {
+        byte[] frame = encode(msg, protocol);
+        return compress ? FrameCompressor.compress(frame) : frame;
+    }
+
+    /**
+     * Encodes an object with the given protocol.
+     *
+     * @param msg the object to encode
+     * @param protocol {@link #PROTOCOL_JAVA} or {@link #PROTOCOL_BINARY}
+     * @return the frame bytes
+     * @throws IOException if the object cannot be encoded
+     */
+    public static byte[] encode(Object msg, int protocol) throws IOException {
+        byte[] frame = protocol == PROTOCOL_BINARY
+                ? BinaryCodec.encode(msg, HEADER_SIZE)
+                : encode(msg);
+        ByteBuffer.wrap(frame).putInt(0, frame.length - HEADER_SIZE);
+        return frame;
+    }
+
+    /**
+     * Encodes an object into a complete frame (length prefix + payload)
+     * using Java serialization.
+     *
+     * @param msg the object to encode
+     * @return the frame bytes
+     * @throws IOException if the object cannot be serialized
+     */
+    public static byte[] encode(Object msg) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        bytes.write(new byte[HEADER_SIZE]);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(msg);
+        }
+
+        byte[] frame = bytes.toByteArray();
+        ByteBuffer.wrap(frame).putInt(0, frame.length - HEADER_SIZE);
+        return frame;
+    }
+
+    /**
+     * Decodes the payload of a single frame, in whichever encoding it was written.
+     *
+     * @param payload buffer holding the payload
+     * @param offset start of the payload in the buffer
+     * @param length payload length
+     * @return the decoded object
+     * @throws IOException if the payload is corrupt, including payloads that make the
+     *         decoders fail with an unchecked exception (bad casts, invalid entity values)
+     * @throws ClassNotFoundException if the payload references an unknown class
+     */
+    public static Object decode(byte[] payload, int offset, int length) throws IOException, ClassNotFoundException {
+        try {
+            if (FrameCompressor.isCompressed(payload, offset, length)) {
+                byte[] original = FrameCompressor.decompress(payload, offset, length);
+                if (FrameCompressor.isCompressed(original, 0, original.length)) {
+                    throw new StreamCorruptedException("Nested compressed payload");
+                }
+                return decode(original, 0, original.length);
+            }
+            if (BinaryCodec.isBinary(payload, offset, length)) {
+                return BinaryCodec.decode(payload, offset, length);
+            }
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(payload, offset, length))) {
+                return in.readObject();
+            }
+        } catch (RuntimeException e) {
+            // A truncated or hostile frame must only drop its sender
+            throw new IOException("Malformed frame", e);
+        }
+    }
+
+    /**
+     * Validates a length prefix read from the network.
+     *
+     * @param length the announced payload length
+     * @throws IOException if the length is negative or too large
+     */
+    public static void checkFrameLength(int length) throws IOException {
+        if (length < 0 || length > MAX_FRAME_SIZE) {
+            throw new StreamCorruptedException("Invalid frame length: " + length);
+        }
+    }
+}
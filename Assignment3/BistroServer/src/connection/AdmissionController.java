@@ -0,0 +1,206 @@
+package connection;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control in front of the database pool.
+ * At most {@link #getBudget()} requests run at once (by default the pool's maximum size);
+ * up to {@link #getMaxQueue()} more wait for a turn in arrival order. Each client may
+ * have at most {@link #getPerClientLimit()} admitted requests at a time. A request that
+ * does not fit is rejected right away, so a burst fails fast instead of piling up
+ * database connections.
+ *
+ * Limits can be changed at startup with -Dbistro.admission.budget=N,
+ * -Dbistro.admission.queue=N and -Dbistro.admission.perClient=N.
+ */
+public class AdmissionController {
+
+    /** Default number of requests that may wait for a turn. */
+    public static final int DEFAULT_MAX_QUEUE = 50;
+
+    /** Default number of admitted requests per client. */
+    public static final int DEFAULT_PER_CLIENT_LIMIT = 8;
+
+    private static final String IN_FLIGHT_KEY = "bistro.inFlight";
+
+    // Bounds of the retry hint sent with a rejection
+    private static final long MIN_RETRY_MS = 50;
+    private static final long MAX_RETRY_MS = 5000;
+
+    private final int budget;
+    private final int maxQueue;
+    private final int perClientLimit;
+
+    private final Semaphore turns;
+    // Admitted requests: running, or waiting for their group permit or a turn
+    private final AtomicInteger admitted = new AtomicInteger();
+    // Admitted requests that got their turn and have not been released yet
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger maxWaiting = new AtomicInteger();
+
+    private final LongAdder admittedCount = new LongAdder();
+    private final LongAdder queuedCount = new LongAdder();
+    private final LongAdder rejectedBusy = new LongAdder();
+    private final LongAdder rejectedClientLimit = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder serviceNanos = new LongAdder();
+
+    /**
+     * Creates an admission controller with the limits from the system properties,
+     * using the pool's maximum size as the default budget.
+     */
+    public AdmissionController() {
+        this(Integer.getInteger("bistro.admission.budget", MySQLConnectionPool.getMaxPoolSize()),
+                Integer.getInteger("bistro.admission.queue", DEFAULT_MAX_QUEUE),
+                Integer.getInteger("bistro.admission.perClient", DEFAULT_PER_CLIENT_LIMIT));
+    }
+
+    /**
+     * Creates an admission controller.
+     *
+     * @param budget number of requests that may run at once
+     * @param maxQueue number of requests that may wait for a turn
+     * @param perClientLimit number of admitted requests per client
+     */
+    public AdmissionController(int budget, int maxQueue, int perClientLimit) {
+        this.budget = Math.max(1, budget);
+        this.maxQueue = Math.max(0, maxQueue);
+        this.perClientLimit = Math.max(1, perClientLimit);
+        this.turns = new Semaphore(this.budget, true);
+    }
+
+    /**
+     * Admits a request if the client and the server both have room for it.
+     * Every admitted request must be finished with {@link #release(ClientSession, long)}.
+     *
+     * @param client the client that sent the request
+     * @return true if the request was admitted, false if it must be rejected
+     */
+    public boolean tryAdmit(ClientSession client) {
+        AtomicInteger inFlight = inFlightOf(client);
+        if (inFlight.incrementAndGet() > perClientLimit) {
+            inFlight.decrementAndGet();
+            rejectedClientLimit.increment();
+            return false;
+        }
+
+        int current;
+        do {
+            current = admitted.get();
+            if (current >= budget + maxQueue) {
+                inFlight.decrementAndGet();
+                rejectedBusy.increment();
+                return false;
+            }
+        } while (!admitted.compareAndSet(current, current + 1));
+
+        admittedCount.increment();
+        return true;
+    }
+
+    /**
+     * Waits until an admitted request may run. Waiting requests get their turn in
+     * arrival order.
+     *
+     * @return the start time in nanoseconds, to pass to {@link #release(ClientSession, long)}
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public long awaitTurn() throws InterruptedException {
+        if (!turns.tryAcquire()) {
+            queuedCount.increment();
+            maxWaiting.accumulateAndGet(waiting.incrementAndGet(), Math::max);
+            try {
+                turns.acquire();
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+        running.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Finishes an admitted request.
+     *
+     * @param client the client that sent the request
+     * @param started the value returned by {@link #awaitTurn()}, or 0 if the request never ran
+     */
+    public void release(ClientSession client, long started) {
+        if (started != 0) {
+            running.decrementAndGet();
+            turns.release();
+            completed.increment();
+            serviceNanos.add(System.nanoTime() - started);
+        }
+        admitted.decrementAndGet();
+        inFlightOf(client).decrementAndGet();
+    }
+
+    /**
+     * Estimates when a rejected client should try again: the time the requests
+     * now waiting need to get through, based on the average request time.
+     *
+     * @return suggested delay in milliseconds
+     */
+    public long retryAfterMillis() {
+        long n = completed.sum();
+        double averageMs = n == 0 ? 0 : serviceNanos.sum() / 1_000_000.0 / n;
+        long estimate = Math.round(averageMs * (waiting.get() + 1) / budget);
+        return Math.max(MIN_RETRY_MS, Math.min(MAX_RETRY_MS, estimate));
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    public int getMaxQueue() {
+        return maxQueue;
+    }
+
+    public int getPerClientLimit() {
+        return perClientLimit;
+    }
+
+    /**
+     * @return number of requests currently waiting for a turn
+     */
+    public int getQueueDepth() {
+        return waiting.get();
+    }
+
+    /**
+     * Returns the admission counters since startup.
+     *
+     * @return map of counter name to value
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("budget", budget);
+        stats.put("maxQueue", maxQueue);
+        stats.put("perClientLimit", perClientLimit);
+        stats.put("running", running.get());
+        stats.put("queueDepth", waiting.get());
+        stats.put("maxQueueDepth", maxWaiting.get());
+        stats.put("admitted", admittedCount.sum());
+        stats.put("queued", queuedCount.sum());
+        stats.put("rejectedBusy", rejectedBusy.sum());
+        stats.put("rejectedClientLimit", rejectedClientLimit.sum());
+        return stats;
+    }
+
+    private AtomicInteger inFlightOf(ClientSession client) {
+        synchronized (client) {
+            AtomicInteger inFlight = (AtomicInteger) client.getInfo(IN_FLIGHT_KEY);
+            if (inFlight == null) {
+                inFlight = new AtomicInteger();
+                client.setInfo(IN_FLIGHT_KEY, inFlight);
+            }
+            return inFlight;
+        }
+    }
+}
@@ -1,22 +1,69 @@
 package connection;
 
-import ocsf.server.AbstractServer;
-import ocsf.server.ConnectionToClient;
 import common.ChatIF;
+import common.FrameCompressor;
 import common.Message;
+import common.WireFormat;
 import data_access.*;
+import entities.User;
+import entities.User.UserRole;
 
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.function.IntConsumer;
 
+import static connection.CommandGroup.AVAILABILITY;
+import static connection.CommandGroup.READ;
+import static connection.CommandGroup.REPORT;
+import static connection.CommandGroup.WRITE;
+
 /**
  * The BistroServer class represents the server side of the Bistro system.
- * It receives messages from clients and routes them to appropriate Repository handlers.
- * Extends OCSF AbstractServer for network communication.
+ * It receives messages from clients and routes them to appropriate Repository handlers
+ * through a {@link CommandRegistry}.
+ * Network communication is delegated to a {@link ServerTransport}: the NIO selector
+ * transport by default, or the original OCSF thread-per-client transport when
+ * started with -Dbistro.transport=ocsf.
  */
-public class BistroServer extends AbstractServer {
+public class BistroServer {
 
     public static final int DEFAULT_PORT = 5555;
 
+    /** System property selecting the network transport. */
+    public static final String TRANSPORT_PROPERTY = "bistro.transport";
+    public static final String TRANSPORT_NIO = "nio";
+    public static final String TRANSPORT_OCSF = "ocsf";
+
+    /** Session info key holding the role of the logged-in user. */
+    static final String ROLE_KEY = "bistro.role";
+
+    /** Command that carries several sub-requests. */
+    public static final String BATCH = "BATCH";
+
+    /** Commands registering interest in change events. */
+    public static final String SUBSCRIBE = "SUBSCRIBE";
+    public static final String UNSUBSCRIBE = "UNSUBSCRIBE";
+
+    /** Command that ends the session's login. */
+    public static final String LOGOUT = "LOGOUT";
+
+    /** Largest number of sub-requests accepted in one BATCH. */
+    private static final int MAX_BATCH_SIZE = 32;
+
+    /** Roles allowed to run staff-only commands. */
+    private static final UserRole[] STAFF = { UserRole.REPRESENTATIVE, UserRole.MANAGER };
+
+    private final int port;
+    private final String transportName;
+
+    // Created by listen(), once the server is fully constructed
+    private volatile ServerTransport transport;
+
     // Repository instances
     private final UserRepository userRepository;
     private final ReservationRepository reservationRepository;
@@ -26,6 +73,15 @@ public class BistroServer extends AbstractServer {
     private final OpeningHoursRepository openingHoursRepository;
     private ReportRepository reportRepository = new ReportRepository();
 
+    // All commands with their handlers, metadata and metrics
+    private final CommandRegistry commands = new CommandRegistry();
+
+    // Runs requests on virtual threads and keeps responses in order per client
+    private final RequestDispatcher dispatcher = new RequestDispatcher(this::safeSend);
+
+    // Pushes change events to subscribed clients
+    private final ChangeEventBus events = ChangeEventBus.getInstance();
+
     // UI logger (Server GUI or console)
     private ChatIF ui;
 
@@ -34,19 +90,33 @@ public class BistroServer extends AbstractServer {
     private IntConsumer clientsCountConsumer;
 
     /**
-     * Creates a new BistroServer.
-     * Initializes all Repository instances.
+     * Creates a new BistroServer using the transport selected by the
+     * bistro.transport system property (defaults to NIO).
      * 
      * @param port the port number to listen on
      */
     public BistroServer(int port) {
-        super(port);
+        this(port, System.getProperty(TRANSPORT_PROPERTY, TRANSPORT_NIO));
+    }
+
+    /**
+     * Creates a new BistroServer.
+     * Initializes all Repository instances and registers their commands.
+     * 
+     * @param port the port number to listen on
+     * @param transportName "nio" or "ocsf"
+     */
+    public BistroServer(int port, String transportName) {
+        this.port = port;
+        this.transportName = transportName;
         this.userRepository = new UserRepository();
         this.reservationRepository = new ReservationRepository();
         this.waitlistRepository = new WaitlistRepository();
         this.tableRepository = new TableRepository();
         this.billRepository = new BillRepository();
         this.openingHoursRepository = new OpeningHoursRepository();
+        registerCommands();
+        events.setSender(this::safeSend);
     }
 
     /**
@@ -60,6 +130,47 @@ public class BistroServer extends AbstractServer {
         this.clientsCountConsumer = clientsCountConsumer;
     }
 
+    /**
+     * Starts listening for client connections.
+     * 
+     * @throws IOException if the port cannot be opened
+     */
+    public synchronized void listen() throws IOException {
+        if (transport == null) {
+            transport = TRANSPORT_OCSF.equalsIgnoreCase(transportName)
+                    ? new OcsfServerTransport(port, this)
+                    : new NioServerTransport(port, this);
+        }
+        transport.listen();
+    }
+
+    /**
+     * Stops listening and disconnects all clients.
+     * 
+     * @throws IOException if closing the server socket fails
+     */
+    public void close() throws IOException {
+        ServerTransport t = transport;
+        if (t != null) {
+            t.close();
+        }
+    }
+
+    /**
+     * @return true if the server is accepting connections
+     */
+    public boolean isListening() {
+        ServerTransport t = transport;
+        return t != null && t.isListening();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return port;
+    }
+
     /**
      * Logs a message to the UI or console.
      * 
@@ -69,25 +180,56 @@ public class BistroServer extends AbstractServer {
         if (ui != null) {
             ui.display(message);
         } else {
-            System.out.println(message);
+            ServerLog.info(message);
         }
     }
 
-    @Override
     protected void serverStarted() {
         log("[Server] BistroServer started and listening on port " + getPort());
+        log("[Server] Transport: " + transport);
+        MySQLConnectionPool.getInstance().prefill();
         log("[Server] Connection pool initialized.");
+        loadCalendarAndTables();
+    }
+
+    /**
+     * Loads the opening hours calendar and the table catalog. If the database is not
+     * reachable yet, they are loaded by the first request that needs them.
+     */
+    private void loadCalendarAndTables() {
+        MySQLConnectionPool pool = MySQLConnectionPool.getInstance();
+        PooledConnection pConn = pool.getConnection();
+        if (pConn == null) {
+            log("[Server] Opening hours and tables not loaded: database connection failed");
+            return;
+        }
+        try {
+            OpeningHoursCalendar.getInstance().reload(pConn.getConnection());
+            TableCatalog.reload(pConn.getConnection());
+        } catch (SQLException e) {
+            log("[Server] Opening hours and tables not loaded: " + e.getMessage());
+        } finally {
+            pool.releaseConnection(pConn);
+        }
     }
 
-    @Override
     protected void serverStopped() {
         log("[Server] BistroServer stopped.");
+        logCommandStats();
+        log("[Server] Frame compression: " + FrameCompressor.getStats());
+        log("[Server] Admission: " + dispatcher.getAdmission().getStats());
+        log("[Server] Connection pool: " + MySQLConnectionPool.getInstance().getSummary());
+        MySQLConnectionPool readPool = MySQLConnectionPool.peekReadInstance();
+        if (readPool != null) {
+            log("[Server] Read pool: " + readPool.getSummary());
+        }
+        log("[Server] Change events published: " + events.getPublishedCount()
+                + " | messages pushed: " + events.getDeliveredCount());
         MySQLConnectionPool.getInstance().shutdown();
         log("[Server] Connection pool shutdown complete.");
     }
 
-    @Override
-    protected void clientConnected(ConnectionToClient client) {
+    protected synchronized void clientConnected(ClientSession client) {
         clientsCount++;
         if (clientsCountConsumer != null) {
             clientsCountConsumer.accept(clientsCount);
@@ -101,8 +243,8 @@ public class BistroServer extends AbstractServer {
         }
     }
 
-    @Override
-    protected void clientDisconnected(ConnectionToClient client) {
+    protected synchronized void clientDisconnected(ClientSession client) {
+        events.unsubscribeAll(client);
         clientsCount = Math.max(0, clientsCount - 1);
         if (clientsCountConsumer != null) {
             clientsCountConsumer.accept(clientsCount);
@@ -110,220 +252,418 @@ public class BistroServer extends AbstractServer {
         log("[Server] Client disconnected. Active clients: " + clientsCount);
     }
 
-    @Override
-    protected void clientException(ConnectionToClient client, Throwable exception) {
+    protected void clientException(ClientSession client, Throwable exception) {
         log("[Server] Client exception: " + exception.getMessage());
         clientDisconnected(client);
     }
 
-    @Override
-    protected void handleMessageFromClient(Object msg, ConnectionToClient client) {
+    protected void handleMessageFromClient(Object msg, ClientSession client) {
         if (!(msg instanceof Message)) {
             log("[Server] Invalid message type received");
-            safeSend(client, Message.fail("UNKNOWN", "Invalid message type"));
+            dispatcher.dispatch(client, CommandGroup.READ,
+                    () -> Message.fail("UNKNOWN", "Invalid message type"),
+                    () -> Message.fail("UNKNOWN", "Server error"));
             return;
         }
 
         Message request = (Message) msg;
+        if (WireFormat.HELLO.equals(request.getCommand())) {
+            // Protocol handshake: the reply is already encoded with the chosen protocol
+            dispatcher.dispatch(client, CommandGroup.READ,
+                    () -> correlate(request, hello(request, client)),
+                    () -> serverError(request));
+            return;
+        }
+
         log("[Server] Request received: " + request.getCommand());
 
-        try {
-            routeRequest(request, client);
-        } catch (Exception e) {
-            log("[Server] Error handling request: " + e.getMessage());
-            e.printStackTrace();
-            safeSend(client, Message.fail(request.getCommand(), "Server error: " + e.getMessage()));
+        CommandRegistry.Command command = commands.lookup(request.getCommand());
+        if (command == null) {
+            log("[Server] Unknown command: " + request.getCommand());
+            dispatcher.dispatch(client, CommandGroup.READ,
+                    () -> correlate(request, Message.fail(request.getCommand(), "Unknown command")),
+                    () -> serverError(request));
+            return;
         }
+
+        CommandGroup costClass = command.getName().equals(BATCH) ? batchCostClass(request) : command.getCostClass();
+        dispatcher.dispatch(client, costClass,
+                () -> correlate(request, execute(command, request, client)),
+                () -> serverError(request),
+                retryMillis -> correlate(request, busy(request.getCommand(), retryMillis)));
     }
 
     /**
-     * Routes incoming requests to appropriate Repository handlers.
+     * Builds the reply to a request that was not admitted because the server
+     * or the client already has too many requests in flight.
      * 
+     * @param command the rejected command
+     * @param retryMillis suggested delay before retrying
+     * @return the failure response
+     */
+    private static Message busy(String command, long retryMillis) {
+        return Message.fail(command, "Server busy, retry in " + retryMillis + " ms");
+    }
+
+    /**
+     * Builds the reply to a request that ended without a response, e.g. because
+     * it was interrupted or failed unexpectedly.
+     * 
+     * @param request the client request
+     * @return the failure response carrying the request's ID
+     */
+    private static Message serverError(Message request) {
+        return correlate(request, Message.fail(request.getCommand(), "Server error"));
+    }
+
+    /**
+     * Negotiates the wire protocol and frame compression with a client.
+     * Clients that offer a plain protocol list get the chosen protocol back as an
+     * Integer; clients that offer a map also get the chosen compression codec.
+     * 
+     * @param request the HELLO message
+     * @param client the client connection
+     * @return the HELLO response
+     */
+    private Message hello(Message request, ClientSession client) {
+        Object offered = request.getData();
+        int protocol = WireFormat.negotiate(offered);
+        String compression = WireFormat.negotiateCompression(offered);
+
+        client.setInfo(ClientSession.PROTOCOL_KEY, protocol);
+        client.setInfo(ClientSession.COMPRESSION_KEY, compression);
+
+        if (!(offered instanceof Map<?, ?>)) {
+            return Message.ok(WireFormat.HELLO, protocol);
+        }
+        Map<String, Object> chosen = new HashMap<>();
+        chosen.put(WireFormat.HELLO_PROTOCOL, protocol);
+        chosen.put(WireFormat.HELLO_COMPRESSION, compression);
+        return Message.ok(WireFormat.HELLO, chosen);
+    }
+
+    /**
+     * Runs a registered command for a client.
+     * Checks the caller's role, and remembers the role after a successful login.
+     * Every login attempt first forgets the previous role, so a failed login leaves
+     * the session without staff rights.
+     * 
+     * @param command the registered command
      * @param request the message from client
      * @param client the client connection
+     * @return the response to send back
      */
-    private void routeRequest(Message request, ConnectionToClient client) {
-        String command = request.getCommand();
-        Message response;
-
-        switch (command) {
-            // User Management
-            case "LOGIN" -> {
-                response = userRepository.login(request);
-                safeSend(client, response);
-            }
-            case "LOGIN_BY_SUBSCRIBER_NUMBER" -> {
-                response = userRepository.loginBySubscriberNumber(request);
-                safeSend(client, response);
-            }
-            case "REGISTER_SUBSCRIBER" -> {
-                response = userRepository.registerSubscriber(request);
-                safeSend(client, response);
-            }
-            case "GET_USER" -> {
-                response = userRepository.getUser(request);
-                safeSend(client, response);
-            }
-            case "UPDATE_USER" -> {
-                response = userRepository.updateUser(request);
-                safeSend(client, response);
-            }
-            case "GET_ALL_SUBSCRIBERS" -> {
-                response = userRepository.getAllSubscribers(request);
-                safeSend(client, response);
-            }
-            case "GET_SUBSCRIBER_BY_NUMBER" -> {
-                response = userRepository.getSubscriberByNumber(request);
-                safeSend(client, response);
-            }
+    private Message execute(CommandRegistry.Command command, Message request, ClientSession client) {
+        if (!command.isAllowed((UserRole) client.getInfo(ROLE_KEY))) {
+            log("[Server] Access denied: " + command.getName());
+            return Message.fail(command.getName(), "Access denied");
+        }
 
-            // Reservation Management
-            case "GET_AVAILABLE_SLOTS" -> {
-                response = reservationRepository.getAvailableSlots(request);
-                safeSend(client, response);
-            }
-            case "CREATE_RESERVATION" -> {
-                response = reservationRepository.createReservation(request);
-                safeSend(client, response);
-            }
-            case "CANCEL_RESERVATION" -> {
-                response = reservationRepository.cancelReservation(request);
-                safeSend(client, response);
-            }
-            case "GET_RESERVATIONS" -> {
-                response = reservationRepository.getAllReservations(request);
-                safeSend(client, response);
-            }
-            case "GET_USER_RESERVATIONS" -> {
-                response = reservationRepository.getUserReservations(request);
-                safeSend(client, response);
-            }
-            case "GET_ALTERNATIVE_SLOTS" -> {
-                response = reservationRepository.getAlternativeSlots(request);
-                safeSend(client, response);
-            }
-            case "LOST_CODE" -> {
-                response = reservationRepository.retrieveLostCode(request);
-                safeSend(client, response);
-            }
-            case "SEAT_BY_CODE" -> {
-            	response = reservationRepository.seatByCode(request);
-                safeSend(client, response);
-            }
-            case "GET_RESERVATIONS_BY_CARD" -> {
-                response = reservationRepository.getReservationsByMembershipCard(request);
-                safeSend(client, response);
-            }
+        boolean login = command.getName().equals("LOGIN") || command.getName().equals("LOGIN_BY_SUBSCRIBER_NUMBER");
+        if (login) {
+            client.setInfo(ROLE_KEY, null);
+        }
 
-            // Waitlist Management
-            case "JOIN_WAITLIST" -> {
-                response = waitlistRepository.joinWaitlist(request);
-                safeSend(client, response);
-            }
-            case "LEAVE_WAITLIST" -> {
-                response = waitlistRepository.leaveWaitlist(request);
-                safeSend(client, response);
-            }
-            case "GET_WAITLIST" -> {
-                response = waitlistRepository.getWaitlist(request);
-                safeSend(client, response);
-            }
-            case "LOST_CODE_WAITLIST" -> {
-                response = waitlistRepository.retrieveLostCode(request);
-                safeSend(client, response);
+        try {
+            Message response = command.execute(request, client);
+            if (login && response != null && response.isSuccess() && response.getData() instanceof User user) {
+                client.setInfo(ROLE_KEY, user.getUserRole());
             }
+            return response;
+        } catch (Exception e) {
+            ServerLog.error("[Server] Error handling request: " + e.getMessage(), e);
+            return Message.fail(command.getName(), "Server error: " + e.getMessage());
+        }
+    }
 
-            // Table Management
-            case "GET_TABLES" -> {
-                response = tableRepository.getAllTables(request);
-                safeSend(client, response);
-            }
-            case "GET_AVAILABLE_TABLES" -> {
-                response = tableRepository.getAvailableTables(request);
-                safeSend(client, response);
-            }
-            case "ADD_TABLE" -> {
-                response = tableRepository.addTable(request);
-                safeSend(client, response);
-            }
-            case "UPDATE_TABLE" -> {
-                response = tableRepository.updateTable(request);
-                safeSend(client, response);
-            }
-            case "DELETE_TABLE" -> {
-                response = tableRepository.deleteTable(request);
-                safeSend(client, response);
-            }
-            case "OCCUPY_TABLE" -> {
-                response = tableRepository.occupyTable(request);
-                safeSend(client, response);
-            }
-            case "RELEASE_TABLE" -> {
-                response = tableRepository.releaseTable(request);
-                safeSend(client, response);
-            }
-            case "GET_CURRENT_DINERS" -> {
-                response = tableRepository.getCurrentDiners(request);
-                safeSend(client, response);
-            }
+    /**
+     * Copies the request ID of a request into its response.
+     * 
+     * @param request the client request
+     * @param response the response produced for it
+     * @return the response carrying the request's ID
+     */
+    private static Message correlate(Message request, Message response) {
+        if (request.getRequestId() == 0 || response == null) {
+            return response;
+        }
+        return response.withRequestId(request.getRequestId());
+    }
 
-            // Bill Management
-            case "CREATE_BILL" -> {
-                response = billRepository.createBill(request);
-                safeSend(client, response);
-            }
-            case "GET_BILL" -> {
-                response = billRepository.getBill(request);
-                safeSend(client, response);
-            }
-            case "PAY_BILL" -> {
-                response = billRepository.payBill(request);
-                safeSend(client, response);
-            }
+    /**
+     * Registers all server commands with their handlers and metadata.
+     */
+    private void registerCommands() {
+        CommandRegistry r = commands;
 
-            // Opening Hours Management
-            case "GET_OPENING_HOURS" -> {
-                response = openingHoursRepository.getOpeningHours(request);
-                safeSend(client, response);
-            }
-            case "UPDATE_OPENING_HOURS" -> {
-                response = openingHoursRepository.updateOpeningHours(request);
-                safeSend(client, response);
-            }
-            case "GET_SPECIAL_HOURS" -> {
-                response = openingHoursRepository.getSpecialHours(request);
-                safeSend(client, response);
+        // User Management
+        r.register("LOGIN", READ, true, userRepository::login);
+        r.register("LOGIN_BY_SUBSCRIBER_NUMBER", READ, true, userRepository::loginBySubscriberNumber);
+        r.register("REGISTER_SUBSCRIBER", WRITE, false, userRepository::registerSubscriber, STAFF);
+        r.register("GET_USER", READ, true, userRepository::getUser);
+        r.register("UPDATE_USER", WRITE, false, userRepository::updateUser);
+        r.register("GET_ALL_SUBSCRIBERS", READ, true, userRepository::getAllSubscribers, STAFF);
+        r.register("GET_SUBSCRIBER_BY_NUMBER", READ, true, userRepository::getSubscriberByNumber);
+
+        // Reservation Management
+        r.register("GET_AVAILABLE_SLOTS", AVAILABILITY, true, reservationRepository::getAvailableSlots);
+        r.register("CREATE_RESERVATION", WRITE, false, reservationRepository::createReservation);
+        r.register("CANCEL_RESERVATION", WRITE, false, reservationRepository::cancelReservation);
+        r.register("GET_RESERVATIONS", READ, true, reservationRepository::getAllReservations);
+        r.register("GET_USER_RESERVATIONS", READ, true, reservationRepository::getUserReservations);
+        r.register("GET_ALTERNATIVE_SLOTS", AVAILABILITY, true, reservationRepository::getAlternativeSlots);
+        r.register("GET_AVAILABILITY_CALENDAR", AVAILABILITY, true, reservationRepository::getAvailabilityCalendar);
+        r.register("LOST_CODE", READ, true, reservationRepository::retrieveLostCode);
+        r.register("SEAT_BY_CODE", WRITE, false, reservationRepository::seatByCode);
+        r.register("GET_RESERVATIONS_BY_CARD", READ, true, reservationRepository::getReservationsByMembershipCard);
+
+        // Waitlist Management
+        r.register("JOIN_WAITLIST", WRITE, false, waitlistRepository::joinWaitlist);
+        r.register("LEAVE_WAITLIST", WRITE, false, waitlistRepository::leaveWaitlist);
+        r.register("GET_WAITLIST", READ, true, waitlistRepository::getWaitlist);
+        r.register("LOST_CODE_WAITLIST", READ, true, waitlistRepository::retrieveLostCode);
+
+        // Table Management
+        r.register("GET_TABLES", READ, true, tableRepository::getAllTables);
+        r.register("GET_AVAILABLE_TABLES", READ, true, tableRepository::getAvailableTables);
+        r.register("ADD_TABLE", WRITE, false, tableRepository::addTable, STAFF);
+        r.register("UPDATE_TABLE", WRITE, false, tableRepository::updateTable, STAFF);
+        r.register("DELETE_TABLE", WRITE, false, tableRepository::deleteTable, STAFF);
+        r.register("OCCUPY_TABLE", WRITE, false, tableRepository::occupyTable);
+        r.register("RELEASE_TABLE", WRITE, false, tableRepository::releaseTable);
+        r.register("GET_CURRENT_DINERS", READ, true, tableRepository::getCurrentDiners);
+
+        // Bill Management
+        r.register("CREATE_BILL", WRITE, false, billRepository::createBill);
+        r.register("GET_BILL", READ, true, billRepository::getBill);
+        r.register("PAY_BILL", WRITE, false, billRepository::payBill);
+
+        // Opening Hours Management
+        r.register("GET_OPENING_HOURS", READ, true, openingHoursRepository::getOpeningHours);
+        r.register("UPDATE_OPENING_HOURS", WRITE, false, openingHoursRepository::updateOpeningHours, STAFF);
+        r.register("GET_SPECIAL_HOURS", READ, true, openingHoursRepository::getSpecialHours);
+        r.register("ADD_SPECIAL_HOURS", WRITE, false, openingHoursRepository::addSpecialHours, STAFF);
+        r.register("DELETE_SPECIAL_HOURS", WRITE, false, openingHoursRepository::deleteSpecialHours, STAFF);
+
+        // Report Management
+        r.register("GET_TIME_REPORT", REPORT, true, reportRepository::getTimeReport, UserRole.MANAGER);
+        r.register("GET_SUBSCRIBERS_REPORT", REPORT, true, reportRepository::getSubscribersReport, UserRole.MANAGER);
+
+        // Terminal Check Availability (immediate seating or join waitlist)
+        r.register("CHECK_AVAILABILITY_TERMINAL", WRITE, false, waitlistRepository::checkAvailabilityTerminal);
+
+        // Server Monitoring
+        r.register("GET_COMMAND_STATS", READ, true, this::getCommandStats, STAFF);
+        r.register("GET_COMPRESSION_STATS", READ, true,
+                request -> Message.ok("GET_COMPRESSION_STATS", FrameCompressor.getStats()), STAFF);
+        r.register("GET_ADMISSION_STATS", READ, true,
+                request -> Message.ok("GET_ADMISSION_STATS", dispatcher.getAdmission().getStats()), STAFF);
+        r.register("GET_POOL_STATS", READ, true, this::getPoolStats, STAFF);
+
+        // Several requests in one round trip
+        r.registerSessionCommand(BATCH, READ, false, this::executeBatch);
+
+        // Change events pushed to the client
+        r.registerSessionCommand(SUBSCRIBE, READ, true, this::subscribe);
+        r.registerSessionCommand(UNSUBSCRIBE, READ, true, this::unsubscribe);
+
+        // Ends the login of the session, e.g. when a terminal returns to the welcome screen
+        r.registerSessionCommand(LOGOUT, READ, true, this::logout);
+    }
+
+    /**
+     * Forgets the role of the logged-in user and cancels the client's change
+     * event subscriptions, so the next user of the connection starts without rights.
+     * 
+     * @param request the LOGOUT message
+     * @param client the client connection
+     * @return success Message
+     */
+    private Message logout(Message request, ClientSession client) {
+        client.setInfo(ROLE_KEY, null);
+        events.unsubscribeAll(client);
+        return Message.ok(LOGOUT, null);
+    }
+
+    /**
+     * Subscribes the client to change event topics.
+     * The data is a list of topic names; no data subscribes to all topics.
+     * 
+     * @param request the SUBSCRIBE message
+     * @param client the client connection
+     * @return Message with the client's subscribed topics
+     */
+    private Message subscribe(Message request, ClientSession client) {
+        List<?> topics = request.getData() instanceof List<?> list ? list : ChangeEventBus.TOPICS;
+        for (Object topic : topics) {
+            if (!ChangeEventBus.TOPICS.contains(topic)) {
+                return Message.fail(SUBSCRIBE, "Unknown topic: " + topic);
             }
-            case "ADD_SPECIAL_HOURS" -> {
-                response = openingHoursRepository.addSpecialHours(request);
-                safeSend(client, response);
+        }
+        for (Object topic : topics) {
+            events.subscribe(client, (String) topic);
+        }
+        return Message.ok(SUBSCRIBE, new ArrayList<>(events.topicsOf(client)));
+    }
+
+    /**
+     * Removes the client from change event topics.
+     * The data is a list of topic names; no data removes all subscriptions.
+     * 
+     * @param request the UNSUBSCRIBE message
+     * @param client the client connection
+     * @return Message with the topics the client is still subscribed to
+     */
+    private Message unsubscribe(Message request, ClientSession client) {
+        if (request.getData() instanceof List<?> topics) {
+            for (Object topic : topics) {
+                events.unsubscribe(client, topic instanceof String s ? s : null);
             }
-            case "DELETE_SPECIAL_HOURS" -> {
-                response = openingHoursRepository.deleteSpecialHours(request);
-                safeSend(client, response);
+        } else {
+            events.unsubscribeAll(client);
+        }
+        return Message.ok(UNSUBSCRIBE, new ArrayList<>(events.topicsOf(client)));
+    }
+
+    /**
+     * Executes the sub-requests of a BATCH message in order and returns one
+     * composite response whose data is the list of sub-responses.
+     * The data is either a list of Messages, or a map with "requests" (the list),
+     * "singleConnection" (run all on one pooled connection) and "snapshot" (also
+     * read from one consistent snapshot; only allowed for read-only commands).
+     * 
+     * @param request the BATCH message
+     * @param client the client connection
+     * @return composite response
+     */
+    private Message executeBatch(Message request, ClientSession client) {
+        List<?> subRequests;
+        boolean singleConnection = false;
+        boolean snapshot = false;
+
+        if (request.getData() instanceof List<?> list) {
+            subRequests = list;
+        } else if (request.getData() instanceof Map<?, ?> map && map.get("requests") instanceof List<?> list) {
+            subRequests = list;
+            singleConnection = Boolean.TRUE.equals(map.get("singleConnection"));
+            snapshot = Boolean.TRUE.equals(map.get("snapshot"));
+        } else {
+            return Message.fail(BATCH, "Invalid batch data");
+        }
+
+        if (subRequests.isEmpty() || subRequests.size() > MAX_BATCH_SIZE) {
+            return Message.fail(BATCH, "Batch must contain 1-" + MAX_BATCH_SIZE + " requests");
+        }
+
+        // Resolve all sub-commands first, so a bad batch fails before touching the database
+        List<CommandRegistry.Command> resolved = new ArrayList<>();
+        for (Object o : subRequests) {
+            if (!(o instanceof Message sub)) {
+                return Message.fail(BATCH, "Batch may only contain messages");
             }
-            
-            //report Management
-            case "GET_TIME_REPORT" -> {
-                response = reportRepository.getTimeReport(request);
-                safeSend(client, response);
+            CommandRegistry.Command command = commands.lookup(sub.getCommand());
+            if (command != null && command.getName().equals(BATCH)) {
+                return Message.fail(BATCH, "Batches cannot be nested");
             }
-            case "GET_SUBSCRIBERS_REPORT" -> {
-                response = reportRepository.getSubscribersReport(request);
-                safeSend(client, response);
+            if (snapshot && (command == null || !command.isReadOnly())) {
+                return Message.fail(BATCH, "Snapshot batch contains non read-only command: " + sub.getCommand());
             }
-            
-            // Terminal Check Availability (immediate seating or join waitlist)
-            case "CHECK_AVAILABILITY_TERMINAL" -> {
-                response = waitlistRepository.checkAvailabilityTerminal(request);
-                safeSend(client, response);
+            resolved.add(command);
+        }
+
+        MySQLConnectionPool pool = MySQLConnectionPool.getInstance();
+        boolean pinned = singleConnection || snapshot;
+        if (pinned && pool.pinConnection(snapshot) == null) {
+            return Message.fail(BATCH, "Database connection failed");
+        }
+
+        // Sub-requests answer inside the composite response, never as separate chunks
+        Consumer<Object> partials = RequestDispatcher.suspendPartials();
+        try {
+            List<Message> responses = new ArrayList<>();
+            for (int i = 0; i < resolved.size(); i++) {
+                Message sub = (Message) subRequests.get(i);
+                CommandRegistry.Command command = resolved.get(i);
+                Message response = command == null
+                        ? Message.fail(sub.getCommand(), "Unknown command")
+                        : execute(command, sub, client);
+                responses.add(correlate(sub, response));
+            }
+            return Message.ok(BATCH, responses);
+        } finally {
+            RequestDispatcher.resumePartials(partials);
+            if (pinned) {
+                pool.unpinConnection();
             }
+        }
+    }
 
-            default -> {
-                log("[Server] Unknown command: " + command);
-                safeSend(client, Message.fail(command, "Unknown command"));
+    /**
+     * A batch waits for a permit of its most expensive sub-command's cost class.
+     */
+    private CommandGroup batchCostClass(Message request) {
+        Object data = request.getData();
+        if (data instanceof Map<?, ?> map) {
+            data = map.get("requests");
+        }
+
+        CommandGroup costClass = READ;
+        if (data instanceof List<?> list) {
+            for (Object o : list) {
+                CommandRegistry.Command command = o instanceof Message sub ? commands.lookup(sub.getCommand()) : null;
+                if (command != null && command.getCostClass().ordinal() > costClass.ordinal()) {
+                    costClass = command.getCostClass();
+                }
             }
         }
+        return costClass;
+    }
+
+    /**
+     * Returns per-command call counts and latencies, busiest commands first.
+     * 
+     * @param request the message from client
+     * @return list of rows (command, calls, failures, totalMs, avgMs, p95Ms, maxMs)
+     */
+    private Message getCommandStats(Message request) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (CommandMetrics m : commands.metricsByTotalTime()) {
+            rows.add(m.toRow());
+        }
+        return Message.ok("GET_COMMAND_STATS", rows);
+    }
+
+    /**
+     * Returns the statistics of the primary pool, with those of the read pool under "readPool"
+     * (only once the read pool is in use), the transaction counters under "transactions" and the availability cache counters
+     * under "availabilityCache".
+     * 
+     * @param request the message from client
+     * @return Message with the pool statistics
+     */
+    private Message getPoolStats(Message request) {
+        Map<String, Object> stats = MySQLConnectionPool.getInstance().getStats();
+        MySQLConnectionPool readPool = MySQLConnectionPool.peekReadInstance();
+        if (readPool != null) {
+            stats.put("readPool", readPool.getStats());
+        }
+        stats.put("transactions", TransactionTemplate.getStats());
+        stats.put("availabilityCache", AvailabilityCache.getInstance().getStats());
+        return Message.ok("GET_POOL_STATS", stats);
+    }
+
+    /**
+     * Logs the per-command metrics, busiest commands first.
+     */
+    private void logCommandStats() {
+        List<CommandMetrics> metrics = commands.metricsByTotalTime();
+        if (metrics.isEmpty()) {
+            return;
+        }
+        log("[Server] Command statistics:");
+        for (CommandMetrics m : metrics) {
+            log("[Server]   " + m);
+        }
     }
 
     /**
@@ -333,7 +673,7 @@ public class BistroServer extends AbstractServer {
      * @param client the client connection
      * @param response the response to send
      */
-    private void safeSend(ConnectionToClient client, Object response) {
+    private void safeSend(ClientSession client, Object response) {
         try {
             client.sendToClient(response);
         } catch (Exception e) {
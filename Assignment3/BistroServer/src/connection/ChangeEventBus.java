@@ -0,0 +1,185 @@
+package connection;
+
+import common.ChangeEvent;
+import common.Message;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Singleton that pushes {@link ChangeEvent}s to subscribed clients.
+ * Repositories publish an event after a change was written; clients subscribe
+ * to topics with the SUBSCRIBE command. Events are sent from a single background
+ * thread, so publishing never waits for the network and every client receives
+ * events in the order they were published.
+ */
+public class ChangeEventBus {
+
+    /** Topics a client may subscribe to. */
+    public static final List<String> TOPICS = List.of(
+            ChangeEvent.TABLES, ChangeEvent.WAITLIST, ChangeEvent.RESERVATIONS, ChangeEvent.TODAY_RESERVATIONS);
+
+    private static final ChangeEventBus instance = new ChangeEventBus();
+
+    // Topic -> subscribed sessions
+    private final Map<String, Set<ClientSession>> subscribers = new ConcurrentHashMap<>();
+
+    private final ExecutorService deliveryThread = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "bistro-events");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+
+    private volatile BiConsumer<ClientSession, Object> sender;
+
+    private ChangeEventBus() {
+        for (String topic : TOPICS) {
+            subscribers.put(topic, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    /**
+     * @return the singleton instance
+     */
+    public static ChangeEventBus getInstance() {
+        return instance;
+    }
+
+    /**
+     * Sets how events are sent to a client. Until a sender is set, events are dropped.
+     *
+     * @param sender sends a message to a client
+     */
+    public void setSender(BiConsumer<ClientSession, Object> sender) {
+        this.sender = sender;
+    }
+
+    /**
+     * Subscribes a client to a topic.
+     *
+     * @param client the client session
+     * @param topic one of {@link #TOPICS}
+     * @return false if the topic is unknown
+     */
+    public boolean subscribe(ClientSession client, String topic) {
+        Set<ClientSession> sessions = topic == null ? null : subscribers.get(topic);
+        if (sessions == null) {
+            return false;
+        }
+        sessions.add(client);
+        return true;
+    }
+
+    /**
+     * Removes a client from a topic.
+     *
+     * @param client the client session
+     * @param topic the topic
+     */
+    public void unsubscribe(ClientSession client, String topic) {
+        Set<ClientSession> sessions = topic == null ? null : subscribers.get(topic);
+        if (sessions != null) {
+            sessions.remove(client);
+        }
+    }
+
+    /**
+     * Removes a client from all topics, e.g. when it disconnects.
+     *
+     * @param client the client session
+     */
+    public void unsubscribeAll(ClientSession client) {
+        for (Set<ClientSession> sessions : subscribers.values()) {
+            sessions.remove(client);
+        }
+    }
+
+    /**
+     * @param client the client session
+     * @return the topics the client is subscribed to, sorted by name
+     */
+    public Set<String> topicsOf(ClientSession client) {
+        Set<String> topics = new TreeSet<>();
+        for (Map.Entry<String, Set<ClientSession>> e : subscribers.entrySet()) {
+            if (e.getValue().contains(client)) {
+                topics.add(e.getKey());
+            }
+        }
+        return Collections.unmodifiableSet(topics);
+    }
+
+    /**
+     * Publishes an event without a date.
+     *
+     * @param topic the topic
+     * @param action what happened
+     * @param key the affected row, or null
+     */
+    public void publish(String topic, String action, Serializable key) {
+        publish(topic, action, key, null);
+    }
+
+    /**
+     * Publishes an event to all clients subscribed to its topic.
+     * Reservation events for today's date also go to {@link ChangeEvent#TODAY_RESERVATIONS}.
+     * Call only after the change was committed.
+     *
+     * @param topic the topic
+     * @param action what happened
+     * @param key the affected row, or null
+     * @param date the booking date of a reservation event, or null
+     */
+    public void publish(String topic, String action, Serializable key, LocalDate date) {
+        published.increment();
+
+        Set<ClientSession> recipients = new LinkedHashSet<>();
+        Set<ClientSession> sessions = subscribers.get(topic);
+        if (sessions != null) {
+            recipients.addAll(sessions);
+        }
+        if (ChangeEvent.RESERVATIONS.equals(topic) && LocalDate.now().equals(date)) {
+            recipients.addAll(subscribers.get(ChangeEvent.TODAY_RESERVATIONS));
+        }
+
+        BiConsumer<ClientSession, Object> send = sender;
+        if (recipients.isEmpty() || send == null) {
+            return;
+        }
+
+        Message event = Message.ok(ChangeEvent.COMMAND, new ChangeEvent(topic, action, key, date));
+        deliveryThread.execute(() -> {
+            for (ClientSession client : recipients) {
+                send.accept(client, event);
+                delivered.increment();
+            }
+        });
+    }
+
+    /**
+     * @return number of events published since startup
+     */
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    /**
+     * @return number of event messages sent to clients since startup
+     */
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+}
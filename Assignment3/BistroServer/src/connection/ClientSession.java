@@ -0,0 +1,63 @@
+package connection;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+/**
+ * A single connected client, independent of the transport that carries it.
+ * BistroServer only talks to clients through this interface, so the same
+ * request handling works over the OCSF and the NIO transports.
+ */
+public interface ClientSession {
+
+    /**
+     * Info key holding the wire protocol negotiated with the client (an Integer
+     * from {@link common.WireFormat}). Transports without framing ignore it.
+     */
+    String PROTOCOL_KEY = "bistro.protocol";
+
+    /**
+     * Info key holding the compression codec negotiated with the client (a String
+     * from {@link common.FrameCompressor}); absent if large frames are sent uncompressed.
+     */
+    String COMPRESSION_KEY = "bistro.compression";
+
+    /**
+     * Sends an object to the client.
+     * May be called from several threads at once.
+     *
+     * @param msg the object to send
+     * @throws IOException if the connection is closed or the write fails
+     */
+    void sendToClient(Object msg) throws IOException;
+
+    /**
+     * Returns the address of the client.
+     *
+     * @return the client's Internet address, or null if no longer connected
+     */
+    InetAddress getInetAddress();
+
+    /**
+     * Closes the connection to the client.
+     *
+     * @throws IOException if closing the socket fails
+     */
+    void close() throws IOException;
+
+    /**
+     * Saves arbitrary information about this client.
+     *
+     * @param infoType identifies the type of information
+     * @param info the information itself
+     */
+    void setInfo(String infoType, Object info);
+
+    /**
+     * Returns information saved with setInfo.
+     *
+     * @param infoType identifies the type of information
+     * @return the saved information, or null
+     */
+    Object getInfo(String infoType);
+}
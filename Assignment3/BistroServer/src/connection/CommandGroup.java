@@ -0,0 +1,39 @@
+package connection;
+
+/**
+ * Cost classes of server commands. Each command declares its class in the
+ * {@link CommandRegistry}, and commands of one class share a concurrency cap in the
+ * {@link RequestDispatcher}, which limits how many of them run against the database
+ * at once, so a burst of reports or availability searches cannot take every pooled connection.
+ * Groups are declared from cheapest to most expensive.
+ *
+ * Caps can be changed at startup with -Dbistro.dispatch.&lt;group&gt;=N,
+ * e.g. -Dbistro.dispatch.report=1.
+ */
+public enum CommandGroup {
+
+    /** Plain lookups (lists, login, single records). */
+    READ(8),
+
+    /** Requests that insert, update or delete rows. */
+    WRITE(4),
+
+    /** Slot searches that scan a day's reservations. */
+    AVAILABILITY(4),
+
+    /** Monthly reports and other aggregate queries. */
+    REPORT(2);
+
+    private final int defaultLimit;
+
+    CommandGroup(int defaultLimit) {
+        this.defaultLimit = defaultLimit;
+    }
+
+    /**
+     * @return the concurrency cap for this group, from the system property or the default
+     */
+    public int limit() {
+        return Math.max(1, Integer.getInteger("bistro.dispatch." + name().toLowerCase(), defaultLimit));
+    }
+}
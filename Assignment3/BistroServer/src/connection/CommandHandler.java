@@ -0,0 +1,20 @@
+package connection;
+
+import common.Message;
+
+/**
+ * Handles one server command.
+ * Handlers are registered in the {@link CommandRegistry} when the server starts;
+ * most of them are plain repository method references such as {@code userRepository::login}.
+ */
+@FunctionalInterface
+public interface CommandHandler {
+
+    /**
+     * Handles a request and returns the response for the client.
+     *
+     * @param request the client request
+     * @return the response message
+     */
+    Message handle(Message request);
+}
@@ -0,0 +1,128 @@
+package connection;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call counters and a latency histogram for one command.
+ * Updated from many request threads at once, so all fields are lock-free.
+ */
+public class CommandMetrics {
+
+    /** Upper bounds (in milliseconds) of the histogram buckets. The last bucket is open-ended. */
+    public static final long[] BUCKET_BOUNDS_MS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000};
+
+    private final String command;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MS.length + 1);
+
+    /**
+     * @param command the command these metrics belong to
+     */
+    public CommandMetrics(String command) {
+        this.command = command;
+    }
+
+    /**
+     * Records one finished call.
+     *
+     * @param nanos time spent in the handler
+     * @param success whether the handler returned a successful response
+     */
+    public void record(long nanos, boolean success) {
+        calls.increment();
+        if (!success) {
+            failures.increment();
+        }
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+
+        long millis = nanos / 1_000_000;
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MS.length && millis >= BUCKET_BOUNDS_MS[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * @return total time spent in this command, in milliseconds
+     */
+    public double getTotalMillis() {
+        return totalNanos.sum() / 1_000_000.0;
+    }
+
+    /**
+     * @return average handler time in milliseconds, 0 if never called
+     */
+    public double getAverageMillis() {
+        long n = calls.sum();
+        return n == 0 ? 0 : getTotalMillis() / n;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * Estimates a percentile from the histogram (upper bound of the bucket it falls in).
+     *
+     * @param percentile value between 0 and 100
+     * @return latency in milliseconds, or the maximum for the open-ended bucket
+     */
+    public double getPercentileMillis(double percentile) {
+        long n = calls.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(n * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) {
+                return BUCKET_BOUNDS_MS[i];
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * @return the metrics as a row for the client (field name to value)
+     */
+    public Map<String, Object> toRow() {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("command", command);
+        row.put("calls", getCalls());
+        row.put("failures", getFailures());
+        row.put("totalMs", Math.round(getTotalMillis()));
+        row.put("avgMs", String.format("%.2f", getAverageMillis()));
+        row.put("p95Ms", getPercentileMillis(95));
+        row.put("maxMs", String.format("%.1f", getMaxMillis()));
+        return row;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-28s calls=%-6d fail=%-4d total=%8.1fms avg=%6.2fms p95<=%5.0fms max=%7.1fms",
+                command, getCalls(), getFailures(), getTotalMillis(), getAverageMillis(),
+                getPercentileMillis(95), getMaxMillis());
+    }
+}
@@ -0,0 +1,191 @@
+package connection;
+
+import common.Message;
+import entities.User.UserRole;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Table of all commands the server understands.
+ * Each command is registered once at startup with its handler and metadata:
+ * whether it only reads, its cost class (the {@link CommandGroup} that caps its
+ * concurrency) and which user roles may call it. Every call through
+ * {@link Command#execute(Message, ClientSession)} is counted and timed automatically.
+ */
+public class CommandRegistry {
+
+    private final Map<String, Command> commands = new HashMap<>();
+
+    /**
+     * Registers a command.
+     *
+     * @param name the command name sent by the client
+     * @param costClass the concurrency group of the command
+     * @param readOnly true if the command does not change data
+     * @param handler the handler producing the response
+     * @param roles roles allowed to call the command; none means everyone
+     * @return the registered command
+     * @throws IllegalStateException if the command is already registered
+     */
+    public Command register(String name, CommandGroup costClass, boolean readOnly,
+                            CommandHandler handler, UserRole... roles) {
+        return registerSessionCommand(name, costClass, readOnly, (request, client) -> handler.handle(request), roles);
+    }
+
+    /**
+     * Registers a command whose handler also needs the calling client's session.
+     *
+     * @param name the command name sent by the client
+     * @param costClass the concurrency group of the command
+     * @param readOnly true if the command does not change data
+     * @param handler the handler producing the response
+     * @param roles roles allowed to call the command; none means everyone
+     * @return the registered command
+     * @throws IllegalStateException if the command is already registered
+     */
+    public synchronized Command registerSessionCommand(String name, CommandGroup costClass, boolean readOnly,
+                                                       SessionCommandHandler handler, UserRole... roles) {
+        Command command = new Command(name.intern(), costClass, readOnly, handler, roles);
+        if (commands.putIfAbsent(command.getName(), command) != null) {
+            throw new IllegalStateException("Command already registered: " + name);
+        }
+        return command;
+    }
+
+    /**
+     * Looks up a command by name.
+     *
+     * @param name the command name
+     * @return the command, or null if unknown
+     */
+    public Command lookup(String name) {
+        return name == null ? null : commands.get(name);
+    }
+
+    /**
+     * @return all registered commands
+     */
+    public Collection<Command> all() {
+        return Collections.unmodifiableCollection(commands.values());
+    }
+
+    /**
+     * Returns the metrics of all commands that were called at least once,
+     * the ones that used the most server time first.
+     *
+     * @return list of metrics
+     */
+    public List<CommandMetrics> metricsByTotalTime() {
+        List<CommandMetrics> list = new ArrayList<>();
+        for (Command c : commands.values()) {
+            if (c.getMetrics().getCalls() > 0) {
+                list.add(c.getMetrics());
+            }
+        }
+        list.sort(Comparator.comparingDouble(CommandMetrics::getTotalMillis).reversed());
+        return list;
+    }
+
+    /**
+     * Handler that gets the client session along with the request.
+     */
+    @FunctionalInterface
+    public interface SessionCommandHandler {
+
+        /**
+         * Handles a request and returns the response for the client.
+         *
+         * @param request the client request
+         * @param client the client that sent it
+         * @return the response message
+         */
+        Message handle(Message request, ClientSession client);
+    }
+
+    /**
+     * A registered command with its metadata and metrics.
+     */
+    public static final class Command {
+
+        private final String name;
+        private final CommandGroup costClass;
+        private final boolean readOnly;
+        private final SessionCommandHandler handler;
+        private final Set<UserRole> allowedRoles;
+        private final CommandMetrics metrics;
+
+        private Command(String name, CommandGroup costClass, boolean readOnly,
+                        SessionCommandHandler handler, UserRole[] roles) {
+            this.name = name;
+            this.costClass = costClass;
+            this.readOnly = readOnly;
+            this.handler = handler;
+            this.allowedRoles = roles.length == 0
+                    ? Collections.emptySet()
+                    : Collections.unmodifiableSet(EnumSet.of(roles[0], roles));
+            this.metrics = new CommandMetrics(name);
+        }
+
+        /**
+         * Runs the handler and records its latency. While it runs, the pools know
+         * whether the command is read-only, so only read-only commands use the read pool.
+         *
+         * @param request the client request
+         * @param client the client that sent it
+         * @return the handler's response
+         */
+        public Message execute(Message request, ClientSession client) {
+            long start = System.nanoTime();
+            boolean success = false;
+            String outer = PoolMetrics.setCurrentCommand(name); // Pool hold times are counted per command
+            Boolean outerReadOnly = MySQLConnectionPool.setReadOnlyCommand(readOnly);
+            try {
+                Message response = handler.handle(request, client);
+                success = response != null && response.isSuccess();
+                return response;
+            } finally {
+                MySQLConnectionPool.setReadOnlyCommand(outerReadOnly);
+                PoolMetrics.setCurrentCommand(outer);
+                metrics.record(System.nanoTime() - start, success);
+            }
+        }
+
+        /**
+         * Checks whether a caller with the given role may run this command.
+         *
+         * @param role the caller's role, or null if not logged in
+         * @return true if allowed
+         */
+        public boolean isAllowed(UserRole role) {
+            return allowedRoles.isEmpty() || (role != null && allowedRoles.contains(role));
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public CommandGroup getCostClass() {
+            return costClass;
+        }
+
+        public boolean isReadOnly() {
+            return readOnly;
+        }
+
+        public Set<UserRole> getAllowedRoles() {
+            return allowedRoles;
+        }
+
+        public CommandMetrics getMetrics() {
+            return metrics;
+        }
+    }
+}
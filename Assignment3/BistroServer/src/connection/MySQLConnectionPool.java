@@ -1,21 +1,40 @@
 package connection;
+import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Singleton connection pool for managing MySQL database connections.
  * Maintains a pool of reusable connections and automatically cleans up idle connections.
+ * At most MAX_TOTAL connections are open at once; when all are in use, getConnection()
+ * waits up to ACQUIRE_TIMEOUT, and released connections are handed to waiting threads
+ * in arrival order. MIN_IDLE connections are opened ahead of time, and connections
+ * older than MAX_LIFETIME are replaced.
+ * Idle connections are validated before they are handed out and replaced if dead,
+ * their session settings are reset when they come back, and connections held longer
+ * than LEAK_THRESHOLD are reported with the borrower's stack trace.
  */
 public class MySQLConnectionPool {
 
     private static MySQLConnectionPool instance;
+    private static MySQLConnectionPool readInstance;
     
     // Database Configuration - pass set dynamically from GUI
     private static String DB_HOST = "localhost";
@@ -24,14 +43,52 @@ public class MySQLConnectionPool {
     private static String DB_PASS = "";
     private static String DB_URL;
 
-    // Pool Configuration
-    private static final int MAX_POOL_SIZE = 10;
+    // Pool Configuration (override with -Dbistro.pool.<name>=N)
+    private static final int MAX_TOTAL = Math.max(1, Integer.getInteger("bistro.pool.maxTotal", 10));
+    private static final int MIN_IDLE = Math.min(MAX_TOTAL, Math.max(0, Integer.getInteger("bistro.pool.minIdle", 2)));
+    private static final long ACQUIRE_TIMEOUT = Long.getLong("bistro.pool.acquireTimeoutMs", 5000);
+    private static final long MAX_LIFETIME = Long.getLong("bistro.pool.maxLifetimeMs", 1800000); // 30 minutes
+    private static final long VALIDATE_AFTER = Long.getLong("bistro.pool.validateAfterMs", 5000);
+    private static final long LEAK_THRESHOLD = Long.getLong("bistro.pool.leakThresholdMs", 30000); // 0 disables
+    private static final int VALIDATION_TIMEOUT = 2;  // Seconds
+    private static final long LEAK_CHECK_INTERVAL = 10; // Check every 10 seconds
     private static final long MAX_IDLE_TIME = 300000; // 5 minutes in milliseconds
     private static final long CHECK_INTERVAL = 60;    // Check every 60 seconds
 
-    private BlockingQueue<PooledConnection> pool;
+    // Handed to a waiter instead of a connection: it may open its own in the freed slot
+    private static final PooledConnection HANDOFF_SLOT = new PooledConnection(null, Connection.TRANSACTION_NONE);
+
+    // Guards idle, waiters, total and closed
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Deque<CompletableFuture<PooledConnection>> waiters = new ArrayDeque<>();
+    private int total = 0; // Open connections, idle or in use, plus ones being opened
+    private boolean closed = false;
     private ScheduledExecutorService cleanerService;
 
+    // Borrowed connections, checked by the leak detector
+    private final Set<PooledConnection> inUse = ConcurrentHashMap.newKeySet();
+
+    private final PoolMetrics metrics = new PoolMetrics();
+
+    // Connection pinned to the current thread by pinConnection(), e.g. for a BATCH request;
+    // shared by both pools, so reads during a pinned section use the pinned connection
+    private static final ThreadLocal<PooledConnection> pinned = new ThreadLocal<>();
+    private static final ThreadLocal<Integer> pinnedIsolation = new ThreadLocal<>();
+
+    // Read-only flag of the command running on the current thread; unset outside commands
+    private static final ThreadLocal<Boolean> readOnlyCommand = new ThreadLocal<>();
+
+    // How long the read pool sends reads to the primary after it failed to connect
+    private static final long READ_POOL_RETRY_DELAY = 30000;
+
+    private final String tag;      // Log prefix
+    private final String url;
+    private final int maxTotal;
+    private final int minIdle;
+    private final boolean readPool;
+    private volatile long unavailableUntil = 0;
+
     /**
      * Sets database credentials from GUI before connection pool initialization.
      * Must be called before getInstance() for the first time.
@@ -47,11 +104,11 @@ public class MySQLConnectionPool {
         DB_USER = user;
         DB_PASS = password;
         DB_URL = "jdbc:mysql://" + DB_HOST + ":" + DB_PORT + 
-                 "/bistrorestaurant?serverTimezone=Asia/Jerusalem";
+                 "/bistrorestaurant?serverTimezone=Asia/Jerusalem&useLocalSessionState=true&useServerPrepStmts=true";
         
-        System.out.println("[Pool] Database credentials configured:");
-        System.out.println("[Pool] Host: " + DB_HOST + ":" + DB_PORT);
-        System.out.println("[Pool] User: " + DB_USER);
+        ServerLog.info("[Pool] Database credentials configured:");
+        ServerLog.info("[Pool] Host: " + DB_HOST + ":" + DB_PORT);
+        ServerLog.info("[Pool] User: " + DB_USER);
     }
 
     /**
@@ -63,15 +120,14 @@ public class MySQLConnectionPool {
         try {
             if (DB_URL == null) {
                 DB_URL = "jdbc:mysql://" + DB_HOST + ":" + DB_PORT + 
-                         "/bistrorestaurant?serverTimezone=Asia/Jerusalem";
+                         "/bistrorestaurant?serverTimezone=Asia/Jerusalem&useLocalSessionState=true&useServerPrepStmts=true";
             }
             java.sql.Connection testConn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
             testConn.close();
-            System.out.println("[Pool] Database connection test: SUCCESS");
+            ServerLog.info("[Pool] Database connection test: SUCCESS");
             return true;
         } catch (SQLException e) {
-            System.err.println("[Pool] Database connection test: FAILED");
-            System.err.println("[Pool] Error: " + e.getMessage());
+            ServerLog.error("[Pool] Database connection test: FAILED. Error: " + e.getMessage());
             return false;
         }
     }
@@ -79,15 +135,37 @@ public class MySQLConnectionPool {
     /**
      * Private constructor for Singleton pattern.
      * Initializes the connection pool and starts the cleanup timer.
+     * 
+     * @param readPool true for the read pool, false for the primary pool
      */
-    private MySQLConnectionPool() {
+    private MySQLConnectionPool(boolean readPool) {
         if (DB_URL == null) {
             DB_URL = "jdbc:mysql://" + DB_HOST + ":" + DB_PORT + 
-                     "/bistrorestaurant?serverTimezone=Asia/Jerusalem";
+                     "/bistrorestaurant?serverTimezone=Asia/Jerusalem&useLocalSessionState=true&useServerPrepStmts=true";
+        }
+        this.readPool = readPool;
+        if (readPool) {
+            tag = "[ReadPool]";
+            url = System.getProperty("bistro.replica.url", DB_URL);
+            maxTotal = Math.max(1, Integer.getInteger("bistro.readPool.maxTotal", 3));
+            minIdle = Math.min(maxTotal, Math.max(0, Integer.getInteger("bistro.readPool.minIdle", 0)));
+        } else {
+            tag = "[Pool]";
+            url = DB_URL;
+            maxTotal = MAX_TOTAL;
+            minIdle = MIN_IDLE;
         }
-        pool = new LinkedBlockingQueue<>(MAX_POOL_SIZE);
         startCleanupTimer();
-        System.out.println("[Pool] Initialized. Max Size: " + MAX_POOL_SIZE);
+        ServerLog.info(tag + " Initialized. Max total: " + maxTotal + " | Min idle: " + minIdle
+                + " | Acquire timeout: " + ACQUIRE_TIMEOUT + " ms"
+                + (readPool && !url.equals(DB_URL) ? " | Replica: " + url : ""));
+    }
+
+    /**
+     * @return the largest number of connections the pool keeps open
+     */
+    public static int getMaxPoolSize() {
+        return MAX_TOTAL;
     }
 
     /**
@@ -97,51 +175,488 @@ public class MySQLConnectionPool {
      */
     public static synchronized MySQLConnectionPool getInstance() {
         if (instance == null) {
-            instance = new MySQLConnectionPool();
+            instance = new MySQLConnectionPool(false);
         }
         return instance;
     }
 
+    /**
+     * Gets the read pool, for read-only repository methods such as reports and
+     * long lists. It is sized separately (-Dbistro.readPool.maxTotal, default 3) so
+     * heavy reads cannot take the connections that check-in and booking need, and
+     * connects to -Dbistro.replica.url if set, otherwise to the primary database.
+     * Repository methods with heavy reads take their pool from here; the read pool
+     * is only used while the running command is registered as read-only, so a
+     * command that changes data always reads from the primary (see
+     * {@link #setReadOnlyCommand(Boolean)}). If the read pool fails to connect, the
+     * primary pool is used until READ_POOL_RETRY_DELAY has passed; when it is merely
+     * busy, callers wait for it like for the primary pool.
+     * 
+     * @return the read pool instance
+     */
+    public static synchronized MySQLConnectionPool getReadInstance() {
+        if (readInstance == null) {
+            readInstance = new MySQLConnectionPool(true);
+        }
+        return readInstance;
+    }
+
+    /**
+     * Returns the read pool without creating it, e.g. for status displays.
+     * 
+     * @return the read pool, or null if nothing has used it yet
+     */
+    public static synchronized MySQLConnectionPool peekReadInstance() {
+        return readInstance;
+    }
+
+    /**
+     * Sets whether the command running on this thread is read-only. Called around
+     * every command, so the read pool can send reads of data-changing commands to
+     * the primary pool.
+     * 
+     * @param readOnly the command's read-only flag, or null outside a command
+     * @return the previous value, to restore afterwards
+     */
+    static Boolean setReadOnlyCommand(Boolean readOnly) {
+        Boolean previous = readOnlyCommand.get();
+        if (readOnly == null) {
+            readOnlyCommand.remove();
+        } else {
+            readOnlyCommand.set(readOnly);
+        }
+        return previous;
+    }
+
+    /**
+     * Returns the pool's current sizes, counters and wait/hold time histograms,
+     * with the prepared statement cache hits and misses of the open connections
+     * under "statementCache".
+     * 
+     * @return map of statistic name to value
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> gauges = new LinkedHashMap<>();
+        List<PooledConnection> open;
+        lock.lock();
+        try {
+            gauges.put("active", inUse.size());
+            gauges.put("idle", idle.size());
+            gauges.put("total", total);
+            gauges.put("waiting", waiters.size());
+            open = new ArrayList<>(idle);
+        } finally {
+            lock.unlock();
+        }
+        open.addAll(inUse);
+        gauges.put("maxTotal", maxTotal);
+        gauges.put("minIdle", minIdle);
+
+        Map<String, Object> stats = metrics.toMap(gauges);
+        stats.put("statementCache", getStatementCacheStats(open));
+        return stats;
+    }
+
+    /**
+     * Sums the statement cache counters of the given connections.
+     */
+    private static Map<String, Object> getStatementCacheStats(List<PooledConnection> connections) {
+        long hits = 0;
+        long misses = 0;
+        for (PooledConnection pConn : connections) {
+            StatementCache cache = pConn.getStatementCache();
+            if (cache != null) {
+                hits += cache.getHits();
+                misses += cache.getMisses();
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", StatementCache.SIZE);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        return stats;
+    }
+
+    /**
+     * Returns a one-line summary of the pool for status displays.
+     * 
+     * @return e.g. "3 active / 2 idle / 10 max | wait p95 <= 1 ms"
+     */
+    public String getSummary() {
+        int active = inUse.size();
+        int idleCount;
+        int waiting;
+        lock.lock();
+        try {
+            idleCount = idle.size();
+            waiting = waiters.size();
+        } finally {
+            lock.unlock();
+        }
+        return active + " active / " + idleCount + " idle / " + maxTotal + " max"
+                + (waiting > 0 ? " / " + waiting + " waiting" : "")
+                + String.format(" | wait p95 <= %.0f ms", metrics.getAcquireWaitP95Millis());
+    }
+
+    /**
+     * Opens connections until MIN_IDLE are idle, so the first requests after
+     * server start do not pay for connection setup.
+     */
+    public void prefill() {
+        int opened = 0;
+        while (true) {
+            lock.lock();
+            try {
+                if (closed || idle.size() >= minIdle || total >= maxTotal) {
+                    break;
+                }
+                total++;
+            } finally {
+                lock.unlock();
+            }
+
+            PooledConnection pConn = createNewConnection();
+            if (pConn == null) {
+                freeSlot();
+                break;
+            }
+            returnToPool(pConn);
+            opened++;
+        }
+        if (opened > 0) {
+            ServerLog.info(tag + " Prefilled " + opened + " connection(s).");
+        }
+    }
+
     /**
      * Gets a connection from the pool.
-     * If the pool is empty, creates a new connection.
+     * Takes an idle connection if there is one, opens a new one while fewer than
+     * MAX_TOTAL are open, and otherwise waits up to ACQUIRE_TIMEOUT for a connection
+     * to be released. Waiting threads are served in arrival order.
      * 
-     * @return a pooled connection, or null if creation fails
+     * @return a pooled connection, or null if none could be obtained in time
      */
     public PooledConnection getConnection() {
-        PooledConnection pConn = pool.poll();// Try to get from queue
-        
-        if (pConn == null) {
-            System.out.println("[Pool] Queue empty. Creating NEW physical connection.");
-            return createNewConnection();
+        PooledConnection pinnedConn = pinned.get();
+        if (pinnedConn != null) {
+            return pinnedConn;
+        }
+
+        if (readPool && (Boolean.FALSE.equals(readOnlyCommand.get()) || isUnavailable())) {
+            return getInstance().getConnection();
+        }
+
+        long start = System.nanoTime();
+        PooledConnection pConn = acquire();
+        metrics.recordAcquire(System.nanoTime() - start, pConn != null);
+        if (pConn == null && readPool && isUnavailable()) {
+            // Only a failed connect falls back; a busy read pool keeps the reads to itself
+            ServerLog.warn(tag + " Replica unavailable. Reading from the primary pool.");
+            return getInstance().getConnection();
         }
-        
-        pConn.touch(); // Reset timer
-        System.out.println("[Pool] Reusing existing connection.");
         return pConn;
     }
 
+    /**
+     * @return true if the read pool recently failed to open a connection
+     */
+    private boolean isUnavailable() {
+        return System.currentTimeMillis() < unavailableUntil;
+    }
+
+    /**
+     * Takes an idle connection, opens a new one, or waits for one to be released.
+     */
+    private PooledConnection acquire() {
+        CompletableFuture<PooledConnection> waiter = null;
+        PooledConnection reused = null;
+        List<PooledConnection> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            if (closed) {
+                return null;
+            }
+            PooledConnection pConn;
+            while ((pConn = idle.pollFirst()) != null) {
+                if (isExpired(pConn)) {
+                    expired.add(pConn);
+                    total--;
+                    continue;
+                }
+                break;
+            }
+            if (pConn != null) {
+                reused = pConn;
+            } else if (total < maxTotal) {
+                total++;
+            } else {
+                waiter = new CompletableFuture<>();
+                waiters.addLast(waiter);
+            }
+        } finally {
+            lock.unlock();
+            evict(expired);
+        }
+
+        if (reused != null) {
+            return checkOut(reused);
+        }
+        if (waiter == null) {
+            return checkOut(createInSlot());
+        }
+        return awaitHandoff(waiter);
+    }
+
     /**
      * Returns a connection back to the pool.
-     * If the pool is full, closes the physical connection.
+     * Rolls back an unfinished transaction and restores the session settings, then
+     * hands the connection straight to the longest-waiting thread if there is one.
+     * A connection past MAX_LIFETIME or one that fails the reset is closed instead.
      * 
      * @param pConn the pooled connection to release
      */
     public void releaseConnection(PooledConnection pConn) {
-        if (pConn != null) {
-            pConn.touch();
-            boolean added = pool.offer(pConn); // Return to queue
-            if (added) {
-                System.out.println("[Pool] Connection returned. Current pool size: " + pool.size());
-            } else {
-                System.out.println("[Pool] Pool is full. Closing connection.");
-                try {
-                    pConn.closePhysicalConnection();
-                } catch (SQLException e) {
-                    System.err.println("[Pool] Error closing connection: " + e.getMessage());
+        if (pConn != null && pConn == pinned.get()) {
+            return; // Released by unpinConnection()
+        }
+        if (pConn == null) {
+            return;
+        }
+        if (pConn.getOwner() != null && pConn.getOwner() != this) {
+            pConn.getOwner().releaseConnection(pConn); // A read that fell back to the primary pool
+            return;
+        }
+        inUse.remove(pConn);
+        metrics.recordHold(pConn.getBorrowedFor(), System.nanoTime() - pConn.getBorrowedNanos());
+        pConn.markReturned();
+
+        if (isExpired(pConn)) {
+            ServerLog.info(tag + " Connection reached max lifetime. Closing it.");
+            evict(List.of(pConn));
+            freeSlot();
+            return;
+        }
+        try {
+            pConn.reset();
+        } catch (SQLException e) {
+            ServerLog.warn(tag + " Connection broken on return, closing it: " + e.getMessage());
+            evict(List.of(pConn));
+            freeSlot();
+            return;
+        }
+        pConn.touch();
+        returnToPool(pConn);
+    }
+
+    /**
+     * Waits for a released connection or a free slot handed over by another thread.
+     */
+    private PooledConnection awaitHandoff(CompletableFuture<PooledConnection> waiter) {
+        PooledConnection pConn;
+        try {
+            pConn = waiter.get(ACQUIRE_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            lock.lock();
+            try {
+                if (waiters.remove(waiter)) {
+                    ServerLog.warn(tag + " Timed out waiting for a connection after " + ACQUIRE_TIMEOUT + " ms");
+                    return null;
                 }
+            } finally {
+                lock.unlock();
             }
+            // Completed or cancelled just before it was removed, always under the lock
+            if (waiter.isCompletedExceptionally()) {
+                return null; // Pool shut down
+            }
+            pConn = waiter.getNow(null); // Take what was handed over
+        } catch (ExecutionException | CancellationException e) {
+            return null; // Pool shut down
         }
+
+        if (pConn == HANDOFF_SLOT) {
+            return checkOut(createInSlot());
+        }
+        return checkOut(pConn);
+    }
+
+    /**
+     * Prepares a connection for a borrower: validates it unless it was used within
+     * VALIDATE_AFTER, opens a replacement in the same slot if it is dead, and records
+     * the borrower for the leak detector.
+     * 
+     * @param pConn an idle or newly opened connection, or null
+     * @return the connection to hand out, or null if no working connection could be opened
+     */
+    private PooledConnection checkOut(PooledConnection pConn) {
+        if (pConn == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - pConn.getLastUsed() > VALIDATE_AFTER && !pConn.isValid(VALIDATION_TIMEOUT)) {
+            ServerLog.warn(tag + " Dead connection detected. Replacing it.");
+            evict(List.of(pConn));
+            pConn = createInSlot();
+            if (pConn == null) {
+                return null;
+            }
+        }
+        pConn.touch(); // Reset timer
+        pConn.markBorrowed(PoolMetrics.currentCommand(),
+                LEAK_THRESHOLD > 0 ? new Throwable("Connection borrowed here") : null);
+        inUse.add(pConn);
+        return pConn;
+    }
+
+    /**
+     * Opens a connection in a slot already counted in total; frees the slot if that fails.
+     */
+    private PooledConnection createInSlot() {
+        PooledConnection pConn = createNewConnection();
+        if (pConn == null) {
+            freeSlot();
+        }
+        return pConn;
+    }
+
+    /**
+     * Hands a connection to the first waiting thread, or puts it back in the idle list.
+     */
+    private void returnToPool(PooledConnection pConn) {
+        boolean closeIt = false;
+        lock.lock();
+        try {
+            if (closed) {
+                total--;
+                closeIt = true;
+            } else if (!handOff(pConn)) {
+                idle.addFirst(pConn); // Most recently used first, so extra connections go idle and get evicted
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (closeIt) {
+            closeAll(List.of(pConn));
+        }
+    }
+
+    /**
+     * Gives up a slot of a connection that was closed or never opened.
+     * A waiting thread takes the slot over and opens its own connection.
+     */
+    private void freeSlot() {
+        lock.lock();
+        try {
+            if (closed || !handOff(HANDOFF_SLOT)) {
+                total--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Completes the first waiter with a connection or a slot. Must hold the lock.
+     */
+    private boolean handOff(PooledConnection pConn) {
+        CompletableFuture<PooledConnection> waiter = waiters.pollFirst();
+        if (waiter == null) {
+            return false;
+        }
+        waiter.complete(pConn);
+        return true;
+    }
+
+    private boolean isExpired(PooledConnection pConn) {
+        return System.currentTimeMillis() - pConn.getCreatedAt() > MAX_LIFETIME;
+    }
+
+    /**
+     * Closes connections that were removed from the pool before shutdown and counts them.
+     */
+    private void evict(List<PooledConnection> connections) {
+        if (!connections.isEmpty()) {
+            metrics.connectionsEvicted(connections.size());
+            closeAll(connections);
+        }
+    }
+
+    private void closeAll(List<PooledConnection> connections) {
+        for (PooledConnection pConn : connections) {
+            try {
+                pConn.closePhysicalConnection();
+            } catch (SQLException e) {
+                ServerLog.error(tag + " Error closing connection: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Borrows a connection and pins it to the current thread.
+     * Until {@link #unpinConnection()} is called, every getConnection() on this thread
+     * returns the same connection and releaseConnection() leaves it alone, so several
+     * repository calls run on one connection.
+     * 
+     * @param readSnapshot if true, the calls also share one read-only REPEATABLE READ
+     *                     transaction and therefore see the same consistent snapshot
+     * @return the pinned connection, or null if no connection could be obtained
+     */
+    public PooledConnection pinConnection(boolean readSnapshot) {
+        PooledConnection pConn = getConnection();
+        if (pConn == null) {
+            return null;
+        }
+
+        if (readSnapshot) {
+            try {
+                Connection conn = pConn.getConnection();
+                pinnedIsolation.set(conn.getTransactionIsolation());
+                conn.setAutoCommit(false);
+                conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                conn.setReadOnly(true);
+            } catch (SQLException e) {
+                ServerLog.error(tag + " Could not start snapshot: " + e.getMessage());
+                releaseConnection(pConn);
+                return null;
+            }
+        }
+
+        pinned.set(pConn);
+        return pConn;
+    }
+
+    /**
+     * Ends a pinConnection() section: finishes a snapshot transaction if one is open,
+     * restores the connection defaults and returns the connection to the pool.
+     */
+    public void unpinConnection() {
+        PooledConnection pConn = pinned.get();
+        if (pConn == null) {
+            return;
+        }
+        pinned.remove();
+        Integer isolation = pinnedIsolation.get();
+        pinnedIsolation.remove();
+
+        try {
+            Connection conn = pConn.getConnection();
+            if (!conn.getAutoCommit()) {
+                conn.commit();
+                conn.setAutoCommit(true);
+            }
+            if (conn.isReadOnly()) {
+                conn.setReadOnly(false);
+            }
+            if (isolation != null) {
+                conn.setTransactionIsolation(isolation);
+            }
+        } catch (SQLException e) {
+            ServerLog.error(tag + " Could not reset pinned connection: " + e.getMessage());
+        }
+        releaseConnection(pConn);
     }
 
     /**
@@ -151,12 +666,21 @@ public class MySQLConnectionPool {
      */
     private PooledConnection createNewConnection() {
         try {
-            return new PooledConnection(DriverManager.getConnection(DB_URL, DB_USER, DB_PASS));
+            Connection conn = DriverManager.getConnection(url, DB_USER, DB_PASS);
+            try {
+                PooledConnection pConn = new PooledConnection(conn, conn.getTransactionIsolation());
+                pConn.setOwner(this);
+                metrics.connectionCreated();
+                return pConn;
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
         } catch (SQLException e) {
-            System.err.println("[Pool] CONNECTION ERROR:");
-            System.err.println("[Pool] URL: " + DB_URL);
-            System.err.println("[Pool] User: " + DB_USER);
-            e.printStackTrace();
+            if (readPool) {
+                unavailableUntil = System.currentTimeMillis() + READ_POOL_RETRY_DELAY;
+            }
+            ServerLog.error(tag + " CONNECTION ERROR: URL: " + url + " | User: " + DB_USER, e);
             return null;
         }
     }
@@ -173,64 +697,108 @@ public class MySQLConnectionPool {
             CHECK_INTERVAL, 
             TimeUnit.SECONDS
         );
+        if (LEAK_THRESHOLD > 0) {
+            cleanerService.scheduleAtFixedRate(
+                this::checkLeaks,
+                LEAK_CHECK_INTERVAL,
+                LEAK_CHECK_INTERVAL,
+                TimeUnit.SECONDS
+            );
+        }
     }
 
     /**
-     * Checks for idle connections and closes them.
+     * Reports connections borrowed longer than LEAK_THRESHOLD, once per borrow,
+     * with the stack trace of the code that borrowed them.
      * Called periodically by the cleanup timer.
      */
-    private void checkIdleConnections() {
-        if (pool.isEmpty()) {
-            return;
+    private void checkLeaks() {
+        long now = System.currentTimeMillis();
+        for (PooledConnection pConn : inUse) {
+            long borrowedAt = pConn.getBorrowedAt();
+            if (borrowedAt != 0 && now - borrowedAt > LEAK_THRESHOLD && pConn.reportLeak()) {
+                metrics.leakDetected();
+                // The stack trace of the code that borrowed it, if known
+                ServerLog.log(ServerLog.Level.WARN, tag + " Possible connection leak: connection held for "
+                        + (now - borrowedAt) + " ms by " + pConn.getBorrowedFor(), pConn.getBorrowedBy());
+            }
         }
+    }
 
-        List<PooledConnection> activeConnections = new ArrayList<>();
-        pool.drainTo(activeConnections);
-
-        long now = System.currentTimeMillis();
-        int closedCount = 0;
-
-        for (PooledConnection pConn : activeConnections) {
-            if (now - pConn.getLastUsed() > MAX_IDLE_TIME) {
-                try {
-                    pConn.closePhysicalConnection();
-                    closedCount++;
-                } catch (SQLException e) {
-                    System.err.println("[Timer] Error closing connection: " + e.getMessage());
+    /**
+     * Closes connections that were idle too long (keeping MIN_IDLE) or reached
+     * MAX_LIFETIME, then opens new ones up to MIN_IDLE again.
+     * Called periodically by the cleanup timer.
+     */
+    private void checkIdleConnections() {
+        List<PooledConnection> evicted = new ArrayList<>();
+        int idleCount;
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            Iterator<PooledConnection> it = idle.descendingIterator(); // Least recently used first
+            while (it.hasNext()) {
+                PooledConnection pConn = it.next();
+                boolean idleTooLong = now - pConn.getLastUsed() > MAX_IDLE_TIME && idle.size() > minIdle;
+                if (idleTooLong || isExpired(pConn)) {
+                    it.remove();
+                    total--;
+                    evicted.add(pConn);
                 }
-            } else {
-                pool.offer(pConn); // Put back
             }
+            idleCount = idle.size();
+        } finally {
+            lock.unlock();
         }
-        
-        if (closedCount > 0) {
-            System.out.println("[Timer] Evicted " + closedCount + 
-                             " idle connections. Pool size: " + pool.size());
+
+        evict(evicted);
+        if (!evicted.isEmpty()) {
+            ServerLog.info("[Timer] Evicted " + evicted.size() + 
+                             " idle connections. Pool size: " + idleCount);
         }
+        prefill();
     }
 
     /**
      * Shuts down the connection pool and closes all connections.
+     * Connections still in use are closed when they are released, and
+     * the next getInstance() creates a new pool. Shutting down the primary
+     * pool also shuts down the read pool.
      * Should be called when the server stops.
      */
     public void shutdown() {
-        System.out.println("[Pool] Shutting down...");
+        ServerLog.info(tag + " Shutting down...");
         
         if (cleanerService != null) {
             cleanerService.shutdown();
         }
-        
-        List<PooledConnection> connections = new ArrayList<>();
-        pool.drainTo(connections);
-        
-        for (PooledConnection pConn : connections) {
-            try {
-                pConn.closePhysicalConnection();
-            } catch (SQLException e) {
-                System.err.println("[Pool] Error closing connection during shutdown: " + e.getMessage());
+
+        List<PooledConnection> connections;
+        lock.lock();
+        try {
+            closed = true;
+            connections = new ArrayList<>(idle);
+            total -= idle.size();
+            idle.clear();
+            waiters.forEach(w -> w.cancel(false));
+            waiters.clear();
+        } finally {
+            lock.unlock();
+        }
+        closeAll(connections);
+
+        MySQLConnectionPool reads = null;
+        synchronized (MySQLConnectionPool.class) {
+            if (instance == this) {
+                instance = null;
+                reads = readInstance;
+            } else if (readInstance == this) {
+                readInstance = null;
             }
         }
-        
-        System.out.println("[Pool] Shutdown complete.");
+        if (reads != null) {
+            reads.shutdown(); // The read pool stops with the primary pool
+        }
+        ServerLog.info(tag + " Shutdown complete.");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,236 @@
+package connection;
+
+import common.WireFormat;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One client connected through the NIO transport.
+ * Reads are driven by the owning I/O loop; writes go straight to the socket
+ * when possible and are queued for the selector when the socket is full.
+ * A client that stops reading is dropped once more than MAX_QUEUED_BYTES wait
+ * in its queue (-Dbistro.nio.maxQueuedBytes=N, default 4 MB).
+ */
+class NioClientSession implements ClientSession {
+
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    private static final long MAX_QUEUED_BYTES = Long.getLong("bistro.nio.maxQueuedBytes", 4L * 1024 * 1024);
+
+    private final SocketChannel channel;
+    private final Selector selector;
+    private final NioServerTransport transport;
+    private final BistroServer server;
+    private final InetAddress address;
+    private final Map<String, Object> info = new ConcurrentHashMap<>();
+    private final Deque<ByteBuffer> writeQueue = new ArrayDeque<>();
+    private long queuedBytes = 0; // Guarded by writeQueue
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private SelectionKey key;
+
+    NioClientSession(SocketChannel channel, Selector selector, NioServerTransport transport, BistroServer server) {
+        this.channel = channel;
+        this.selector = selector;
+        this.transport = transport;
+        this.server = server;
+        this.address = channel.socket().getInetAddress();
+    }
+
+    void attach(SelectionKey key) {
+        this.key = key;
+    }
+
+    /**
+     * Called by the I/O loop when the socket has data.
+     * Every complete frame in the buffer is decoded and handed to the server.
+     */
+    void onReadable() {
+        try {
+            int n = channel.read(readBuffer);
+            if (n < 0) {
+                fail(new EOFException("Client closed the connection"));
+                return;
+            }
+
+            readBuffer.flip();
+            while (readBuffer.remaining() >= WireFormat.HEADER_SIZE) {
+                int length = readBuffer.getInt(readBuffer.position());
+                WireFormat.checkFrameLength(length);
+
+                int frameSize = WireFormat.HEADER_SIZE + length;
+                if (readBuffer.remaining() < frameSize) {
+                    if (readBuffer.capacity() < frameSize) {
+                        ByteBuffer bigger = ByteBuffer.allocate(frameSize);
+                        bigger.put(readBuffer);
+                        readBuffer = bigger;
+                        return;
+                    }
+                    break;
+                }
+
+                int start = readBuffer.arrayOffset() + readBuffer.position() + WireFormat.HEADER_SIZE;
+                Object msg = WireFormat.decode(readBuffer.array(), start, length);
+                readBuffer.position(readBuffer.position() + frameSize);
+                server.handleMessageFromClient(msg, this);
+            }
+            shrinkOrCompact();
+        } catch (ClassNotFoundException e) {
+            fail(new IOException("Unknown class in client message", e));
+        } catch (IOException | RuntimeException e) {
+            // A failure of this client (e.g. a cancelled key) drops only this client
+            fail(e);
+        }
+    }
+
+    /**
+     * Prepares the read buffer for the next read. A buffer grown for a large frame
+     * goes back to the initial size once that frame has been consumed, so one big
+     * request does not keep up to the maximum frame size allocated per client.
+     */
+    private void shrinkOrCompact() {
+        int pending = readBuffer.remaining() < WireFormat.HEADER_SIZE
+                ? readBuffer.remaining()
+                : WireFormat.HEADER_SIZE + readBuffer.getInt(readBuffer.position());
+        if (readBuffer.capacity() > INITIAL_BUFFER_SIZE && pending <= INITIAL_BUFFER_SIZE) {
+            ByteBuffer smaller = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+            smaller.put(readBuffer);
+            readBuffer = smaller;
+        } else {
+            readBuffer.compact();
+        }
+    }
+
+    /**
+     * Called by the I/O loop when a previously full socket can accept more data.
+     */
+    void onWritable() {
+        try {
+            synchronized (writeQueue) {
+                while (!writeQueue.isEmpty()) {
+                    ByteBuffer head = writeQueue.peek();
+                    channel.write(head);
+                    if (head.hasRemaining()) {
+                        return;
+                    }
+                    writeQueue.poll();
+                    queuedBytes -= head.limit();
+                }
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void sendToClient(Object msg) throws IOException {
+        if (closed.get()) {
+            throw new SocketException("socket does not exist");
+        }
+
+        Object protocol = info.get(PROTOCOL_KEY);
+        ByteBuffer frame = ByteBuffer.wrap(protocol == null
+                ? WireFormat.encode(msg)
+                : WireFormat.encode(msg, (Integer) protocol, info.get(COMPRESSION_KEY) != null));
+        boolean overflow;
+        synchronized (writeQueue) {
+            if (writeQueue.isEmpty()) {
+                channel.write(frame);
+                if (!frame.hasRemaining()) {
+                    return;
+                }
+            }
+            // A single frame is always accepted, whatever its size
+            overflow = queuedBytes > 0 && queuedBytes + frame.limit() > MAX_QUEUED_BYTES;
+            if (!overflow) {
+                writeQueue.add(frame);
+                queuedBytes += frame.limit();
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+        if (overflow) {
+            // The client stopped reading; drop it instead of holding its frames on the heap
+            IOException e = new SocketException("Client not reading, more than " + MAX_QUEUED_BYTES + " bytes queued");
+            fail(e);
+            throw e;
+        }
+        selector.wakeup();
+    }
+
+    @Override
+    public InetAddress getInetAddress() {
+        return closed.get() ? null : address;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closeChannel()) {
+            server.clientDisconnected(this);
+        }
+    }
+
+    @Override
+    public void setInfo(String infoType, Object value) {
+        if (value == null) {
+            info.remove(infoType);
+        } else {
+            info.put(infoType, value);
+        }
+    }
+
+    @Override
+    public Object getInfo(String infoType) {
+        return info.get(infoType);
+    }
+
+    /**
+     * Closes the session after a network error and reports it to the server.
+     */
+    void fail(Exception e) {
+        if (closeChannel()) {
+            server.clientException(this, e);
+        }
+    }
+
+    /**
+     * Closes the socket once.
+     *
+     * @return true if this call closed it, false if it was already closed
+     */
+    private boolean closeChannel() {
+        if (!closed.compareAndSet(false, true)) {
+            return false;
+        }
+        transport.sessionClosed(this);
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        synchronized (writeQueue) {
+            writeQueue.clear();
+            queuedBytes = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return address == null ? "unknown" : address.getHostAddress();
+    }
+}
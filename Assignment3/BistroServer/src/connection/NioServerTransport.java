@@ -0,0 +1,253 @@
+package connection;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Non-blocking transport built on java.nio selectors.
+ * One acceptor thread hands new sockets to a small fixed set of I/O loops,
+ * each multiplexing many clients on its own Selector, instead of one thread per client.
+ * Messages are carried in the length-prefixed frames of {@link common.WireFormat}.
+ *
+ * The number of I/O loops can be set with -Dbistro.nio.threads=N.
+ */
+class NioServerTransport implements ServerTransport {
+
+    /** System property overriding the number of I/O loops. */
+    static final String THREADS_PROPERTY = "bistro.nio.threads";
+
+    private final int port;
+    private final BistroServer server;
+    private final Set<NioClientSession> sessions = ConcurrentHashMap.newKeySet();
+
+    private volatile ServerSocketChannel serverChannel;
+    private volatile Thread acceptThread;
+    private IoLoop[] loops;
+    private int nextLoop = 0;
+
+    /**
+     * Creates a NIO transport that reports to the given server.
+     *
+     * @param port the port number to listen on
+     * @param server the server receiving the hook calls
+     */
+    NioServerTransport(int port, BistroServer server) {
+        this.port = port;
+        this.server = server;
+    }
+
+    @Override
+    public synchronized void listen() throws IOException {
+        if (isListening()) {
+            return;
+        }
+
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        try {
+            channel.bind(new InetSocketAddress(port), 50);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        int threads = Math.max(1, Integer.getInteger(THREADS_PROPERTY,
+                Math.max(2, Runtime.getRuntime().availableProcessors() / 2)));
+        loops = new IoLoop[threads];
+        for (int i = 0; i < threads; i++) {
+            loops[i] = new IoLoop(Selector.open());
+            Thread t = new Thread(loops[i], "bistro-io-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+
+        serverChannel = channel;
+        acceptThread = new Thread(this::acceptLoop, "bistro-acceptor");
+        acceptThread.start();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        ServerSocketChannel channel = serverChannel;
+        serverChannel = null;
+        if (channel != null) {
+            channel.close();
+        }
+
+        for (NioClientSession session : new ArrayList<>(sessions)) {
+            try {
+                session.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        if (loops != null) {
+            for (IoLoop loop : loops) {
+                loop.shutdown();
+            }
+            loops = null;
+        }
+    }
+
+    @Override
+    public boolean isListening() {
+        return serverChannel != null;
+    }
+
+    @Override
+    public int getPort() {
+        return port;
+    }
+
+    @Override
+    public int getNumberOfClients() {
+        return sessions.size();
+    }
+
+    /**
+     * Removes a session from the live set. Called by the session when it closes.
+     */
+    void sessionClosed(NioClientSession session) {
+        sessions.remove(session);
+    }
+
+    /**
+     * Accepts clients until the server channel is closed.
+     */
+    private void acceptLoop() {
+        server.serverStarted();
+        ServerSocketChannel channel = serverChannel;
+        try {
+            while (channel != null && channel.isOpen()) {
+                SocketChannel socket = channel.accept();
+                try {
+                    socket.configureBlocking(false);
+                    socket.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    nextLoop().register(socket);
+                } catch (IOException e) {
+                    // One bad socket, e.g. reset right after accept, drops only that socket
+                    ServerLog.warn("[NIO] Could not set up accepted socket: " + e.getMessage());
+                    try {
+                        socket.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        } catch (ClosedChannelException e) {
+            // close() was called
+        } catch (IOException e) {
+            ServerLog.error("[NIO] Accept loop failed: " + e.getMessage(), e);
+        } finally {
+            serverChannel = null;
+            server.serverStopped();
+        }
+    }
+
+    private synchronized IoLoop nextLoop() {
+        IoLoop loop = loops[nextLoop];
+        nextLoop = (nextLoop + 1) % loops.length;
+        return loop;
+    }
+
+    /**
+     * A single selector thread serving a share of the connected clients.
+     */
+    private class IoLoop implements Runnable {
+
+        private final Selector selector;
+        private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+        private volatile boolean running = true;
+
+        IoLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        void register(SocketChannel socket) {
+            pending.add(socket);
+            selector.wakeup();
+        }
+
+        void shutdown() {
+            running = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    registerPending();
+
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        NioClientSession session = (NioClientSession) key.attachment();
+                        try {
+                            if (!key.isValid()) {
+                                continue;
+                            }
+                            if (key.isWritable()) {
+                                session.onWritable();
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                session.onReadable();
+                            }
+                        } catch (RuntimeException e) {
+                            // Never let one client end the loop serving the others
+                            session.fail(e);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                ServerLog.error("[NIO] I/O loop failed: " + e.getMessage(), e);
+            } finally {
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        private void registerPending() {
+            SocketChannel socket;
+            while ((socket = pending.poll()) != null) {
+                NioClientSession session = new NioClientSession(socket, selector, NioServerTransport.this, server);
+                try {
+                    SelectionKey key = socket.register(selector, SelectionKey.OP_READ, session);
+                    session.attach(key);
+                } catch (IOException | RuntimeException e) {
+                    try {
+                        socket.close();
+                    } catch (IOException ignored) {
+                    }
+                    continue;
+                }
+                sessions.add(session);
+                try {
+                    server.clientConnected(session);
+                } catch (RuntimeException e) {
+                    session.fail(e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NIO (" + (loops == null ? 0 : loops.length) + " I/O threads)";
+    }
+}
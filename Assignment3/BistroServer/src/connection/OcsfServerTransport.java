@@ -0,0 +1,122 @@
+package connection;
+
+import ocsf.server.AbstractServer;
+import ocsf.server.ConnectionToClient;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+/**
+ * The original OCSF transport: one blocking ConnectionToClient thread per client.
+ * Kept as a fallback behind the bistro.transport=ocsf startup switch.
+ */
+class OcsfServerTransport extends AbstractServer implements ServerTransport {
+
+    private static final String SESSION_KEY = "bistro.session";
+
+    private final BistroServer server;
+
+    /**
+     * Creates an OCSF transport that reports to the given server.
+     *
+     * @param port the port number to listen on
+     * @param server the server receiving the hook calls
+     */
+    OcsfServerTransport(int port, BistroServer server) {
+        super(port);
+        this.server = server;
+    }
+
+    @Override
+    protected void serverStarted() {
+        server.serverStarted();
+    }
+
+    @Override
+    protected void serverStopped() {
+        server.serverStopped();
+    }
+
+    @Override
+    protected void clientConnected(ConnectionToClient client) {
+        server.clientConnected(sessionFor(client));
+    }
+
+    @Override
+    synchronized protected void clientDisconnected(ConnectionToClient client) {
+        server.clientDisconnected(sessionFor(client));
+    }
+
+    @Override
+    synchronized protected void clientException(ConnectionToClient client, Throwable exception) {
+        server.clientException(sessionFor(client), exception);
+    }
+
+    @Override
+    protected void handleMessageFromClient(Object msg, ConnectionToClient client) {
+        server.handleMessageFromClient(msg, sessionFor(client));
+    }
+
+    /**
+     * Returns the session wrapper stored on an OCSF connection, creating it on first use.
+     */
+    private ClientSession sessionFor(ConnectionToClient client) {
+        synchronized (client) {
+            ClientSession session = (ClientSession) client.getInfo(SESSION_KEY);
+            if (session == null) {
+                session = new OcsfClientSession(client);
+                client.setInfo(SESSION_KEY, session);
+            }
+            return session;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "OCSF (thread per client)";
+    }
+
+    /**
+     * Adapts an OCSF ConnectionToClient to the ClientSession interface.
+     */
+    private static class OcsfClientSession implements ClientSession {
+
+        private final ConnectionToClient client;
+
+        OcsfClientSession(ConnectionToClient client) {
+            this.client = client;
+        }
+
+        // Responses and pushed change events can be sent from different threads,
+        // and ObjectOutputStream is not thread-safe
+        @Override
+        public synchronized void sendToClient(Object msg) throws IOException {
+            client.sendToClient(msg);
+        }
+
+        @Override
+        public InetAddress getInetAddress() {
+            return client.getInetAddress();
+        }
+
+        @Override
+        public void close() throws IOException {
+            client.close();
+        }
+
+        @Override
+        public void setInfo(String infoType, Object info) {
+            client.setInfo(infoType, info);
+        }
+
+        @Override
+        public Object getInfo(String infoType) {
+            return client.getInfo(infoType);
+        }
+
+        @Override
+        public String toString() {
+            return client.toString();
+        }
+    }
+}
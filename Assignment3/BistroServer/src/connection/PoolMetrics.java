@@ -0,0 +1,125 @@
+package connection;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of the {@link MySQLConnectionPool}.
+ * Acquire wait and hold times use the same histogram as the command metrics;
+ * hold times are also kept per borrowing command, so a command that keeps
+ * connections too long stands out.
+ */
+class PoolMetrics {
+
+    /** Tag of connections borrowed outside a client command, e.g. by the scheduler. */
+    static final String NO_COMMAND = "(no command)";
+
+    // Command running on the current thread, set by CommandRegistry
+    private static final ThreadLocal<String> currentCommand = new ThreadLocal<>();
+
+    private final CommandMetrics acquireWait = new CommandMetrics("acquireWait");
+    private final CommandMetrics hold = new CommandMetrics("hold");
+    private final Map<String, CommandMetrics> holdByCommand = new ConcurrentHashMap<>();
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+
+    /**
+     * Sets the command that connections borrowed on this thread are counted for.
+     *
+     * @param command the command name, or null to clear it
+     * @return the previous command, to restore afterwards
+     */
+    static String setCurrentCommand(String command) {
+        String previous = currentCommand.get();
+        if (command == null) {
+            currentCommand.remove();
+        } else {
+            currentCommand.set(command);
+        }
+        return previous;
+    }
+
+    /**
+     * @return the command running on this thread, or {@link #NO_COMMAND}
+     */
+    static String currentCommand() {
+        String command = currentCommand.get();
+        return command != null ? command : NO_COMMAND;
+    }
+
+    /**
+     * Records how long a getConnection() call took.
+     *
+     * @param nanos time until a connection was handed out or the call gave up
+     * @param success false if no connection was obtained
+     */
+    void recordAcquire(long nanos, boolean success) {
+        acquireWait.record(nanos, success);
+        if (!success) {
+            timeouts.increment();
+        }
+    }
+
+    /**
+     * Records how long a connection was borrowed.
+     *
+     * @param command the command it was borrowed for
+     * @param nanos time between borrow and release
+     */
+    void recordHold(String command, long nanos) {
+        hold.record(nanos, true);
+        holdByCommand.computeIfAbsent(command, CommandMetrics::new).record(nanos, true);
+    }
+
+    void connectionCreated() {
+        created.increment();
+    }
+
+    void connectionsEvicted(int count) {
+        evicted.add(count);
+    }
+
+    void leakDetected() {
+        leaks.increment();
+    }
+
+    /**
+     * Builds the statistics, including the pool's current gauges.
+     *
+     * @param gauges current pool sizes (active, idle, total, ...)
+     * @return map of statistic name to value
+     */
+    Map<String, Object> toMap(Map<String, Object> gauges) {
+        Map<String, Object> stats = new LinkedHashMap<>(gauges);
+        stats.put("created", created.sum());
+        stats.put("evicted", evicted.sum());
+        stats.put("acquireTimeouts", timeouts.sum());
+        stats.put("leaksDetected", leaks.sum());
+        stats.put("acquireWait", acquireWait.toRow());
+        stats.put("hold", hold.toRow());
+
+        List<CommandMetrics> byCommand = new ArrayList<>(holdByCommand.values());
+        byCommand.sort(Comparator.comparingDouble(CommandMetrics::getTotalMillis).reversed());
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (CommandMetrics m : byCommand) {
+            rows.add(m.toRow());
+        }
+        stats.put("holdByCommand", rows);
+        return stats;
+    }
+
+    /**
+     * @return p95 of the acquire wait in milliseconds
+     */
+    double getAcquireWaitP95Millis() {
+        return acquireWait.getPercentileMillis(95);
+    }
+}
@@ -6,29 +6,68 @@ import java.sql.SQLException;
 /**
  * Wrapper class for a database connection with timestamp tracking.
  * Used by MySQLConnectionPool to manage connection lifecycle.
+ * Also remembers the connection's default session settings, so they can be
+ * restored when it is returned, and who borrowed it, for leak detection.
+ * Prepared statements are cached per connection (see {@link StatementCache}).
  */
 public class PooledConnection {
     
     private Connection connection;
+    private MySQLConnectionPool owner;
+    private final StatementCache statements;
+    private final Connection cachingConnection;
     private long lastUsed;
+    private final long createdAt;
+    private final int defaultIsolation;
+
+    // Set while the connection is borrowed
+    private volatile long borrowedAt;
+    private volatile long borrowedNanos;
+    private volatile String borrowedFor;
+    private volatile Throwable borrowedBy;
+    private volatile boolean leakReported;
 
     /**
      * Creates a new pooled connection.
      * 
      * @param connection the physical database connection
+     * @param defaultIsolation the connection's isolation level when it was opened
      */
-    public PooledConnection(Connection connection) {
+    public PooledConnection(Connection connection, int defaultIsolation) {
         this.connection = connection;
+        this.statements = connection != null ? new StatementCache(connection) : null;
+        this.cachingConnection = connection != null ? statements.wrapConnection() : null;
         this.lastUsed = System.currentTimeMillis();
+        this.createdAt = this.lastUsed;
+        this.defaultIsolation = defaultIsolation;
     }
 
     /**
-     * Gets the underlying database connection.
+     * Gets the database connection. Its prepareStatement(sql) reuses cached
+     * statements; closing a statement returns it to the cache.
      * 
      * @return the connection
      */
     public Connection getConnection() {
-        return connection;
+        return cachingConnection;
+    }
+
+    /**
+     * @return the pool that opened this connection
+     */
+    MySQLConnectionPool getOwner() {
+        return owner;
+    }
+
+    void setOwner(MySQLConnectionPool owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * @return the prepared statement cache of this connection
+     */
+    StatementCache getStatementCache() {
+        return statements;
     }
 
     /**
@@ -48,6 +87,115 @@ public class PooledConnection {
         return lastUsed;
     }
     
+    /**
+     * Gets the timestamp of when the physical connection was opened.
+     * 
+     * @return timestamp in milliseconds
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Checks that the server still answers on this connection.
+     * 
+     * @param timeoutSeconds how long to wait for the answer
+     * @return false if the connection is closed or broken
+     */
+    public boolean isValid(int timeoutSeconds) {
+        try {
+            return connection != null && connection.isValid(timeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Restores the session settings a repository may have changed: rolls back an
+     * unfinished transaction and resets auto-commit, read-only and the isolation level.
+     * 
+     * @throws SQLException if the connection is broken
+     */
+    public void reset() throws SQLException {
+        if (!connection.getAutoCommit()) {
+            connection.rollback();
+            connection.setAutoCommit(true);
+        }
+        if (connection.isReadOnly()) {
+            connection.setReadOnly(false);
+        }
+        if (connection.getTransactionIsolation() != defaultIsolation) {
+            connection.setTransactionIsolation(defaultIsolation);
+        }
+    }
+
+    /**
+     * Records that the connection was borrowed.
+     * 
+     * @param command the command it was borrowed for
+     * @param borrower stack trace of the borrowing code, or null if not tracked
+     */
+    void markBorrowed(String command, Throwable borrower) {
+        borrowedAt = System.currentTimeMillis();
+        borrowedNanos = System.nanoTime();
+        borrowedFor = command;
+        borrowedBy = borrower;
+        leakReported = false;
+    }
+
+    /**
+     * Records that the connection was returned, and takes back the cached
+     * statements the borrower did not close.
+     */
+    void markReturned() {
+        borrowedAt = 0;
+        borrowedBy = null;
+        if (statements != null) {
+            statements.reclaim();
+        }
+    }
+
+    /**
+     * @return when the connection was borrowed, or 0 if it is not borrowed
+     */
+    long getBorrowedAt() {
+        return borrowedAt;
+    }
+
+    /**
+     * @return System.nanoTime() when the connection was borrowed
+     */
+    long getBorrowedNanos() {
+        return borrowedNanos;
+    }
+
+    /**
+     * @return the command the connection was borrowed for
+     */
+    String getBorrowedFor() {
+        return borrowedFor;
+    }
+
+    /**
+     * @return stack trace of the code that borrowed the connection, or null
+     */
+    Throwable getBorrowedBy() {
+        return borrowedBy;
+    }
+
+    /**
+     * Marks the current borrow as reported by the leak detector.
+     * 
+     * @return false if it was already reported
+     */
+    boolean reportLeak() {
+        if (leakReported) {
+            return false;
+        }
+        leakReported = true;
+        return true;
+    }
+
     /**
      * Closes the physical database connection.
      * 
@@ -55,6 +203,7 @@ public class PooledConnection {
      */
     public void closePhysicalConnection() throws SQLException {
         if (connection != null && !connection.isClosed()) {
+            statements.clear();
             connection.close();
         }
     }
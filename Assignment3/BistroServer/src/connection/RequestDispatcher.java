@@ -0,0 +1,272 @@
+package connection;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+/**
+ * Runs client requests off the transport's read loop.
+ * Every request gets its own virtual thread, so a slow report or a wait for a
+ * database connection no longer stalls the other messages of the same client.
+ * Concurrency per {@link CommandGroup} is capped with a fair semaphore, and requests
+ * that use the database pass an {@link AdmissionController} first. An admitted request
+ * waits for its group's permit before it waits for a turn of the admission budget, so
+ * requests queued behind a busy group do not hold the budget from the other groups.
+ *
+ * Requests of one client may finish out of order, but their responses are
+ * always sent in the order the requests arrived. A request may also send part of
+ * its response early with {@link #sendPartial(Object)}; partial responses keep the
+ * same ordering.
+ */
+public class RequestDispatcher {
+
+    private static final String SEQUENCER_KEY = "bistro.sequencer";
+
+    // Receives the partial responses of the request running on the current thread
+    private static final ThreadLocal<Consumer<Object>> partialSink = new ThreadLocal<>();
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<CommandGroup, Semaphore> permits = new EnumMap<>(CommandGroup.class);
+    private final BiConsumer<ClientSession, Object> sender;
+    private final AdmissionController admission;
+
+    /**
+     * Creates a dispatcher with the default admission limits.
+     *
+     * @param sender sends a finished response to a client
+     */
+    public RequestDispatcher(BiConsumer<ClientSession, Object> sender) {
+        this(sender, new AdmissionController());
+    }
+
+    /**
+     * Creates a dispatcher.
+     *
+     * @param sender sends a finished response to a client
+     * @param admission decides which requests may use the database
+     */
+    public RequestDispatcher(BiConsumer<ClientSession, Object> sender, AdmissionController admission) {
+        this.sender = sender;
+        this.admission = admission;
+        for (CommandGroup group : CommandGroup.values()) {
+            permits.put(group, new Semaphore(group.limit(), true));
+        }
+    }
+
+    /**
+     * Schedules a request that does not need admission, e.g. a handshake or an
+     * error reply. Must be called in the order the client's messages were received,
+     * since that order decides the response order.
+     *
+     * @param client the client that sent the request
+     * @param group the cost class whose concurrency cap applies
+     * @param work computes the response
+     * @param failed builds the response sent if the work fails or produces none
+     */
+    public void dispatch(ClientSession client, CommandGroup group, Supplier<Object> work, Supplier<Object> failed) {
+        ResponseSequencer sequencer = sequencerFor(client);
+        long ticket = sequencer.reserve();
+        executor.execute(() -> run(sequencer, ticket, group, work, failed, null));
+    }
+
+    /**
+     * Schedules a request that uses the database. If the admission controller has
+     * no room for it, the request is not run and the busy response is sent instead,
+     * without waiting. Must be called in the order the client's messages were received.
+     *
+     * @param client the client that sent the request
+     * @param group the cost class whose concurrency cap applies
+     * @param work computes the response
+     * @param failed builds the response sent if the work fails or produces none
+     * @param busy builds the rejection from the suggested retry delay in milliseconds
+     */
+    public void dispatch(ClientSession client, CommandGroup group, Supplier<Object> work, Supplier<Object> failed,
+            LongFunction<Object> busy) {
+        ResponseSequencer sequencer = sequencerFor(client);
+        long ticket = sequencer.reserve();
+
+        if (!admission.tryAdmit(client)) {
+            Object rejection = busy.apply(admission.retryAfterMillis());
+            executor.execute(() -> sequencer.emit(ticket, rejection, true));
+            return;
+        }
+
+        executor.execute(() -> run(sequencer, ticket, group, work, failed, client));
+    }
+
+    /**
+     * @return the admission controller of this dispatcher
+     */
+    public AdmissionController getAdmission() {
+        return admission;
+    }
+
+    /**
+     * Runs a request within its group's cap and sends its response in turn.
+     * An admitted request also waits for a turn of the admission budget, but only
+     * once it holds its group's permit. If the request is interrupted, fails or
+     * produces no response, the failure response is sent instead, so the client
+     * never waits for an answer that does not come.
+     *
+     * @param admitted the client of an admitted request, or null if no admission applies
+     */
+    private void run(ResponseSequencer sequencer, long ticket, CommandGroup group, Supplier<Object> work,
+            Supplier<Object> failed, ClientSession admitted) {
+        Semaphore semaphore = permits.get(group);
+        Object response = null;
+        long started = 0;
+        try {
+            semaphore.acquire();
+            try {
+                if (admitted != null) {
+                    started = admission.awaitTurn();
+                }
+                partialSink.set(partial -> sequencer.emit(ticket, partial, false));
+                try {
+                    response = work.get();
+                } finally {
+                    partialSink.remove();
+                }
+            } finally {
+                semaphore.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            ServerLog.error("[Dispatcher] Request failed: " + e.getMessage(), e);
+        } finally {
+            // Always complete the ticket, otherwise later responses would wait forever
+            sequencer.emit(ticket, response != null ? response : failed.get(), true);
+            if (admitted != null) {
+                admission.release(admitted, started);
+            }
+        }
+    }
+
+    /**
+     * Sends part of the response of the request running on the current thread,
+     * e.g. one chunk of a streamed list. The final response is still the value
+     * returned by the request's work.
+     *
+     * @param partial the partial response
+     * @return false if the current thread is not running a dispatched request,
+     *         in which case nothing was sent
+     */
+    public static boolean sendPartial(Object partial) {
+        Consumer<Object> sink = partialSink.get();
+        if (sink == null) {
+            return false;
+        }
+        sink.accept(partial);
+        return true;
+    }
+
+    /**
+     * @return true if the current thread may send partial responses
+     */
+    public static boolean canSendPartial() {
+        return partialSink.get() != null;
+    }
+
+    /**
+     * Turns off partial responses for the current thread, e.g. while running the
+     * sub-requests of a batch that must answer with one composite response.
+     *
+     * @return the previous state, to pass to {@link #resumePartials(Consumer)}
+     */
+    static Consumer<Object> suspendPartials() {
+        Consumer<Object> sink = partialSink.get();
+        partialSink.remove();
+        return sink;
+    }
+
+    /**
+     * Restores partial responses turned off by {@link #suspendPartials()}.
+     *
+     * @param sink the value returned by suspendPartials
+     */
+    static void resumePartials(Consumer<Object> sink) {
+        if (sink != null) {
+            partialSink.set(sink);
+        }
+    }
+
+    private ResponseSequencer sequencerFor(ClientSession client) {
+        synchronized (client) {
+            ResponseSequencer sequencer = (ResponseSequencer) client.getInfo(SEQUENCER_KEY);
+            if (sequencer == null) {
+                sequencer = new ResponseSequencer(client);
+                client.setInfo(SEQUENCER_KEY, sequencer);
+            }
+            return sequencer;
+        }
+    }
+
+    /**
+     * Releases responses of one client in ticket order.
+     * A response that finishes early waits until all earlier ones have been sent.
+     */
+    private class ResponseSequencer {
+
+        private final ClientSession client;
+        // Messages of later tickets waiting for their turn, and the tickets among them that are complete
+        private final Map<Long, List<Object>> waiting = new HashMap<>();
+        private final Set<Long> finished = new HashSet<>();
+        private long nextTicket = 0;
+        private long nextToSend = 0;
+
+        ResponseSequencer(ClientSession client) {
+            this.client = client;
+        }
+
+        synchronized long reserve() {
+            return nextTicket++;
+        }
+
+        /**
+         * Sends a message of a ticket, or holds it until all earlier tickets are done.
+         * The last message marks the ticket as done; a null message sends nothing.
+         */
+        synchronized void emit(long ticket, Object response, boolean last) {
+            if (ticket != nextToSend) {
+                waiting.computeIfAbsent(ticket, t -> new ArrayList<>()).add(response);
+                if (last) {
+                    finished.add(ticket);
+                }
+                return;
+            }
+            send(response);
+            if (!last) {
+                return;
+            }
+            nextToSend++;
+            while (true) {
+                List<Object> held = waiting.remove(nextToSend);
+                if (held != null) {
+                    held.forEach(this::send);
+                }
+                if (!finished.remove(nextToSend)) {
+                    return;
+                }
+                nextToSend++;
+            }
+        }
+
+        private void send(Object response) {
+            if (response != null) {
+                sender.accept(client, response);
+            }
+        }
+    }
+}
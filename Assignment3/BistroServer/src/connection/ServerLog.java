@@ -0,0 +1,353 @@
+package connection;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous server log.
+ *
+ * Logging methods only put the message into a fixed-size ring buffer and return;
+ * they never wait for a lock or for I/O. A single background thread drains the buffer
+ * in batches, writes each batch to the console and to a rotating log file, and hands
+ * it to the registered sinks (e.g. the server GUI). When the buffer is full, new
+ * messages are dropped and counted rather than slowing down request threads.
+ *
+ * Settings (system properties):
+ * <ul>
+ * <li>bistro.log.level - lowest level that is logged (default INFO)</li>
+ * <li>bistro.log.bufferSize - ring buffer slots, rounded up to a power of two (default 8192)</li>
+ * <li>bistro.log.dir - directory of the log file; empty disables the file (default logs)</li>
+ * <li>bistro.log.maxFileBytes - size at which the file is rotated (default 5 MB)</li>
+ * <li>bistro.log.files - number of rotated files kept (default 5)</li>
+ * <li>bistro.log.console - also print to the console (default true)</li>
+ * </ul>
+ */
+public final class ServerLog {
+
+    /** Log levels, from least to most severe. */
+    public enum Level { DEBUG, INFO, WARN, ERROR }
+
+    /** One logged message. */
+    public static final class Entry {
+        private final long time;
+        private final Level level;
+        private final String thread;
+        private final String message;
+        private final Throwable error;
+
+        private Entry(Level level, String message, Throwable error) {
+            this.time = System.currentTimeMillis();
+            this.level = level;
+            this.thread = Thread.currentThread().getName();
+            this.message = message;
+            this.error = error;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public Level getLevel() {
+            return level;
+        }
+
+        public String getThread() {
+            return thread;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+    }
+
+    private static final Level LEVEL = parseLevel(System.getProperty("bistro.log.level", "INFO"));
+    private static final int CAPACITY = powerOfTwo(Integer.getInteger("bistro.log.bufferSize", 8192));
+    private static final String DIR = System.getProperty("bistro.log.dir", "logs");
+    private static final long MAX_FILE_BYTES = Long.getLong("bistro.log.maxFileBytes", 5L * 1024 * 1024);
+    private static final int FILES = Math.max(1, Integer.getInteger("bistro.log.files", 5));
+    private static final boolean CONSOLE = Boolean.parseBoolean(System.getProperty("bistro.log.console", "true"));
+
+    private static final String FILE_NAME = "bistro.log";
+    private static final int MAX_BATCH = 512;
+    private static final long IDLE_PARK_NANOS = 20_000_000; // 20 ms
+
+    private static final DateTimeFormatter fileFmt =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    // Multi-producer, single-consumer ring: producers claim a sequence from tail,
+    // the drain thread takes slots from head and clears them
+    private static final AtomicReferenceArray<Entry> slots = new AtomicReferenceArray<>(CAPACITY);
+    private static final AtomicLong tail = new AtomicLong();
+    private static final AtomicLong head = new AtomicLong();
+
+    private static final LongAdder dropped = new LongAdder();
+    private static final List<Consumer<List<Entry>>> sinks = new CopyOnWriteArrayList<>();
+
+    // Used only by the drain thread
+    private static BufferedWriter writer;
+    private static long fileBytes;
+    private static boolean fileFailed;
+
+    private static final Thread drainThread;
+
+    static {
+        drainThread = new Thread(ServerLog::drainLoop, "bistro-log");
+        drainThread.setDaemon(true);
+        drainThread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(ServerLog::flush, "bistro-log-flush"));
+    }
+
+    private ServerLog() {}
+
+    public static void debug(String message) {
+        log(Level.DEBUG, message, null);
+    }
+
+    public static void info(String message) {
+        log(Level.INFO, message, null);
+    }
+
+    public static void warn(String message) {
+        log(Level.WARN, message, null);
+    }
+
+    public static void error(String message) {
+        log(Level.ERROR, message, null);
+    }
+
+    /**
+     * Logs an error with the stack trace of its cause.
+     *
+     * @param message the message
+     * @param error the exception
+     */
+    public static void error(String message, Throwable error) {
+        log(Level.ERROR, message, error);
+    }
+
+    /**
+     * @param level a level
+     * @return true if messages of that level are logged
+     */
+    public static boolean isEnabled(Level level) {
+        return level.compareTo(LEVEL) >= 0;
+    }
+
+    /**
+     * Logs a message. Returns immediately; the message is written by the drain thread.
+     *
+     * @param level the level
+     * @param message the message
+     * @param error an exception whose stack trace is logged too, or null
+     */
+    public static void log(Level level, String message, Throwable error) {
+        if (!isEnabled(level)) {
+            return;
+        }
+        Entry entry = new Entry(level, message, error);
+        long seq;
+        do {
+            seq = tail.get();
+            if (seq - head.get() >= CAPACITY) {
+                dropped.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(seq, seq + 1));
+        slots.set((int) (seq & (CAPACITY - 1)), entry);
+    }
+
+    /**
+     * Registers a receiver of logged messages. Sinks are called on the drain thread
+     * with each batch, so they must only hand the entries over, not do slow work.
+     *
+     * @param sink receives batches of entries, oldest first
+     */
+    public static void addSink(Consumer<List<Entry>> sink) {
+        sinks.add(sink);
+    }
+
+    /**
+     * Removes a sink added with {@link #addSink(Consumer)}.
+     *
+     * @param sink the sink
+     */
+    public static void removeSink(Consumer<List<Entry>> sink) {
+        sinks.remove(sink);
+    }
+
+    /**
+     * @return number of messages dropped because the buffer was full
+     */
+    public static long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Writes out everything logged so far. Called on JVM shutdown; normally not needed.
+     */
+    public static synchronized void flush() {
+        while (drainBatch()) {
+            // Keep going until the buffer is empty
+        }
+    }
+
+    private static void drainLoop() {
+        while (true) {
+            try {
+                if (!drainBatch()) {
+                    if (tail.get() > head.get()) {
+                        Thread.onSpinWait(); // A producer is storing its entry
+                    } else {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    }
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Takes up to {@link #MAX_BATCH} entries from the buffer and writes them out.
+     *
+     * @return true if anything was drained
+     */
+    private static synchronized boolean drainBatch() {
+        List<Entry> batch = new ArrayList<>();
+        long seq = head.get();
+        while (batch.size() < MAX_BATCH && seq < tail.get()) {
+            int index = (int) (seq & (CAPACITY - 1));
+            Entry entry = slots.get(index);
+            if (entry == null) {
+                break; // Claimed but not yet stored by its producer
+            }
+            slots.set(index, null);
+            batch.add(entry);
+            seq++;
+            head.set(seq);
+        }
+
+        long lost = dropped.sumThenReset();
+        if (lost > 0) {
+            batch.add(new Entry(Level.WARN, "[Log] Buffer full, " + lost + " message(s) dropped", null));
+        }
+        if (batch.isEmpty()) {
+            return false;
+        }
+
+        write(batch);
+        for (Consumer<List<Entry>> sink : sinks) {
+            try {
+                sink.accept(batch);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        return true;
+    }
+
+    private static void write(List<Entry> batch) {
+        StringBuilder text = new StringBuilder();
+        for (Entry entry : batch) {
+            text.append(fileFmt.format(Instant.ofEpochMilli(entry.time)))
+                    .append(' ').append(entry.level)
+                    .append(" [").append(entry.thread).append("] ")
+                    .append(entry.message).append(System.lineSeparator());
+            if (entry.error != null) {
+                StringWriter trace = new StringWriter();
+                entry.error.printStackTrace(new PrintWriter(trace));
+                text.append(trace);
+            }
+        }
+        String out = text.toString();
+
+        if (CONSOLE) {
+            System.out.print(out);
+        }
+        writeFile(out);
+    }
+
+    private static void writeFile(String text) {
+        if (DIR.isEmpty() || fileFailed) {
+            return;
+        }
+        try {
+            if (writer == null) {
+                open();
+            }
+            writer.write(text);
+            writer.flush();
+            fileBytes += text.getBytes(StandardCharsets.UTF_8).length;
+            if (fileBytes >= MAX_FILE_BYTES) {
+                rotate();
+            }
+        } catch (IOException e) {
+            // Keep logging to the console and the sinks
+            fileFailed = true;
+            System.err.println("[Log] Cannot write log file, file logging disabled: " + e.getMessage());
+        }
+    }
+
+    private static void open() throws IOException {
+        Path dir = Paths.get(DIR);
+        Files.createDirectories(dir);
+        Path file = dir.resolve(FILE_NAME);
+        fileBytes = Files.exists(file) ? Files.size(file) : 0;
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Renames bistro.log to bistro.log.1 (and .1 to .2, ...), dropping the oldest file.
+     */
+    private static void rotate() throws IOException {
+        writer.close();
+        writer = null;
+        Path dir = Paths.get(DIR);
+        Files.deleteIfExists(dir.resolve(FILE_NAME + "." + FILES));
+        for (int i = FILES - 1; i >= 1; i--) {
+            Path from = dir.resolve(FILE_NAME + "." + i);
+            if (Files.exists(from)) {
+                Files.move(from, dir.resolve(FILE_NAME + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(dir.resolve(FILE_NAME), dir.resolve(FILE_NAME + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        open();
+    }
+
+    private static Level parseLevel(String name) {
+        try {
+            return Level.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Level.INFO;
+        }
+    }
+
+    private static int powerOfTwo(int size) {
+        int n = Integer.highestOneBit(Math.max(64, size));
+        return n < size ? n << 1 : n;
+    }
+}
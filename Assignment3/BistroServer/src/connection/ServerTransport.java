@@ -0,0 +1,42 @@
+package connection;
+
+import java.io.IOException;
+
+/**
+ * Network layer underneath BistroServer.
+ * A transport accepts clients, decodes their messages and reports everything
+ * back through the BistroServer hook methods (serverStarted, clientConnected,
+ * handleMessageFromClient, clientDisconnected, ...).
+ */
+public interface ServerTransport {
+
+    /**
+     * Starts accepting client connections.
+     * Has no effect if the transport is already listening.
+     *
+     * @throws IOException if the server socket cannot be opened
+     */
+    void listen() throws IOException;
+
+    /**
+     * Stops listening and closes all client connections.
+     *
+     * @throws IOException if closing the server socket fails
+     */
+    void close() throws IOException;
+
+    /**
+     * @return true if the transport is accepting new clients
+     */
+    boolean isListening();
+
+    /**
+     * @return the port number the transport listens on
+     */
+    int getPort();
+
+    /**
+     * @return the number of currently connected clients
+     */
+    int getNumberOfClients();
+}
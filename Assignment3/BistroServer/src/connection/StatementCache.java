@@ -0,0 +1,277 @@
+package connection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * LRU cache of prepared statements for one physical connection, keyed by SQL text.
+ * {@link PooledConnection#getConnection()} hands out a connection wrapper whose
+ * prepareStatement(sql) takes the statement from this cache, so repositories keep
+ * their usual prepare/execute/close code: close() only gives the statement back to
+ * the cache, and the server-side handle stays prepared for the next call.
+ *
+ * A statement that is still open when the same SQL is prepared again (e.g. in a
+ * nested call on a pinned connection) is not shared; the second caller gets a
+ * plain statement instead. Statements a caller never closed, e.g. after an
+ * SQLException, are closed when the connection goes back to the pool (see
+ * {@link #reclaim()}). The size can be changed with
+ * -Dbistro.pool.statementCacheSize=N (0 disables the cache).
+ *
+ * The cache is guarded by a ReentrantLock rather than synchronized, since it makes
+ * JDBC calls while holding it and the request threads are virtual threads.
+ */
+class StatementCache {
+
+    static final int SIZE = Math.max(0, Integer.getInteger("bistro.pool.statementCacheSize", 64));
+
+    private final Connection connection;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Entries currently held by a caller, including evicted ones
+    private final Set<Entry> held = new HashSet<>();
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /** A cached statement and whether a caller currently holds it. */
+    private static final class Entry {
+        final PreparedStatement statement;
+        boolean inUse;
+        boolean evicted;
+        long lease; // Counts hand-outs, so a stale wrapper cannot give back a later one
+
+        Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+
+    /**
+     * @param connection the physical connection the statements belong to
+     */
+    StatementCache(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Wraps the physical connection so that its prepareStatement calls use this cache.
+     *
+     * @return the wrapped connection
+     */
+    Connection wrapConnection() {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getName().equals("prepareStatement") && SIZE > 0) {
+                if (args.length == 1) {
+                    return prepare((String) args[0], null, proxy);
+                }
+                if (args.length == 2 && args[1] instanceof Integer keys) {
+                    return prepare((String) args[0], keys, proxy);
+                }
+            }
+            return invoke(connection, method, args);
+        };
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, handler);
+    }
+
+    /**
+     * Closes all cached statements, e.g. before the connection is closed.
+     */
+    void clear() {
+        lock.lock();
+        try {
+            for (Entry entry : entries.values()) {
+                closeQuietly(entry.statement);
+            }
+            for (Entry entry : held) {
+                if (entry.evicted) {
+                    closeQuietly(entry.statement);
+                }
+            }
+            entries.clear();
+            held.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes back the statements that callers did not close, e.g. because an
+     * SQLException skipped their close() call. They are closed and dropped from
+     * the cache, since they may still have open result sets. Called when the
+     * connection goes back to the pool.
+     */
+    void reclaim() {
+        lock.lock();
+        try {
+            for (Entry entry : held) {
+                entry.inUse = false;
+                if (!entry.evicted) {
+                    entries.values().remove(entry);
+                }
+                closeQuietly(entry.statement);
+            }
+            held.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of prepareStatement calls served from the cache
+     */
+    long getHits() {
+        lock.lock();
+        try {
+            return hits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of prepareStatement calls that had to prepare a new statement
+     */
+    long getMisses() {
+        lock.lock();
+        try {
+            return misses;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private PreparedStatement prepare(String sql, Integer autoGeneratedKeys, Object wrapper)
+            throws SQLException {
+        String key = autoGeneratedKeys == null ? sql : autoGeneratedKeys + "|" + sql;
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+
+            if (entry != null && entry.inUse) {
+                // Already held by an outer caller: hand out a statement of its own
+                misses++;
+                return autoGeneratedKeys == null
+                        ? connection.prepareStatement(sql)
+                        : connection.prepareStatement(sql, autoGeneratedKeys);
+            }
+            if (entry == null) {
+                misses++;
+                PreparedStatement ps = autoGeneratedKeys == null
+                        ? connection.prepareStatement(sql)
+                        : connection.prepareStatement(sql, autoGeneratedKeys);
+                entry = new Entry(ps);
+                entries.put(key, entry);
+                evictOverflow();
+            } else {
+                hits++;
+            }
+
+            entry.inUse = true;
+            held.add(entry);
+            return wrapStatement(entry, ++entry.lease, wrapper);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evictOverflow() {
+        List<String> overflow = new ArrayList<>();
+        int excess = entries.size() - SIZE;
+        for (String key : entries.keySet()) { // Least recently used first
+            if (excess-- <= 0) {
+                break;
+            }
+            overflow.add(key);
+        }
+        for (String key : overflow) {
+            Entry entry = entries.remove(key);
+            if (entry.inUse) {
+                entry.evicted = true; // Closed when its caller is done with it
+            } else {
+                closeQuietly(entry.statement);
+            }
+        }
+    }
+
+    private PreparedStatement wrapStatement(Entry entry, long lease, Object connectionWrapper) {
+        boolean[] returned = { false };
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!returned[0]) {
+                        returned[0] = true;
+                        giveBack(entry, lease);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned[0] || entry.statement.isClosed();
+                }
+                case "getConnection" -> {
+                    return connectionWrapper;
+                }
+                default -> {
+                    if (returned[0]) {
+                        throw new SQLException("Statement already closed");
+                    }
+                    return invoke(entry.statement, method, args);
+                }
+            }
+        };
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class }, handler);
+    }
+
+    private void giveBack(Entry entry, long lease) {
+        lock.lock();
+        try {
+            if (!entry.inUse || entry.lease != lease) {
+                return; // Already reclaimed with the connection
+            }
+            entry.inUse = false;
+            held.remove(entry);
+            if (entry.evicted) {
+                closeQuietly(entry.statement);
+                return;
+            }
+            try {
+                // Leave no parameters or streaming fetch mode behind for the next caller
+                entry.statement.clearParameters();
+                entry.statement.setFetchSize(0);
+            } catch (SQLException e) {
+                entries.values().remove(entry);
+                closeQuietly(entry.statement);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            ServerLog.error("[Pool] Error closing cached statement: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package data_access;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Cache of computed availability results (free slots, alternative slots), so that the
+ * popular (date, party size) questions are not recomputed for every client.
+ *
+ * Each entry remembers the dates its result depends on. Code that changes
+ * reservations, tables or opening hours invalidates the affected dates after its
+ * commit; table changes affect every date. Entries also expire after
+ * bistro.availability.cacheTtlMs (default 30 seconds), since results depend on the
+ * current time too, and at most bistro.availability.cacheSize entries are kept
+ * (default 512, least recently used are dropped first; 0 disables the cache).
+ *
+ * A result computed while an invalidation happened is not cached, so a result read
+ * before a change can never be stored after that change was invalidated. Callers
+ * take a {@link #stamp()} before computing and pass it to {@link #put}.
+ */
+public final class AvailabilityCache {
+
+    private static final int MAX_ENTRIES = Math.max(0, Integer.getInteger("bistro.availability.cacheSize", 512));
+    private static final long TTL_MS = Long.getLong("bistro.availability.cacheTtlMs", 30_000L);
+
+    private static final AvailabilityCache instance = new AvailabilityCache();
+
+    private record Key(String kind, LocalDate date, int guestCount, Object detail) {}
+
+    private static final class Entry {
+        final List<LocalDateTime> value;
+        final LocalDate from;
+        final LocalDate to;
+        final long expiresAt;
+
+        Entry(List<LocalDateTime> value, LocalDate from, LocalDate to, long expiresAt) {
+            this.value = value;
+            this.from = from;
+            this.to = to;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean covers(LocalDate date) {
+            return !date.isBefore(from) && !date.isAfter(to);
+        }
+    }
+
+    // Access-ordered, so the first entry is the least recently used
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    // Incremented by every invalidation; see put()
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder invalidated = new LongAdder();
+
+    private AvailabilityCache() {}
+
+    /**
+     * @return the singleton instance
+     */
+    public static AvailabilityCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Looks up a result.
+     *
+     * @param kind the kind of result, e.g. the command name
+     * @param date the requested date
+     * @param guestCount the party size
+     * @param detail further request parameters the result depends on, or null
+     * @return the cached slots (unmodifiable), or null if not cached
+     */
+    public synchronized List<LocalDateTime> get(String kind, LocalDate date, int guestCount, Object detail) {
+        if (MAX_ENTRIES == 0) {
+            return null;
+        }
+        Key key = new Key(kind, date, guestCount, detail);
+        Entry entry = entries.get(key);
+        if (entry != null && System.currentTimeMillis() >= entry.expiresAt) {
+            entries.remove(key);
+            expired.increment();
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * @return the current invalidation count, to be taken before computing a result
+     */
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Stores a result, unless something was invalidated since {@code stamp} was taken.
+     *
+     * @param kind the kind of result
+     * @param date the requested date
+     * @param guestCount the party size
+     * @param detail further request parameters, or null
+     * @param from first date the result depends on
+     * @param to last date the result depends on
+     * @param value the slots
+     * @param stamp value of {@link #stamp()} before the result was computed
+     */
+    public synchronized void put(String kind, LocalDate date, int guestCount, Object detail,
+                                 LocalDate from, LocalDate to, List<LocalDateTime> value, long stamp) {
+        if (MAX_ENTRIES == 0 || invalidations.get() != stamp) {
+            return;
+        }
+        entries.put(new Key(kind, date, guestCount, detail),
+                new Entry(List.copyOf(value), from, to, System.currentTimeMillis() + TTL_MS));
+        while (entries.size() > MAX_ENTRIES) {
+            Iterator<Entry> eldest = entries.values().iterator();
+            eldest.next();
+            eldest.remove();
+            evicted.increment();
+        }
+    }
+
+    /**
+     * Drops the results that depend on a date, e.g. after a reservation of that date
+     * was created or cancelled, or its special hours changed.
+     *
+     * @param date the changed date
+     */
+    public void invalidate(LocalDate date) {
+        invalidations.incrementAndGet();
+        removeIf(entry -> entry.covers(date));
+    }
+
+    /**
+     * Drops the results that depend on any date with the given weekday, e.g. after the
+     * weekly opening hours of that day changed.
+     *
+     * @param weekday the changed weekday
+     */
+    public void invalidate(DayOfWeek weekday) {
+        invalidations.incrementAndGet();
+        removeIf(entry -> {
+            for (LocalDate d = entry.from; !d.isAfter(entry.to); d = d.plusDays(1)) {
+                if (d.getDayOfWeek() == weekday) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Drops all results, e.g. after a table was added, changed or deleted.
+     */
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        removeIf(entry -> true);
+    }
+
+    /**
+     * Returns the cache counters.
+     *
+     * @return map of statistic name to value
+     */
+    public synchronized Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxSize", MAX_ENTRIES);
+        stats.put("hits", hitCount);
+        stats.put("misses", lookups - hitCount);
+        stats.put("hitRate", lookups == 0 ? 0.0 : Math.round(1000.0 * hitCount / lookups) / 1000.0);
+        stats.put("evicted", evicted.sum());
+        stats.put("expired", expired.sum());
+        stats.put("invalidated", invalidated.sum());
+        return stats;
+    }
+
+    private synchronized void removeIf(Predicate<Entry> affected) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (affected.test(it.next())) {
+                it.remove();
+                invalidated.increment();
+            }
+        }
+    }
+}
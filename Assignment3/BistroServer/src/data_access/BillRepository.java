@@ -1,6 +1,9 @@
 package data_access;
 import connection.MySQLConnectionPool;
 import connection.PooledConnection;
+import connection.ServerLog;
+import connection.ChangeEventBus;
+import common.ChangeEvent;
 import common.Message;
 import entities.Bill;
 import java.math.BigDecimal;
@@ -85,7 +88,7 @@ public class BillRepository {
             return Message.ok("CREATE_BILL", bill);
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[BillRepository] createBill failed: " + e.getMessage(), e);
             return Message.fail("CREATE_BILL", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -181,7 +184,7 @@ public class BillRepository {
                 "Please check your code and try again.");
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[BillRepository] getBill failed: " + e.getMessage(), e);
             return Message.fail("GET_BILL", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -298,96 +301,105 @@ public class BillRepository {
                 return Message.fail("PAY_BILL", "Database connection failed");
             }
 
-            Connection conn = pConn.getConnection();
-            
-            // Find reservation by confirmation code
-            String resSql = "SELECT reservation_id, assigned_table_number, reservation_status, subscriber_number " +
-                    "FROM reservations WHERE confirmation_code = ?";
-            PreparedStatement resPs = conn.prepareStatement(resSql);
-            resPs.setString(1, confirmationCode);
-            ResultSet resRs = resPs.executeQuery();
+            // Completing the reservation and releasing the table happen together
+            return TransactionTemplate.inTransaction(pConn.getConnection(), conn -> {
+                // Find reservation by confirmation code
+                String resSql = "SELECT reservation_id, booking_date, assigned_table_number, reservation_status, subscriber_number " +
+                        "FROM reservations WHERE confirmation_code = ? FOR UPDATE";
+                PreparedStatement resPs = conn.prepareStatement(resSql);
+                resPs.setString(1, confirmationCode);
+                ResultSet resRs = resPs.executeQuery();
+
+                if (!resRs.next()) {
+                    resRs.close();
+                    resPs.close();
+                    return Message.fail("PAY_BILL", "Confirmation code not found.");
+                }
 
-            if (!resRs.next()) {
+                int reservationId = resRs.getInt("reservation_id");
+                LocalDate bookingDate = resRs.getDate("booking_date").toLocalDate();
+                String status = resRs.getString("reservation_status");
+                Integer tableNumber = resRs.getObject("assigned_table_number") != null 
+                        ? resRs.getInt("assigned_table_number") : null;
+                String subscriberNumber = resRs.getString("subscriber_number");
                 resRs.close();
                 resPs.close();
-                return Message.fail("PAY_BILL", "Confirmation code not found.");
-            }
 
-            int reservationId = resRs.getInt("reservation_id");
-            String status = resRs.getString("reservation_status");
-            Integer tableNumber = resRs.getObject("assigned_table_number") != null 
-                    ? resRs.getInt("assigned_table_number") : null;
-            String subscriberNumber = resRs.getString("subscriber_number");
-            resRs.close();
-            resPs.close();
+                // Validate status - must be ACTIVE and have a table assigned
+                if ("COMPLETED".equals(status)) {
+                    return Message.fail("PAY_BILL", "This bill has already been paid.");
+                }
+                if (!"ACTIVE".equals(status)) {
+                    return Message.fail("PAY_BILL", "Cannot pay for this reservation (status: " + status + ").");
+                }
+                if (tableNumber == null || tableNumber <= 0) {
+                    return Message.fail("PAY_BILL", "Payment is only available after you've been seated.");
+                }
 
-            // Validate status - must be ACTIVE and have a table assigned
-            if ("COMPLETED".equals(status)) {
-                return Message.fail("PAY_BILL", "This bill has already been paid.");
-            }
-            if (!"ACTIVE".equals(status)) {
-                return Message.fail("PAY_BILL", "Cannot pay for this reservation (status: " + status + ").");
-            }
-            if (tableNumber == null || tableNumber <= 0) {
-                return Message.fail("PAY_BILL", "Payment is only available after you've been seated.");
-            }
+                // Convert to primitive int safely (null check already done above)
+                int tableNum = tableNumber.intValue();
 
-            // Convert to primitive int safely (null check already done above)
-            int tableNum = tableNumber.intValue();
+                // Find bill for this table
+                String billSql = "SELECT * FROM bills WHERE table_number = ? AND payment_date = CURDATE() ORDER BY bill_number DESC LIMIT 1";
+                PreparedStatement billPs = conn.prepareStatement(billSql);
+                billPs.setInt(1, tableNum);
+                ResultSet billRs = billPs.executeQuery();
 
-            // Find bill for this table
-            String billSql = "SELECT * FROM bills WHERE table_number = ? AND payment_date = CURDATE() ORDER BY bill_number DESC LIMIT 1";
-            PreparedStatement billPs = conn.prepareStatement(billSql);
-            billPs.setInt(1, tableNum);
-            ResultSet billRs = billPs.executeQuery();
+                if (!billRs.next()) {
+                    billRs.close();
+                    billPs.close();
+                    return Message.fail("PAY_BILL", "No bill found. Please contact staff.");
+                }
 
-            if (!billRs.next()) {
+                Bill bill = extractBillFromResultSet(billRs);
                 billRs.close();
                 billPs.close();
-                return Message.fail("PAY_BILL", "No bill found. Please contact staff.");
-            }
 
-            Bill bill = extractBillFromResultSet(billRs);
-            billRs.close();
-            billPs.close();
-            
-            // Update reservation status to COMPLETED
-            String updateResSql = "UPDATE reservations SET reservation_status = 'COMPLETED' WHERE reservation_id = ?";
-            PreparedStatement updateResPs = conn.prepareStatement(updateResSql);
-            updateResPs.setInt(1, reservationId);
-            updateResPs.executeUpdate();
-            updateResPs.close();
-            
-            // Release the table (mark as AVAILABLE)
-            String releaseSql = "UPDATE tables_info SET table_status = 'AVAILABLE', " +
-                               "reservation_start = NULL, reservation_end = NULL " +
-                               "WHERE table_number = ?";
-            PreparedStatement releasePs = conn.prepareStatement(releaseSql);
-            releasePs.setInt(1, tableNum);
-            releasePs.executeUpdate();
-            releasePs.close();
-            
-            // Calculate final amount after discount
-            BigDecimal finalAmount = bill.getTotalPrice().subtract(bill.getDiscountValue());
-            
-            // Log payment for subscribers
-            if (subscriberNumber != null && !subscriberNumber.trim().isEmpty()) {
-                TagRepository.logPayment(conn, subscriberNumber, confirmationCode, 
-                        tableNum, bill.getTotalPrice(), bill.getDiscountValue());
-            }
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("billNumber", bill.getBillNumber());
-            response.put("totalPrice", bill.getTotalPrice());
-            response.put("discountValue", bill.getDiscountValue());
-            response.put("finalAmount", finalAmount);
-            response.put("tableNumber", tableNum);
-            response.put("message", "Payment processed. Table " + tableNum + " is now available.");
-            
-            return Message.ok("PAY_BILL", response);
+                // Update reservation status to COMPLETED
+                String updateResSql = "UPDATE reservations SET reservation_status = 'COMPLETED' WHERE reservation_id = ?";
+                PreparedStatement updateResPs = conn.prepareStatement(updateResSql);
+                updateResPs.setInt(1, reservationId);
+                updateResPs.executeUpdate();
+                updateResPs.close();
+
+                // Release the table (mark as AVAILABLE)
+                String releaseSql = "UPDATE tables_info SET table_status = 'AVAILABLE', " +
+                                   "reservation_start = NULL, reservation_end = NULL " +
+                                   "WHERE table_number = ?";
+                PreparedStatement releasePs = conn.prepareStatement(releaseSql);
+                releasePs.setInt(1, tableNum);
+                releasePs.executeUpdate();
+                releasePs.close();
+
+                // Calculate final amount after discount
+                BigDecimal finalAmount = bill.getTotalPrice().subtract(bill.getDiscountValue());
+
+                // Log payment for subscribers
+                if (subscriberNumber != null && !subscriberNumber.trim().isEmpty()) {
+                    TagRepository.logPayment(conn, subscriberNumber, confirmationCode, 
+                            tableNum, bill.getTotalPrice(), bill.getDiscountValue());
+                }
+
+                TransactionTemplate.afterCommit(() -> {
+                    SlotOccupancyIndex.getInstance().reservationRemoved(reservationId, bookingDate);
+                    AvailabilityCache.getInstance().invalidate(bookingDate);
+                    ChangeEventBus.getInstance().publish(ChangeEvent.TABLES, "RELEASED", tableNum);
+                    ChangeEventBus.getInstance().publish(ChangeEvent.RESERVATIONS, "COMPLETED", reservationId, bookingDate);
+                });
+
+                Map<String, Object> response = new HashMap<>();
+                response.put("billNumber", bill.getBillNumber());
+                response.put("totalPrice", bill.getTotalPrice());
+                response.put("discountValue", bill.getDiscountValue());
+                response.put("finalAmount", finalAmount);
+                response.put("tableNumber", tableNum);
+                response.put("message", "Payment processed. Table " + tableNum + " is now available.");
+
+                return Message.ok("PAY_BILL", response);
+            });
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[BillRepository] payBill failed: " + e.getMessage(), e);
             return Message.fail("PAY_BILL", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -0,0 +1,215 @@
+package data_access;
+
+import connection.ServerLog;
+import entities.OpeningHours;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory calendar of the effective opening hours per date: the weekly hours,
+ * replaced by special hours where a date has them.
+ *
+ * The calendar is loaded once at startup (two queries) and the schedule of the next
+ * bistro.hours.horizonDays dates (default 62) is resolved in advance. Opening hours
+ * change rarely, so OpeningHoursRepository calls {@link #reload(Connection)} after
+ * every change: a complete new schedule is built and then swapped in with one write,
+ * so readers never see a half-updated calendar and never wait for a reload. Dates
+ * outside the resolved horizon are resolved on demand from the same snapshot.
+ */
+public final class OpeningHoursCalendar {
+
+    private static final int HORIZON_DAYS = Math.max(1, Integer.getInteger("bistro.hours.horizonDays", 62));
+
+    private static final OpeningHoursCalendar instance = new OpeningHoursCalendar();
+
+    /** Effective hours of one date; a null Day means closed. */
+    private static final class Day {
+        final LocalTime opening;
+        final LocalTime closing;
+
+        Day(LocalTime opening, LocalTime closing) {
+            this.opening = opening;
+            this.closing = closing;
+        }
+    }
+
+    /** One immutable version of the calendar. */
+    private static final class Snapshot {
+        final Map<DayOfWeek, Day> weekly;
+        final Map<LocalDate, Day> special; // Closed special dates map to a Day with null times
+        final LocalDate start;
+        final Day[] resolved; // Effective hours of start .. start + HORIZON_DAYS - 1
+
+        Snapshot(Map<DayOfWeek, Day> weekly, Map<LocalDate, Day> special, LocalDate start) {
+            this.weekly = weekly;
+            this.special = special;
+            this.start = start;
+            this.resolved = new Day[HORIZON_DAYS];
+            for (int i = 0; i < HORIZON_DAYS; i++) {
+                resolved[i] = resolve(start.plusDays(i));
+            }
+        }
+
+        Day get(LocalDate date) {
+            long offset = date.toEpochDay() - start.toEpochDay();
+            if (offset >= 0 && offset < HORIZON_DAYS) {
+                return resolved[(int) offset];
+            }
+            return resolve(date);
+        }
+
+        private Day resolve(LocalDate date) {
+            Day day = special.get(date);
+            if (day != null) {
+                return day.opening == null ? null : day;
+            }
+            return weekly.get(date.getDayOfWeek());
+        }
+    }
+
+    private volatile Snapshot current;
+
+    private OpeningHoursCalendar() {}
+
+    /**
+     * @return the singleton instance
+     */
+    public static OpeningHoursCalendar getInstance() {
+        return instance;
+    }
+
+    /**
+     * Loads the weekly and special hours and replaces the calendar. Called at startup
+     * and after every change of the opening hours.
+     *
+     * @param conn database connection
+     * @throws SQLException if loading fails; the previous calendar stays in use
+     */
+    public synchronized void reload(Connection conn) throws SQLException {
+        Map<DayOfWeek, Day> weekly = new EnumMap<>(DayOfWeek.class);
+        PreparedStatement weeklyPs = conn.prepareStatement(
+                "SELECT weekday, opening_time, closing_time FROM opening_hours");
+        ResultSet weeklyRs = weeklyPs.executeQuery();
+        while (weeklyRs.next()) {
+            weekly.put(DayOfWeek.valueOf(weeklyRs.getString("weekday")),
+                    new Day(weeklyRs.getTime("opening_time").toLocalTime(),
+                            weeklyRs.getTime("closing_time").toLocalTime()));
+        }
+        weeklyRs.close();
+        weeklyPs.close();
+
+        Map<LocalDate, Day> special = new HashMap<>();
+        PreparedStatement specialPs = conn.prepareStatement(
+                "SELECT special_date, opening_time, closing_time, closed_flag FROM special_hours");
+        ResultSet specialRs = specialPs.executeQuery();
+        while (specialRs.next()) {
+            LocalDate date = specialRs.getDate("special_date").toLocalDate();
+            if (specialRs.getBoolean("closed_flag")) {
+                special.put(date, new Day(null, null));
+            } else {
+                special.put(date, new Day(toLocalTime(specialRs.getTime("opening_time")),
+                        toLocalTime(specialRs.getTime("closing_time"))));
+            }
+        }
+        specialRs.close();
+        specialPs.close();
+
+        current = new Snapshot(weekly, special, LocalDate.now());
+        ServerLog.info("[Hours] Opening hours calendar loaded: " + weekly.size() + " weekdays, "
+                + special.size() + " special dates");
+    }
+
+    /**
+     * Gets the effective opening hours of a date.
+     *
+     * @param date the date
+     * @param conn connection used to load the calendar if it is not loaded yet
+     * @return the opening hours, or null if the restaurant is closed that day
+     * @throws SQLException if the calendar must be loaded and loading fails
+     */
+    public OpeningHours getHours(LocalDate date, Connection conn) throws SQLException {
+        return toOpeningHours(date, snapshot(conn).get(date));
+    }
+
+    /**
+     * Gets the effective opening hours of every date in a range.
+     *
+     * @param from first date
+     * @param to last date
+     * @param conn connection used to load the calendar if it is not loaded yet
+     * @return opening hours per date; closed dates are absent
+     * @throws SQLException if the calendar must be loaded and loading fails
+     */
+    public Map<LocalDate, OpeningHours> getHours(LocalDate from, LocalDate to, Connection conn) throws SQLException {
+        Snapshot snapshot = snapshot(conn);
+        Map<LocalDate, OpeningHours> result = new HashMap<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            OpeningHours hours = toOpeningHours(date, snapshot.get(date));
+            if (hours != null) {
+                result.put(date, hours);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether a date has special hours (including a special closure).
+     *
+     * @param date the date
+     * @param conn connection used to load the calendar if it is not loaded yet
+     * @return true if special hours replace the weekly hours on that date
+     * @throws SQLException if the calendar must be loaded and loading fails
+     */
+    public boolean hasSpecialHours(LocalDate date, Connection conn) throws SQLException {
+        return snapshot(conn).special.containsKey(date);
+    }
+
+    private Snapshot snapshot(Connection conn) throws SQLException {
+        Snapshot snapshot = current;
+        if (snapshot == null) {
+            synchronized (this) {
+                if (current == null) {
+                    reload(conn);
+                }
+                snapshot = current;
+            }
+        }
+        if (!snapshot.start.equals(LocalDate.now())) {
+            // A new day: shift the resolved horizon, from memory
+            snapshot = rollTo(snapshot, LocalDate.now());
+        }
+        return snapshot;
+    }
+
+    private synchronized Snapshot rollTo(Snapshot snapshot, LocalDate today) {
+        if (current == snapshot) {
+            current = new Snapshot(snapshot.weekly, snapshot.special, today);
+        }
+        return current;
+    }
+
+    private static OpeningHours toOpeningHours(LocalDate date, Day day) {
+        if (day == null) {
+            return null;
+        }
+        OpeningHours hours = new OpeningHours();
+        hours.setWeekday(OpeningHours.Weekday.valueOf(date.getDayOfWeek().name()));
+        hours.setOpeningTime(day.opening);
+        hours.setClosingTime(day.closing);
+        return hours;
+    }
+
+    private static LocalTime toLocalTime(Time time) {
+        return time == null ? null : time.toLocalTime();
+    }
+}
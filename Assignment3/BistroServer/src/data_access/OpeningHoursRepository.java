@@ -1,6 +1,7 @@
 package data_access;
 import connection.MySQLConnectionPool;
 import connection.PooledConnection;
+import connection.ServerLog;
 import common.Message;
 import entities.OpeningHours;
 import entities.SpecialHours;
@@ -11,6 +12,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Date;
 import java.sql.Time;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
@@ -58,7 +60,7 @@ public class OpeningHoursRepository {
 			return Message.ok("GET_OPENING_HOURS", hoursList);
 
 		} catch (SQLException e) {
-			e.printStackTrace();
+			ServerLog.error("[OpeningHoursRepository] getOpeningHours failed: " + e.getMessage(), e);
 			return Message.fail("GET_OPENING_HOURS", "Database error: " + e.getMessage());
 		} finally {
 			pool.releaseConnection(pConn);
@@ -96,19 +98,23 @@ public class OpeningHoursRepository {
 			ps.close();
 
 			if (rowsAffected > 0) {
+				OpeningHoursCalendar.getInstance().reload(conn);
+
 				// Check and cancel affected reservations
 				AvailabilityService.handleOpeningHoursChange(
+					conn,
 					hours.getWeekday(), 
 					hours.getOpeningTime(), 
 					hours.getClosingTime()
 				);
+				AvailabilityCache.getInstance().invalidate(DayOfWeek.valueOf(hours.getWeekday().name()));
 				return Message.ok("UPDATE_OPENING_HOURS", "Opening hours updated successfully");
 			} else {
 				return Message.fail("UPDATE_OPENING_HOURS", "Weekday not found");
 			}
 
 		} catch (SQLException e) {
-			e.printStackTrace();
+			ServerLog.error("[OpeningHoursRepository] updateOpeningHours failed: " + e.getMessage(), e);
 			return Message.fail("UPDATE_OPENING_HOURS", "Database error: " + e.getMessage());
 		} finally {
 			pool.releaseConnection(pConn);
@@ -149,7 +155,7 @@ public class OpeningHoursRepository {
 			return Message.ok("GET_SPECIAL_HOURS", specialHoursList);
 
 		} catch (SQLException e) {
-			e.printStackTrace();
+			ServerLog.error("[OpeningHoursRepository] getSpecialHours failed: " + e.getMessage(), e);
 			return Message.fail("GET_SPECIAL_HOURS", "Database error: " + e.getMessage());
 		} finally {
 			pool.releaseConnection(pConn);
@@ -207,19 +213,22 @@ public class OpeningHoursRepository {
 			ps.close();
 
 			specialHours.setSpecialId(specialId);
+			OpeningHoursCalendar.getInstance().reload(conn);
 
 			// Check and cancel affected reservations
 			AvailabilityService.handleSpecialHoursChange(
+				conn,
 				specialHours.getSpecialDate(),
 				specialHours.getOpeningTime(),
 				specialHours.getClosingTime(),
 				specialHours.getClosedFlag()
 			);
+			AvailabilityCache.getInstance().invalidate(specialHours.getSpecialDate());
 
 			return Message.ok("ADD_SPECIAL_HOURS", specialHours);
 
 		} catch (SQLException e) {
-			e.printStackTrace();
+			ServerLog.error("[OpeningHoursRepository] addSpecialHours failed: " + e.getMessage(), e);
 			return Message.fail("ADD_SPECIAL_HOURS", "Database error: " + e.getMessage());
 		} finally {
 			pool.releaseConnection(pConn);
@@ -257,13 +266,15 @@ public class OpeningHoursRepository {
 			ps.close();
 
 			if (rowsAffected > 0) {
+				OpeningHoursCalendar.getInstance().reload(conn);
+				AvailabilityCache.getInstance().invalidate(specialDate);
 				return Message.ok("DELETE_SPECIAL_HOURS", "Special hours deleted successfully");
 			} else {
 				return Message.fail("DELETE_SPECIAL_HOURS", "Special hours not found for this date");
 			}
 
 		} catch (SQLException e) {
-			e.printStackTrace();
+			ServerLog.error("[OpeningHoursRepository] deleteSpecialHours failed: " + e.getMessage(), e);
 			return Message.fail("DELETE_SPECIAL_HOURS", "Database error: " + e.getMessage());
 		} finally {
 			pool.releaseConnection(pConn);
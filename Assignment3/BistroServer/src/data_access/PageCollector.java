@@ -0,0 +1,168 @@
+package data_access;
+
+import common.Message;
+import common.Paging;
+import connection.RequestDispatcher;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Collects the rows of a paged or streamed list request (see {@link Paging}).
+ * The repository reads its rows with a keyset condition built from {@link #cursor(int)},
+ * passes each row to {@link #add(Object)} until it returns false, and answers with
+ * {@link #finish()}. In streaming mode full chunks are sent to the client while rows
+ * are still being read, so only one chunk is held in memory at a time.
+ *
+ * @param <T> the row type
+ */
+class PageCollector<T> {
+
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 500;
+    static final int CHUNK_SIZE = 100;
+
+    private final String command;
+    private final Message request;
+    private final Map<?, ?> options;
+    private final Function<T, List<Object>> cursorOf;
+    private final int limit;
+    private final boolean stream;
+
+    private List<Object> items = new ArrayList<>();
+    private T lastRow;
+    private int count = 0;
+    private int chunk = 0;
+    private boolean hasMore = false;
+
+    /**
+     * @param command the command name used in responses
+     * @param request the request whose data holds the options
+     * @param cursorOf returns the sort key values of a row, in ORDER BY order
+     */
+    PageCollector(String command, Message request, Function<T, List<Object>> cursorOf) {
+        this.command = command;
+        this.request = request;
+        this.options = request.getData() instanceof Map<?, ?> map ? map : Map.of();
+        this.cursorOf = cursorOf;
+        // Inside a batch the rows can only travel in the one composite response
+        this.stream = Boolean.TRUE.equals(options.get(Paging.STREAM)) && RequestDispatcher.canSendPartial();
+
+        Object requested = options.get(Paging.LIMIT);
+        int size = requested instanceof Integer n ? n : (stream ? Integer.MAX_VALUE : DEFAULT_PAGE_SIZE);
+        this.limit = stream && requested == null ? size : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Checks whether a request asks for paging or streaming rather than the whole list.
+     *
+     * @param request the request
+     * @return true if the request data is a map of options
+     */
+    static boolean isPaged(Message request) {
+        return request.getData() instanceof Map<?, ?>;
+    }
+
+    /**
+     * @param size number of sort key values the cursor must have
+     * @return the cursor sent by the client, or null for the first page
+     * @throws IllegalArgumentException if the cursor does not have the expected number of values
+     */
+    List<?> cursor(int size) {
+        Object cursor = options.get(Paging.CURSOR);
+        if (cursor == null) {
+            return null;
+        }
+        if (!(cursor instanceof List<?> list) || list.size() != size || list.contains(null)) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return list;
+    }
+
+    /**
+     * @param key the option name
+     * @return the value of a text option, or null if absent
+     */
+    String text(String key) {
+        return options.get(key) instanceof String s && !s.isBlank() ? s.trim() : null;
+    }
+
+    /**
+     * @param key the option name
+     * @return a date option given as LocalDate or yyyy-MM-dd text, or null if absent
+     * @throws java.time.format.DateTimeParseException if the text is not a date
+     */
+    LocalDate date(String key) {
+        Object value = options.get(key);
+        if (value instanceof LocalDate d) {
+            return d;
+        }
+        return value instanceof String s && !s.isBlank() ? LocalDate.parse(s.trim()) : null;
+    }
+
+    /**
+     * @return true if rows are sent in chunks while they are read; the query should
+     *         then stream its result set instead of buffering it
+     */
+    boolean isStreaming() {
+        return stream;
+    }
+
+    /**
+     * Returns the LIMIT clause for the query: one row more than the page size,
+     * to see whether another page follows.
+     *
+     * @return the clause, or an empty string when streaming without a limit
+     */
+    String limitClause() {
+        return limit == Integer.MAX_VALUE ? "" : " LIMIT " + (limit + 1);
+    }
+
+    /**
+     * Adds a row.
+     *
+     * @param row the row
+     * @return false once the page is full; the row that made it overflow is not kept
+     */
+    boolean add(T row) {
+        if (count == limit) {
+            hasMore = true;
+            return false;
+        }
+        items.add(row);
+        lastRow = row;
+        count++;
+        if (stream && items.size() == CHUNK_SIZE) {
+            RequestDispatcher.sendPartial(chunkMessage(false, null));
+            items = new ArrayList<>();
+        }
+        return true;
+    }
+
+    /**
+     * Builds the final response: the page, or the last chunk of a stream.
+     *
+     * @return the response message
+     */
+    Message finish() {
+        List<Object> next = hasMore ? cursorOf.apply(lastRow) : null;
+        return chunkMessage(true, next);
+    }
+
+    private Message chunkMessage(boolean last, List<Object> nextCursor) {
+        Map<String, Object> page = new HashMap<>();
+        page.put(Paging.ITEMS, items);
+        page.put(Paging.NEXT_CURSOR, nextCursor);
+        page.put(Paging.LAST, last);
+        if (stream) {
+            page.put(Paging.CHUNK, chunk++);
+        }
+        Message response = Message.ok(command, page);
+        // Chunks are sent directly, so they need the request ID themselves
+        return last ? response : response.withRequestId(request.getRequestId());
+    }
+}
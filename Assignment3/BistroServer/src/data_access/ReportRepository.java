@@ -2,6 +2,7 @@ package data_access;
 
 import connection.MySQLConnectionPool;
 import connection.PooledConnection;
+import connection.ServerLog;
 import common.Message;
 
 import java.sql.Connection;
@@ -27,7 +28,7 @@ public class ReportRepository {
      * @return Message with report data
      */
     public Message getTimeReport(Message request) {
-        MySQLConnectionPool pool = MySQLConnectionPool.getInstance();
+        MySQLConnectionPool pool = MySQLConnectionPool.getReadInstance();
         PooledConnection pConn = null;
 
         try {
@@ -244,7 +245,7 @@ public class ReportRepository {
             return Message.ok("GET_TIME_REPORT", reportData);
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[ReportRepository] getTimeReport failed: " + e.getMessage(), e);
             return Message.fail("GET_TIME_REPORT", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -259,7 +260,7 @@ public class ReportRepository {
      * @return Message with report data
      */
     public Message getSubscribersReport(Message request) {
-        MySQLConnectionPool pool = MySQLConnectionPool.getInstance();
+        MySQLConnectionPool pool = MySQLConnectionPool.getReadInstance();
         PooledConnection pConn = null;
 
         try {
@@ -479,7 +480,7 @@ public class ReportRepository {
             return Message.ok("GET_SUBSCRIBERS_REPORT", reportData);
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[ReportRepository] getSubscribersReport failed: " + e.getMessage(), e);
             return Message.fail("GET_SUBSCRIBERS_REPORT", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -1,9 +1,12 @@
 package data_access;
 import connection.MySQLConnectionPool;
 import connection.PooledConnection;
+import connection.ServerLog;
+import connection.ChangeEventBus;
+import common.ChangeEvent;
 import common.Message;
+import common.Paging;
 import entities.Reservation;
-import entities.Table;
 import entities.User;
 import entities.OpeningHours;
 import java.sql.Connection;
@@ -12,14 +15,17 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Date;
 import java.sql.Time;
-import java.time.DayOfWeek;
+import java.time.DateTimeException;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * Repository for managing reservations.
@@ -28,6 +34,19 @@ import java.util.UUID;
  */
 public class ReservationRepository {
 
+    // Slot grid, and the booking times that overlap a slot starting at t: [t - 2h, t + 30min]
+    private static final int SLOT_SECONDS = 30 * 60;
+    private static final int OVERLAP_BEFORE_SECONDS = 2 * 3600;
+    private static final int OVERLAP_AFTER_SECONDS = 30 * 60;
+
+    // Longest date range of one GET_AVAILABILITY_CALENDAR request
+    private static final int MAX_CALENDAR_DAYS = 62;
+
+    // Alternative search: days before/after the requested date, slots per day, slots in total
+    private static final int ALTERNATIVE_DAYS = 7;
+    private static final int ALTERNATIVES_PER_DAY = 3;
+    private static final int MAX_ALTERNATIVES = 15;
+
     /**
      * Gets available time slots for a given date and number of guests.
      * 
@@ -44,6 +63,13 @@ public class ReservationRepository {
             LocalDate date = LocalDate.parse((String) data.get("date"));
             int guestCount = (Integer) data.get("guestCount");
 
+            AvailabilityCache cache = AvailabilityCache.getInstance();
+            List<LocalDateTime> cached = cache.get("GET_AVAILABLE_SLOTS", date, guestCount, null);
+            if (cached != null) {
+                return Message.ok("GET_AVAILABLE_SLOTS", new ArrayList<>(cached));
+            }
+            long stamp = cache.stamp();
+
             pConn = pool.getConnection();
             if (pConn == null) {
                 return Message.fail("GET_AVAILABLE_SLOTS", "Database connection failed");
@@ -52,37 +78,18 @@ public class ReservationRepository {
             Connection conn = pConn.getConnection();
 
             // Get opening hours for this date
-            OpeningHours hours = getOpeningHoursForDate(date, conn);
-            if (hours == null) {
-                return Message.ok("GET_AVAILABLE_SLOTS", new ArrayList<LocalDateTime>());
-            }
-
-            LocalTime openingTime = hours.getOpeningTime();
-            LocalTime closingTime = hours.getClosingTime();
-            LocalTime lastSlot = closingTime.minusHours(2);
-
-            if (lastSlot.isBefore(openingTime)) {
-                return Message.ok("GET_AVAILABLE_SLOTS", new ArrayList<LocalDateTime>());
-            }
-
-            // Generate all possible slots (every 30 minutes)
             List<LocalDateTime> availableSlots = new ArrayList<>();
-            LocalTime currentTime = openingTime;
-
-            while (!currentTime.isAfter(lastSlot)) {
-                LocalDateTime slotDateTime = LocalDateTime.of(date, currentTime);
-                
-                if (isSlotAvailable(slotDateTime, guestCount, conn)) {
-                    availableSlots.add(slotDateTime);
-                }
-                
-                currentTime = currentTime.plusMinutes(30);
+            OpeningHours hours = OpeningHoursCalendar.getInstance().getHours(date, conn);
+            if (hours != null) {
+                TableAllocator tables = TableCatalog.get(conn).getAllocator();
+                availableSlots = findAvailableSlots(date, hours, guestCount, tables, Integer.MAX_VALUE, conn);
             }
 
+            cache.put("GET_AVAILABLE_SLOTS", date, guestCount, null, date, date, availableSlots, stamp);
             return Message.ok("GET_AVAILABLE_SLOTS", availableSlots);
 
         } catch (Exception e) {
-            e.printStackTrace();
+            ServerLog.error("[ReservationRepository] getAvailableSlots failed: " + e.getMessage(), e);
             return Message.fail("GET_AVAILABLE_SLOTS", "Error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -93,8 +100,13 @@ public class ReservationRepository {
      * Gets alternative time slots when the requested date is fully booked.
      * Searches within 7 days before and after the requested date.
      * 
-     * @param request Message containing date and guestCount
-     * @return Message with List of alternative LocalDateTime slots
+     * Opening hours, tables and reservations of the whole window are read once into
+     * memory, and the candidate days are then checked in parallel. Results are ranked by
+     * distance from the requested date, then from the requested time (if given), and
+     * days that can no longer make it into the result are skipped.
+     * 
+     * @param request Message containing date, guestCount and optionally time (HH:mm)
+     * @return Message with List of alternative LocalDateTime slots, best first
      */
     public Message getAlternativeSlots(Message request) {
         MySQLConnectionPool pool = MySQLConnectionPool.getInstance();
@@ -105,6 +117,26 @@ public class ReservationRepository {
             Map<String, Object> data = (Map<String, Object>) request.getData();
             LocalDate requestedDate = LocalDate.parse((String) data.get("date"));
             int guestCount = (Integer) data.get("guestCount");
+            LocalTime requestedTime = data.get("time") instanceof String time ? LocalTime.parse(time) : null;
+
+            // Search 7 days before and after, but not in the past or more than 1 month ahead
+            LocalDate today = LocalDate.now();
+            LocalDate from = requestedDate.minusDays(ALTERNATIVE_DAYS);
+            LocalDate to = requestedDate.plusDays(ALTERNATIVE_DAYS);
+            if (from.isBefore(today)) from = today;
+            if (to.isAfter(today.plusMonths(1))) to = today.plusMonths(1);
+
+            List<LocalDateTime> alternatives = new ArrayList<>();
+            if (from.isAfter(to)) {
+                return Message.ok("GET_ALTERNATIVE_SLOTS", alternatives);
+            }
+
+            AvailabilityCache cache = AvailabilityCache.getInstance();
+            List<LocalDateTime> cached = cache.get("GET_ALTERNATIVE_SLOTS", requestedDate, guestCount, requestedTime);
+            if (cached != null) {
+                return Message.ok("GET_ALTERNATIVE_SLOTS", new ArrayList<>(cached));
+            }
+            long stamp = cache.stamp();
 
             pConn = pool.getConnection();
             if (pConn == null) {
@@ -113,56 +145,138 @@ public class ReservationRepository {
 
             Connection conn = pConn.getConnection();
 
-            List<LocalDateTime> alternatives = new ArrayList<>();
-            List<Table> suitableTables = getSuitableTablesForGuests(guestCount, conn);
-            
-            if (suitableTables.isEmpty()) {
+            TableAllocator tables = TableCatalog.get(conn).getAllocator();
+            if (tables.tablesFor(guestCount) == 0) {
+                cache.put("GET_ALTERNATIVE_SLOTS", requestedDate, guestCount, requestedTime, from, to, alternatives, stamp);
                 return Message.ok("GET_ALTERNATIVE_SLOTS", alternatives);
             }
 
-            // Search 7 days before and after
-            for (int dayOffset = -7; dayOffset <= 7; dayOffset++) {
-                if (dayOffset == 0) continue; // Skip the original date
-                
-                LocalDate checkDate = requestedDate.plusDays(dayOffset);
-                
-                // Don't suggest dates in the past
-                if (checkDate.isBefore(LocalDate.now())) continue;
-                
-                // Don't suggest dates more than 1 month ahead
-                if (checkDate.isAfter(LocalDate.now().plusMonths(1))) continue;
+            Map<LocalDate, OpeningHours> hoursByDate = OpeningHoursCalendar.getInstance().getHours(from, to, conn);
+            Map<LocalDate, SlotOccupancyIndex.DayOccupancy> days = SlotOccupancyIndex.ENABLED
+                    ? SlotOccupancyIndex.getInstance().getDays(from, to, conn)
+                    : SlotOccupancyIndex.queryDays(from, to, conn);
 
-                OpeningHours hours = getOpeningHoursForDate(checkDate, conn);
-                if (hours == null) continue;
+            // Candidate days, nearest first; the connection is not needed from here on
+            List<LocalDate> candidates = new ArrayList<>();
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                if (!date.equals(requestedDate) && hoursByDate.containsKey(date)) {
+                    candidates.add(date);
+                }
+            }
+            candidates.sort(Comparator.comparingLong((LocalDate d) -> Math.abs(d.toEpochDay() - requestedDate.toEpochDay())));
+
+            // Alternatives found per distance in days, so farther days can stop early
+            AtomicIntegerArray foundAtDistance = new AtomicIntegerArray(ALTERNATIVE_DAYS + 1);
+            LocalDateTime earliest = LocalDateTime.now();
+
+            Comparator<LocalDateTime> byProximity = Comparator
+                    .comparingLong((LocalDateTime dt) -> Math.abs(dt.toLocalDate().toEpochDay() - requestedDate.toEpochDay()))
+                    .thenComparingLong(dt -> requestedTime == null ? 0
+                            : Math.abs(dt.toLocalTime().toSecondOfDay() - requestedTime.toSecondOfDay()))
+                    .thenComparing(Comparator.naturalOrder());
+
+            List<List<LocalDateTime>> perDay = candidates.parallelStream().map(date -> {
+                int distance = (int) Math.abs(date.toEpochDay() - requestedDate.toEpochDay());
+                int closer = 0;
+                for (int d = 1; d < distance; d++) {
+                    closer += foundAtDistance.get(d);
+                }
+                if (closer >= MAX_ALTERNATIVES) {
+                    return List.<LocalDateTime>of(); // Could only rank after enough nearer ones
+                }
 
-                LocalTime openingTime = hours.getOpeningTime();
-                LocalTime closingTime = hours.getClosingTime();
-                LocalTime lastSlot = closingTime.minusHours(2);
+                List<LocalDateTime> free = sweepSlots(days.get(date), hoursByDate.get(date), guestCount,
+                        tables, Integer.MAX_VALUE);
+                List<LocalDateTime> best = free.stream()
+                        .filter(dt -> dt.isAfter(earliest))
+                        .sorted(byProximity)
+                        .limit(ALTERNATIVES_PER_DAY)
+                        .toList();
+                foundAtDistance.addAndGet(distance, best.size());
+                return best;
+            }).toList();
+
+            for (List<LocalDateTime> day : perDay) {
+                alternatives.addAll(day);
+            }
+            alternatives.sort(byProximity);
+            if (alternatives.size() > MAX_ALTERNATIVES) {
+                alternatives = new ArrayList<>(alternatives.subList(0, MAX_ALTERNATIVES));
+            }
 
-                if (lastSlot.isBefore(openingTime)) continue;
+            cache.put("GET_ALTERNATIVE_SLOTS", requestedDate, guestCount, requestedTime, from, to, alternatives, stamp);
+            return Message.ok("GET_ALTERNATIVE_SLOTS", alternatives);
 
-                int slotsFoundForDay = 0;
-                LocalTime currentTime = openingTime;
+        } catch (Exception e) {
+            ServerLog.error("[ReservationRepository] getAlternativeSlots failed: " + e.getMessage(), e);
+            return Message.fail("GET_ALTERNATIVE_SLOTS", "Error: " + e.getMessage());
+        } finally {
+            pool.releaseConnection(pConn);
+        }
+    }
 
-                while (!currentTime.isAfter(lastSlot) && slotsFoundForDay < 3) {
-                    LocalDateTime slotDateTime = LocalDateTime.of(checkDate, currentTime);
-                    
-                    if (isSlotAvailable(slotDateTime, guestCount, suitableTables, conn)) {
-                        alternatives.add(slotDateTime);
-                        slotsFoundForDay++;
-                    }
-                    
-                    currentTime = currentTime.plusMinutes(30);
-                }
+    /**
+     * Summarizes availability per day for a date range, e.g. for a month calendar.
+     * Opening hours, tables and the reservations of the whole range are each read once,
+     * and every day is then computed with one sweep over its reservations.
+     * 
+     * @param request Message containing from, to (dates, inclusive) and guestCount
+     * @return Message with a List of Maps, one per day in date order, holding date (LocalDate),
+     *         open (Boolean), totalSlots and freeSlots (Integer), and firstFree and
+     *         lastFree (LocalTime, null if no slot is free)
+     */
+    public Message getAvailabilityCalendar(Message request) {
+        MySQLConnectionPool pool = MySQLConnectionPool.getInstance();
+        PooledConnection pConn = null;
+
+        try {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> data = (Map<String, Object>) request.getData();
+            LocalDate from = LocalDate.parse((String) data.get("from"));
+            LocalDate to = LocalDate.parse((String) data.get("to"));
+            int guestCount = (Integer) data.get("guestCount");
 
-                if (alternatives.size() >= 15) break;
+            if (to.isBefore(from) || from.plusDays(MAX_CALENDAR_DAYS - 1).isBefore(to)) {
+                return Message.fail("GET_AVAILABILITY_CALENDAR",
+                        "Date range must cover 1 to " + MAX_CALENDAR_DAYS + " days");
             }
 
-            return Message.ok("GET_ALTERNATIVE_SLOTS", alternatives);
+            pConn = pool.getConnection();
+            if (pConn == null) {
+                return Message.fail("GET_AVAILABILITY_CALENDAR", "Database connection failed");
+            }
+
+            Connection conn = pConn.getConnection();
+
+            Map<LocalDate, OpeningHours> hoursByDate = OpeningHoursCalendar.getInstance().getHours(from, to, conn);
+            TableAllocator tables = TableCatalog.get(conn).getAllocator();
+            Map<LocalDate, SlotOccupancyIndex.DayOccupancy> days = SlotOccupancyIndex.ENABLED
+                    ? SlotOccupancyIndex.getInstance().getDays(from, to, conn)
+                    : SlotOccupancyIndex.queryDays(from, to, conn);
+
+            List<Map<String, Object>> calendar = new ArrayList<>();
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                OpeningHours hours = hoursByDate.get(date);
+                int totalSlots = hours == null ? 0 : countSlots(hours);
+                List<LocalDateTime> free = totalSlots == 0
+                        ? new ArrayList<>()
+                        : sweepSlots(days.get(date), hours, guestCount, tables, Integer.MAX_VALUE);
+
+                Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("date", date);
+                summary.put("open", hours != null);
+                summary.put("totalSlots", totalSlots);
+                summary.put("freeSlots", free.size());
+                summary.put("firstFree", free.isEmpty() ? null : free.get(0).toLocalTime());
+                summary.put("lastFree", free.isEmpty() ? null : free.get(free.size() - 1).toLocalTime());
+                calendar.add(summary);
+            }
+
+            return Message.ok("GET_AVAILABILITY_CALENDAR", calendar);
 
         } catch (Exception e) {
-            e.printStackTrace();
-            return Message.fail("GET_ALTERNATIVE_SLOTS", "Error: " + e.getMessage());
+            ServerLog.error("[ReservationRepository] getAvailabilityCalendar failed: " + e.getMessage(), e);
+            return Message.fail("GET_AVAILABILITY_CALENDAR", "Error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
         }
@@ -236,15 +350,18 @@ public class ReservationRepository {
                 );
             }
 
-            Connection conn = pConn.getConnection();
-            conn.setAutoCommit(false);
+            String subscriber = subscriberNumber;
+            String phoneToSave = guestPhone;
+            String emailToSave = guestEmail;
 
-            try {
+            // SERIALIZABLE makes the availability check lock what it read, so two
+            // clients cannot both book the last seats; the loser deadlocks and is retried
+            return TransactionTemplate.inTransaction(pConn.getConnection(),
+                    Connection.TRANSACTION_SERIALIZABLE, conn -> {
                 LocalDateTime requestedDateTime =
                         LocalDateTime.of(bookingDate, bookingTime);
 
                 if (!isSlotAvailable(requestedDateTime, guestCount, conn)) {
-                    conn.rollback();
                     return Message.fail(
                             "CREATE_RESERVATION",
                             "Selected time slot is no longer available"
@@ -266,9 +383,9 @@ public class ReservationRepository {
                 ps.setTime(2, Time.valueOf(bookingTime));
                 ps.setInt(3, guestCount);
                 ps.setString(4, confirmationCode);
-                ps.setString(5, subscriberNumber);
-                ps.setString(6, guestPhone);
-                ps.setString(7, guestEmail);
+                ps.setString(5, subscriber);
+                ps.setString(6, phoneToSave);
+                ps.setString(7, emailToSave);
 
                 ps.executeUpdate();
 
@@ -282,12 +399,10 @@ public class ReservationRepository {
                 ps.close();
                 
                 // Log activity for subscribers
-                if (subscriberNumber != null && !subscriberNumber.trim().isEmpty()) {
-                    TagRepository.logReservation(conn, subscriberNumber, confirmationCode, 
+                if (subscriber != null && !subscriber.trim().isEmpty()) {
+                    TagRepository.logReservation(conn, subscriber, confirmationCode, 
                             bookingDate, bookingTime, guestCount);
                 }
-                
-                conn.commit();
 
                 Reservation reservation = new Reservation();
                 reservation.setReservationId(reservationId);
@@ -298,19 +413,19 @@ public class ReservationRepository {
                 reservation.setReservationStatus(
                         Reservation.ReservationStatus.ACTIVE
                 );
-                reservation.setSubscriberNumber(subscriberNumber);
-
+                reservation.setSubscriberNumber(subscriber);
+
+                int createdId = reservationId;
+                TransactionTemplate.afterCommit(() -> {
+                    SlotOccupancyIndex.getInstance().reservationAdded(createdId, bookingDate, bookingTime, guestCount);
+                    AvailabilityCache.getInstance().invalidate(bookingDate);
+                    ChangeEventBus.getInstance().publish(ChangeEvent.RESERVATIONS, "CREATED", createdId, bookingDate);
+                });
                 return Message.ok("CREATE_RESERVATION", reservation);
-
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
-            }
+            });
 
         } catch (Exception e) {
-            e.printStackTrace();
+            ServerLog.error("[ReservationRepository] createReservation failed: " + e.getMessage(), e);
             return Message.fail(
                     "CREATE_RESERVATION",
                     "Database error: " + e.getMessage()
@@ -340,42 +455,54 @@ public class ReservationRepository {
                 return Message.fail("CANCEL_RESERVATION", "Database connection failed");
             }
 
-            Connection conn = pConn.getConnection();
-            
-            // First, get subscriber_number for logging
-            String getSubSql = "SELECT subscriber_number FROM reservations WHERE confirmation_code = ? AND reservation_status = 'ACTIVE'";
-            PreparedStatement getSubPs = conn.prepareStatement(getSubSql);
-            getSubPs.setString(1, confirmationCode);
-            ResultSet subRs = getSubPs.executeQuery();
-            
-            String subscriberNumber = null;
-            if (subRs.next()) {
-                subscriberNumber = subRs.getString("subscriber_number");
-            }
-            subRs.close();
-            getSubPs.close();
-            
-            String sql = "UPDATE reservations SET reservation_status = 'CANCELLED' " +
-                        "WHERE confirmation_code = ? AND reservation_status = 'ACTIVE'";
-            
-            PreparedStatement ps = conn.prepareStatement(sql);
-            ps.setString(1, confirmationCode);
-            
-            int rowsAffected = ps.executeUpdate();
-            ps.close();
+            return TransactionTemplate.inTransaction(pConn.getConnection(), conn -> {
+                // First, get subscriber_number for logging (and the id and date for the change event)
+                String getSubSql = "SELECT reservation_id, booking_date, subscriber_number FROM reservations " +
+                            "WHERE confirmation_code = ? AND reservation_status = 'ACTIVE' FOR UPDATE";
+                PreparedStatement getSubPs = conn.prepareStatement(getSubSql);
+                getSubPs.setString(1, confirmationCode);
+                ResultSet subRs = getSubPs.executeQuery();
+
+                String subscriberNumber = null;
+                Integer reservationId = null;
+                LocalDate bookingDate = null;
+                if (subRs.next()) {
+                    subscriberNumber = subRs.getString("subscriber_number");
+                    reservationId = subRs.getInt("reservation_id");
+                    bookingDate = subRs.getDate("booking_date").toLocalDate();
+                }
+                subRs.close();
+                getSubPs.close();
 
-            if (rowsAffected > 0) {
-                // Log cancellation for subscribers
-                if (subscriberNumber != null && !subscriberNumber.trim().isEmpty()) {
-                    TagRepository.logCancellation(conn, subscriberNumber, confirmationCode);
+                String sql = "UPDATE reservations SET reservation_status = 'CANCELLED' " +
+                            "WHERE confirmation_code = ? AND reservation_status = 'ACTIVE'";
+
+                PreparedStatement ps = conn.prepareStatement(sql);
+                ps.setString(1, confirmationCode);
+
+                int rowsAffected = ps.executeUpdate();
+                ps.close();
+
+                if (rowsAffected > 0) {
+                    // Log cancellation for subscribers
+                    if (subscriberNumber != null && !subscriberNumber.trim().isEmpty()) {
+                        TagRepository.logCancellation(conn, subscriberNumber, confirmationCode);
+                    }
+                    Integer cancelledId = reservationId;
+                    LocalDate cancelledDate = bookingDate;
+                    TransactionTemplate.afterCommit(() -> {
+                        SlotOccupancyIndex.getInstance().reservationRemoved(cancelledId, cancelledDate);
+                        AvailabilityCache.getInstance().invalidate(cancelledDate);
+                        ChangeEventBus.getInstance().publish(ChangeEvent.RESERVATIONS, "CANCELLED", cancelledId, cancelledDate);
+                    });
+                    return Message.ok("CANCEL_RESERVATION", "Reservation cancelled successfully");
+                } else {
+                    return Message.fail("CANCEL_RESERVATION", "Reservation not found or already cancelled");
                 }
-                return Message.ok("CANCEL_RESERVATION", "Reservation cancelled successfully");
-            } else {
-                return Message.fail("CANCEL_RESERVATION", "Reservation not found or already cancelled");
-            }
+            });
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[ReservationRepository] cancelReservation failed: " + e.getMessage(), e);
             return Message.fail("CANCEL_RESERVATION", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -384,12 +511,18 @@ public class ReservationRepository {
 
     /**
      * Gets all active reservations (for representatives).
+     * With a map of options as data, returns one page or streams the rows instead
+     * (see {@link #getReservationsPage(Message)}).
      * 
-     * @param request Message (empty data)
-     * @return Message with List of all Reservation objects
+     * @param request Message (empty data, or paging options)
+     * @return Message with List of all Reservation objects, or a page
      */
     public Message getAllReservations(Message request) {
-        MySQLConnectionPool pool = MySQLConnectionPool.getInstance();
+        if (PageCollector.isPaged(request)) {
+            return getReservationsPage(request);
+        }
+
+        MySQLConnectionPool pool = MySQLConnectionPool.getReadInstance();
         PooledConnection pConn = null;
 
         try {
@@ -417,8 +550,93 @@ public class ReservationRepository {
             return Message.ok("GET_RESERVATIONS", reservations);
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[ReservationRepository] getAllReservations failed: " + e.getMessage(), e);
+            return Message.fail("GET_RESERVATIONS", "Database error: " + e.getMessage());
+        } finally {
+            pool.releaseConnection(pConn);
+        }
+    }
+
+    /**
+     * Gets one page of reservations ordered by booking date, booking time and ID,
+     * or streams them in chunks. Pages are read with a keyset condition on these
+     * columns, so later pages cost the same as the first one.
+     * 
+     * @param request Message containing paging options (see common.Paging):
+     *                "limit", "cursor", "stream", "fromDate", "toDate" and
+     *                "status" (default ACTIVE, or ALL)
+     * @return Message with the page (items, nextCursor, last)
+     */
+    private Message getReservationsPage(Message request) {
+        MySQLConnectionPool pool = MySQLConnectionPool.getReadInstance();
+        PooledConnection pConn = null;
+
+        try {
+            PageCollector<Reservation> page = new PageCollector<>("GET_RESERVATIONS", request,
+                    r -> List.of(r.getBookingDate(), r.getBookingTime(), r.getReservationId()));
+
+            String status = page.text(Paging.STATUS);
+            status = status == null ? "ACTIVE" : status.toUpperCase();
+            if (!status.equals("ALL")) {
+                Reservation.ReservationStatus.valueOf(status);
+            }
+            LocalDate fromDate = page.date(Paging.FROM_DATE);
+            LocalDate toDate = page.date(Paging.TO_DATE);
+            List<?> cursor = page.cursor(3);
+
+            StringBuilder sql = new StringBuilder("SELECT * FROM reservations WHERE 1 = 1");
+            List<Object> params = new ArrayList<>();
+            if (!status.equals("ALL")) {
+                sql.append(" AND reservation_status = ?");
+                params.add(status);
+            }
+            if (fromDate != null) {
+                sql.append(" AND booking_date >= ?");
+                params.add(Date.valueOf(fromDate));
+            }
+            if (toDate != null) {
+                sql.append(" AND booking_date <= ?");
+                params.add(Date.valueOf(toDate));
+            }
+            if (cursor != null) {
+                Date date = Date.valueOf((LocalDate) cursor.get(0));
+                Time time = Time.valueOf((LocalTime) cursor.get(1));
+                sql.append(" AND (booking_date > ? OR (booking_date = ? AND " +
+                           "(booking_time > ? OR (booking_time = ? AND reservation_id > ?))))");
+                params.addAll(List.of(date, date, time, time, (Integer) cursor.get(2)));
+            }
+            sql.append(" ORDER BY booking_date, booking_time, reservation_id").append(page.limitClause());
+
+            pConn = pool.getConnection();
+            if (pConn == null) {
+                return Message.fail("GET_RESERVATIONS", "Database connection failed");
+            }
+
+            Connection conn = pConn.getConnection();
+
+            PreparedStatement ps = conn.prepareStatement(sql.toString());
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            if (page.isStreaming()) {
+                ps.setFetchSize(Integer.MIN_VALUE); // MySQL: stream rows instead of buffering the result
+            }
+            ResultSet rs = ps.executeQuery();
+
+            while (rs.next() && page.add(extractReservationFromResultSet(rs))) {
+                // rows are collected (or streamed) by the page
+            }
+
+            rs.close();
+            ps.close();
+
+            return page.finish();
+
+        } catch (SQLException e) {
+            ServerLog.error("[ReservationRepository] getReservationsPage failed: " + e.getMessage(), e);
             return Message.fail("GET_RESERVATIONS", "Database error: " + e.getMessage());
+        } catch (IllegalArgumentException | ClassCastException | DateTimeException e) {
+            return Message.fail("GET_RESERVATIONS", "Invalid list options: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
         }
@@ -464,7 +682,7 @@ public class ReservationRepository {
             return Message.ok("GET_USER_RESERVATIONS", reservations);
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[ReservationRepository] getUserReservations failed: " + e.getMessage(), e);
             return Message.fail("GET_USER_RESERVATIONS", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -501,12 +719,8 @@ public class ReservationRepository {
                 return Message.fail("SEAT_BY_CODE", "Database connection failed");
             }
 
-            Connection conn = pConn.getConnection();
-            
-            // Start transaction for atomic table assignment
-            conn.setAutoCommit(false);
-            
-            try {
+            // Transaction for atomic table assignment
+            return TransactionTemplate.inTransaction(pConn.getConnection(), conn -> {
                 // 1. Get the reservation (with lock to prevent concurrent modifications)
                 String resSql = "SELECT * FROM reservations WHERE confirmation_code = ? FOR UPDATE";
                 PreparedStatement resPs = conn.prepareStatement(resSql);
@@ -516,7 +730,6 @@ public class ReservationRepository {
                 if (!resRs.next()) {
                     resRs.close();
                     resPs.close();
-                    conn.rollback();
                     return Message.fail("SEAT_BY_CODE", "Reservation not found");
                 }
 
@@ -526,14 +739,12 @@ public class ReservationRepository {
 
                 // 2. Validate reservation status
                 if (reservation.getStatus() != Reservation.ReservationStatus.ACTIVE) {
-                    conn.rollback();
                     return Message.fail("SEAT_BY_CODE", 
                         "Reservation is not active (status: " + reservation.getStatus() + ")");
                 }
 
                 // 3. Check if already seated (table already assigned)
                 if (reservation.hasTableAssigned()) {
-                    conn.rollback();
                     // Already seated, return current state
                     return Message.ok("SEAT_BY_CODE", reservation);
                 }
@@ -541,7 +752,6 @@ public class ReservationRepository {
                 // 4. Validate reservation is for today
                 LocalDate today = LocalDate.now();
                 if (!reservation.getBookingDate().equals(today)) {
-                    conn.rollback();
                     String dateStr = reservation.getBookingDate().toString();
                     if (reservation.getBookingDate().isBefore(today)) {
                         return Message.fail("SEAT_BY_CODE", 
@@ -558,7 +768,6 @@ public class ReservationRepository {
                 LocalTime earliestCheckIn = bookingTime.minusMinutes(15);
                 
                 if (now.isBefore(earliestCheckIn)) {
-                    conn.rollback();
                     String timeStr = earliestCheckIn.toString();
                     if (timeStr.length() > 5) timeStr = timeStr.substring(0, 5);
                     return Message.fail("SEAT_BY_CODE", 
@@ -584,7 +793,6 @@ public class ReservationRepository {
                     // No available table - customer needs to wait
                     tableRs.close();
                     tablePs.close();
-                    conn.rollback();
                     
                     // Return special "WAIT" response (error message starts with "WAIT:")
                     return Message.fail("SEAT_BY_CODE", 
@@ -607,14 +815,12 @@ public class ReservationRepository {
                 updateTablePs.close();
                 
                 if (tableRowsUpdated == 0) {
-                    conn.rollback();
                     return Message.fail("SEAT_BY_CODE", "Failed to update table status. Please try again.");
                 }
 
                 // 9. Update reservation with assigned table
                 int resId = reservation.getReservationId();
                 if (resId <= 0) {
-                    conn.rollback();
                     return Message.fail("SEAT_BY_CODE", "Invalid reservation ID. Please contact staff.");
                 }
                 
@@ -626,33 +832,29 @@ public class ReservationRepository {
                 updateResPs.close();
                 
                 if (resRowsUpdated == 0) {
-                    conn.rollback();
                     return Message.fail("SEAT_BY_CODE", "Failed to assign table to reservation. Please try again.");
                 }
 
-                // 10. Commit transaction
-                conn.commit();
-                
-                // 11. Log check-in for subscribers
+                // 10. Log check-in for subscribers (committed together with the seating)
                 String subscriberNumber = reservation.getSubscriberNumber();
                 if (subscriberNumber != null && !subscriberNumber.trim().isEmpty()) {
                     TagRepository.logCheckIn(conn, subscriberNumber, confirmationCode, 
                             tableNumber, reservation.getBookingTime(), LocalTime.now());
                 }
 
-                // 12. Return updated reservation with table number
+                TransactionTemplate.afterCommit(() -> {
+                    ChangeEventBus.getInstance().publish(ChangeEvent.TABLES, "OCCUPIED", tableNumber);
+                    ChangeEventBus.getInstance().publish(ChangeEvent.RESERVATIONS, "SEATED", resId,
+                            reservation.getBookingDate());
+                });
+
+                // 11. Return updated reservation with table number
                 reservation.setAssignedTableNumber(tableNumber);
                 return Message.ok("SEAT_BY_CODE", reservation);
-
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
-            }
+            });
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[ReservationRepository] seatByCode failed: " + e.getMessage(), e);
             return Message.fail("SEAT_BY_CODE", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -722,7 +924,7 @@ public class ReservationRepository {
             return Message.ok("GET_RESERVATIONS_BY_CARD", reservations);
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[ReservationRepository] getReservationsByMembershipCard failed: " + e.getMessage(), e);
             return Message.fail("GET_RESERVATIONS_BY_CARD", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -837,7 +1039,7 @@ public class ReservationRepository {
             return Message.fail("LOST_CODE", "No active reservation found for this identifier");
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[ReservationRepository] retrieveLostCode failed: " + e.getMessage(), e);
             return Message.fail("LOST_CODE", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -847,70 +1049,9 @@ public class ReservationRepository {
     //  Helper Methods 
 
     /**
-     * Gets opening hours for a specific date.
-     * Checks special hours first, then falls back to weekly hours.
-     * 
-     * @param date the date to check
-     * @param conn database connection
-     * @return OpeningHours or null if closed
-     */
-    private OpeningHours getOpeningHoursForDate(LocalDate date, Connection conn) throws SQLException {
-        // Check for special hours first
-        String specialSql = "SELECT * FROM special_hours WHERE special_date = ?";
-        PreparedStatement specialPs = conn.prepareStatement(specialSql);
-        specialPs.setDate(1, Date.valueOf(date));
-        ResultSet specialRs = specialPs.executeQuery();
-
-        if (specialRs.next()) {
-            boolean closedFlag = specialRs.getBoolean("closed_flag");
-            if (closedFlag) {
-                specialRs.close();
-                specialPs.close();
-                return null; // Restaurant is closed
-            }
-
-            Time openingTime = specialRs.getTime("opening_time");
-            Time closingTime = specialRs.getTime("closing_time");
-            specialRs.close();
-            specialPs.close();
-
-            DayOfWeek dayOfWeek = date.getDayOfWeek();
-            OpeningHours.Weekday weekday = OpeningHours.Weekday.valueOf(dayOfWeek.toString());
-            
-            OpeningHours hours = new OpeningHours();
-            hours.setWeekday(weekday);
-            hours.setOpeningTime(openingTime.toLocalTime());
-            hours.setClosingTime(closingTime.toLocalTime());
-            return hours;
-        }
-
-        specialRs.close();
-        specialPs.close();
-
-        // Get regular weekly hours
-        DayOfWeek dayOfWeek = date.getDayOfWeek();
-        String weekday = dayOfWeek.toString();
-
-        String weeklySql = "SELECT * FROM opening_hours WHERE weekday = ?";
-        PreparedStatement weeklyPs = conn.prepareStatement(weeklySql);
-        weeklyPs.setString(1, weekday);
-        ResultSet weeklyRs = weeklyPs.executeQuery();
-
-        OpeningHours hours = null;
-        if (weeklyRs.next()) {
-            hours = new OpeningHours();
-            hours.setWeekday(OpeningHours.Weekday.valueOf(weekday));
-            hours.setOpeningTime(weeklyRs.getTime("opening_time").toLocalTime());
-            hours.setClosingTime(weeklyRs.getTime("closing_time").toLocalTime());
-        }
-
-        weeklyRs.close();
-        weeklyPs.close();
-        return hours;
-    }
-
-    /**
-     * Checks if a time slot is available for the given number of guests.
+     * Checks if a time slot is available for the given number of guests: the party and
+     * every reservation starting between 2 hours before and 30 minutes after the slot
+     * must each get their own table with enough seats.
      * 
      * @param startTime the requested start time
      * @param guestCount number of guests
@@ -918,111 +1059,105 @@ public class ReservationRepository {
      * @return true if slot is available
      */
     private boolean isSlotAvailable(LocalDateTime startTime, int guestCount, Connection conn) throws SQLException {
-        // Get all tables that can fit the guest count
-        String tableSql = "SELECT * FROM tables_info WHERE seat_capacity >= ?";
-        PreparedStatement tablePs = conn.prepareStatement(tableSql);
-        tablePs.setInt(1, guestCount);
-        ResultSet tableRs = tablePs.executeQuery();
-
-        List<Table> suitableTables = new ArrayList<>();
-        while (tableRs.next()) {
-            Table table = new Table();
-            table.setTableNumber(tableRs.getInt("table_number"));
-            table.setSeatCapacity(tableRs.getInt("seat_capacity"));
-            suitableTables.add(table);
-        }
-        tableRs.close();
-        tablePs.close();
-
-        if (suitableTables.isEmpty()) {
+        TableAllocator tables = TableCatalog.get(conn).getAllocator();
+        if (tables.tablesFor(guestCount) == 0) {
             return false;
         }
 
-        // Check for overlapping reservations
-        String resSql = "SELECT COUNT(*) as count FROM reservations " +
-                       "WHERE reservation_status = 'ACTIVE' " +
-                       "AND booking_date = ? " +
-                       "AND booking_time BETWEEN ? AND ?";
-        
-        PreparedStatement resPs = conn.prepareStatement(resSql);
-        resPs.setDate(1, Date.valueOf(startTime.toLocalDate()));
-        resPs.setTime(2, Time.valueOf(startTime.toLocalTime().minusHours(2)));
-        resPs.setTime(3, Time.valueOf(startTime.toLocalTime().plusMinutes(30)));
-        
-        ResultSet resRs = resPs.executeQuery();
-        int overlappingReservations = 0;
-        if (resRs.next()) {
-            overlappingReservations = resRs.getInt("count");
-        }
-        resRs.close();
-        resPs.close();
+        // Reservations overlapping the slot, read with one range query
+        int second = startTime.toLocalTime().toSecondOfDay();
+        SlotOccupancyIndex.DayOccupancy overlapping = SlotOccupancyIndex.query(startTime.toLocalDate(),
+                second - OVERLAP_BEFORE_SECONDS, second + OVERLAP_AFTER_SECONDS, conn);
 
-        // Check: if overlapping reservations >= available tables, slot is full
-        return overlappingReservations < suitableTables.size();
+        int[] parties = tables.newHistogram();
+        for (int i = 0; i < overlapping.size(); i++) {
+            tables.add(parties, overlapping.getGuests(i), 1);
+        }
+        return tables.fits(parties, guestCount);
     }
 
     /**
-     * Checks if a time slot is available with pre-fetched table list.
-     * Used by getAlternativeSlots for efficiency.
+     * Finds the free 30-minute slots of a date. A slot is free if the party and every
+     * reservation starting between 2 hours before and 30 minutes after it can each get
+     * their own table with enough seats (see {@link TableAllocator}). The date's
+     * reservations are read once (from the {@link SlotOccupancyIndex}, or with one range
+     * query when the index is disabled) and all slots are checked in one sweep over the
+     * booking times, updating the party sizes in the window as it moves.
      * 
-     * @param startTime the requested start time
+     * @param date the date
+     * @param hours the opening hours of the date
      * @param guestCount number of guests
-     * @param suitableTables pre-fetched list of suitable tables
+     * @param tables the tables
+     * @param limit maximum number of slots to return
      * @param conn database connection
-     * @return true if slot is available
+     * @return the free slots, earliest first
      */
-    private boolean isSlotAvailable(LocalDateTime startTime, int guestCount, 
-                                    List<Table> suitableTables, Connection conn) throws SQLException {
-        if (suitableTables.isEmpty()) {
-            return false;
+    private List<LocalDateTime> findAvailableSlots(LocalDate date, OpeningHours hours, int guestCount,
+                                                   TableAllocator tables, int limit, Connection conn)
+            throws SQLException {
+        if (tables.tablesFor(guestCount) == 0 || countSlots(hours) == 0) {
+            return new ArrayList<>();
         }
 
-        // Check for overlapping reservations
-        String resSql = "SELECT COUNT(*) as count FROM reservations " +
-                       "WHERE reservation_status = 'ACTIVE' " +
-                       "AND booking_date = ? " +
-                       "AND booking_time BETWEEN ? AND ?";
-        
-        PreparedStatement resPs = conn.prepareStatement(resSql);
-        resPs.setDate(1, Date.valueOf(startTime.toLocalDate()));
-        resPs.setTime(2, Time.valueOf(startTime.toLocalTime().minusHours(2)));
-        resPs.setTime(3, Time.valueOf(startTime.toLocalTime().plusMinutes(30)));
-        
-        ResultSet resRs = resPs.executeQuery();
-        int overlappingReservations = 0;
-        if (resRs.next()) {
-            overlappingReservations = resRs.getInt("count");
-        }
-        resRs.close();
-        resPs.close();
+        int first = hours.getOpeningTime().toSecondOfDay();
+        int last = hours.getClosingTime().minusHours(2).toSecondOfDay();
+        SlotOccupancyIndex.DayOccupancy day = SlotOccupancyIndex.ENABLED
+                ? SlotOccupancyIndex.getInstance().getDay(date, conn)
+                : SlotOccupancyIndex.query(date, first - OVERLAP_BEFORE_SECONDS, last + OVERLAP_AFTER_SECONDS, conn);
+        return sweepSlots(day, hours, guestCount, tables, limit);
+    }
 
-        return overlappingReservations < suitableTables.size();
+    /**
+     * Number of 30-minute slots from opening until 2 hours before closing.
+     */
+    private static int countSlots(OpeningHours hours) {
+        LocalTime lastSlot = hours.getClosingTime().minusHours(2);
+        if (lastSlot.isBefore(hours.getOpeningTime())) {
+            return 0;
+        }
+        return (lastSlot.toSecondOfDay() - hours.getOpeningTime().toSecondOfDay()) / SLOT_SECONDS + 1;
     }
 
     /**
-     * Gets all tables suitable for the given guest count.
+     * Finds the free slots of a date in one sweep over its reservations, updating the
+     * party sizes in the overlap window as it moves.
      * 
+     * @param day the reservations of the date, covering at least the slots' overlap windows
+     * @param hours the opening hours of the date
      * @param guestCount number of guests
-     * @param conn database connection
-     * @return list of suitable tables
+     * @param tables the tables
+     * @param limit maximum number of slots to return
+     * @return the free slots, earliest first
      */
-    private List<Table> getSuitableTablesForGuests(int guestCount, Connection conn) throws SQLException {
-        String sql = "SELECT * FROM tables_info WHERE seat_capacity >= ?";
-        PreparedStatement ps = conn.prepareStatement(sql);
-        ps.setInt(1, guestCount);
-        ResultSet rs = ps.executeQuery();
-
-        List<Table> tables = new ArrayList<>();
-        while (rs.next()) {
-            Table table = new Table();
-            table.setTableNumber(rs.getInt("table_number"));
-            table.setSeatCapacity(rs.getInt("seat_capacity"));
-            tables.add(table);
+    private static List<LocalDateTime> sweepSlots(SlotOccupancyIndex.DayOccupancy day, OpeningHours hours,
+                                                  int guestCount, TableAllocator tables, int limit) {
+        List<LocalDateTime> availableSlots = new ArrayList<>();
+        if (tables.tablesFor(guestCount) == 0 || countSlots(hours) == 0) {
+            return availableSlots;
         }
-        rs.close();
-        ps.close();
 
-        return tables;
+        LocalDate date = day.getDate();
+        int first = hours.getOpeningTime().toSecondOfDay();
+        int last = hours.getClosingTime().minusHours(2).toSecondOfDay();
+
+        // Party sizes of the reservations in the window [from, end) of the current slot
+        int[] parties = tables.newHistogram();
+        int from = 0;
+        int end = 0;
+
+        // Every 30 minutes from opening until 2 hours before closing
+        for (int slot = first; slot <= last && availableSlots.size() < limit; slot += SLOT_SECONDS) {
+            while (end < day.size() && day.getSecond(end) <= slot + OVERLAP_AFTER_SECONDS) {
+                tables.add(parties, day.getGuests(end++), 1);
+            }
+            while (from < end && day.getSecond(from) < slot - OVERLAP_BEFORE_SECONDS) {
+                tables.add(parties, day.getGuests(from++), -1);
+            }
+            if (tables.fits(parties, guestCount)) {
+                availableSlots.add(LocalDateTime.of(date, LocalTime.ofSecondOfDay(slot)));
+            }
+        }
+        return availableSlots;
     }
 
     /**
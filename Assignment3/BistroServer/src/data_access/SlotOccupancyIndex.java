@@ -0,0 +1,424 @@
+package data_access;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory index of the ACTIVE reservations per date, used to answer availability
+ * questions without a query per slot.
+ *
+ * A date is loaded from the database the first time it is asked for (one query) and
+ * then kept up to date by the code that adds or removes ACTIVE reservations, which
+ * calls {@link #reservationAdded} and {@link #reservationRemoved} after its commit.
+ * The database stays the source of truth: loaded dates expire after
+ * bistro.availability.indexTtlMs (default 10 minutes), at most
+ * bistro.availability.indexDays dates are kept (default 62), and transactional checks
+ * such as the one in createReservation still query the database.
+ *
+ * Updates are idempotent per reservation ID, and a load that overlaps an update of
+ * the same date is discarded instead of cached, so a load can never resurrect a
+ * reservation that was just removed or count one twice.
+ */
+public final class SlotOccupancyIndex {
+
+    private static final long TTL_MS = Long.getLong("bistro.availability.indexTtlMs", 10 * 60 * 1000L);
+    private static final int MAX_DAYS = Math.max(1, Integer.getInteger("bistro.availability.indexDays", 62));
+
+    /** False if -Dbistro.availability.index=false: availability is then read from the database each time. */
+    public static final boolean ENABLED =
+            Boolean.parseBoolean(System.getProperty("bistro.availability.index", "true"));
+
+    private static final SlotOccupancyIndex instance = new SlotOccupancyIndex();
+
+    private final Map<LocalDate, DayOccupancy> days = new ConcurrentHashMap<>();
+
+    // Change counters per date stripe; a load is only cached if its stripe did not change meanwhile
+    private final AtomicLongArray versions = new AtomicLongArray(64);
+
+    /**
+     * The ACTIVE reservations of one date, sorted by booking time. Immutable;
+     * updates replace the whole object.
+     */
+    public static final class DayOccupancy {
+        private final LocalDate date;
+        private final long loadedAt;
+        private final int[] ids;
+        private final int[] seconds; // Booking time as second of day, ascending
+        private final int[] guests;
+
+        private DayOccupancy(LocalDate date, long loadedAt, int[] ids, int[] seconds, int[] guests) {
+            this.date = date;
+            this.loadedAt = loadedAt;
+            this.ids = ids;
+            this.seconds = seconds;
+            this.guests = guests;
+        }
+
+        public LocalDate getDate() {
+            return date;
+        }
+
+        /**
+         * @return number of reservations held (the whole date, or the queried range)
+         */
+        public int size() {
+            return ids.length;
+        }
+
+        /**
+         * @param index position in booking time order, 0 to size() - 1
+         * @return booking time of that reservation as second of day
+         */
+        public int getSecond(int index) {
+            return seconds[index];
+        }
+
+        /**
+         * @param index position in booking time order, 0 to size() - 1
+         * @return party size of that reservation
+         */
+        public int getGuests(int index) {
+            return guests[index];
+        }
+
+        /**
+         * @param second a second of the day
+         * @return position of the first reservation at or after it, or size()
+         */
+        public int firstIndexAtOrAfter(int second) {
+            int low = 0;
+            int high = seconds.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (seconds[mid] < second) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private boolean contains(int reservationId) {
+            for (int id : ids) {
+                if (id == reservationId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private DayOccupancy with(int reservationId, int second, int guestCount) {
+            if (contains(reservationId)) {
+                return this;
+            }
+            int at = firstIndexAtOrAfter(second + 1);
+            return new DayOccupancy(date, loadedAt,
+                    insert(ids, at, reservationId), insert(seconds, at, second), insert(guests, at, guestCount));
+        }
+
+        private DayOccupancy without(int reservationId) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == reservationId) {
+                    return new DayOccupancy(date, loadedAt, remove(ids, i), remove(seconds, i), remove(guests, i));
+                }
+            }
+            return this;
+        }
+
+        private static int[] insert(int[] array, int at, int value) {
+            int[] copy = new int[array.length + 1];
+            System.arraycopy(array, 0, copy, 0, at);
+            copy[at] = value;
+            System.arraycopy(array, at, copy, at + 1, array.length - at);
+            return copy;
+        }
+
+        private static int[] remove(int[] array, int at) {
+            int[] copy = new int[array.length - 1];
+            System.arraycopy(array, 0, copy, 0, at);
+            System.arraycopy(array, at + 1, copy, at, array.length - at - 1);
+            return copy;
+        }
+    }
+
+    private SlotOccupancyIndex() {}
+
+    /**
+     * @return the singleton instance
+     */
+    public static SlotOccupancyIndex getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the ACTIVE reservations of a date, loading them if the date is not
+     * in the index or has expired.
+     *
+     * @param date the date
+     * @param conn connection used if the date must be loaded
+     * @return the reservations of the date
+     * @throws SQLException if loading fails
+     */
+    public DayOccupancy getDay(LocalDate date, Connection conn) throws SQLException {
+        DayOccupancy day = days.get(date);
+        if (day != null && System.currentTimeMillis() - day.loadedAt < TTL_MS) {
+            return day;
+        }
+
+        long version = versions.get(stripe(date));
+        DayOccupancy loaded = load(date, conn);
+        install(loaded, version, day);
+        evictOverflow();
+        return loaded;
+    }
+
+    /**
+     * Returns the ACTIVE reservations of every date in a range. The dates that are not
+     * in the index or have expired are loaded together with one range query.
+     *
+     * @param from first date
+     * @param to last date, not before from
+     * @param conn connection used if dates must be loaded
+     * @return the reservations per date; every date of the range is present
+     * @throws SQLException if loading fails
+     */
+    public Map<LocalDate, DayOccupancy> getDays(LocalDate from, LocalDate to, Connection conn) throws SQLException {
+        Map<LocalDate, DayOccupancy> result = new HashMap<>();
+        Map<LocalDate, DayOccupancy> expired = new HashMap<>();
+        Map<LocalDate, Long> missing = new HashMap<>();
+        LocalDate firstMissing = null;
+        LocalDate lastMissing = null;
+        long now = System.currentTimeMillis();
+
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            DayOccupancy day = days.get(date);
+            if (day != null && now - day.loadedAt < TTL_MS) {
+                result.put(date, day);
+                continue;
+            }
+            if (day != null) {
+                expired.put(date, day);
+            }
+            missing.put(date, versions.get(stripe(date)));
+            if (firstMissing == null) {
+                firstMissing = date;
+            }
+            lastMissing = date;
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        Map<LocalDate, DayOccupancy> loaded = queryDays(firstMissing, lastMissing, conn);
+        for (Map.Entry<LocalDate, Long> entry : missing.entrySet()) {
+            DayOccupancy day = loaded.get(entry.getKey());
+            install(day, entry.getValue(), expired.get(entry.getKey()));
+            result.put(entry.getKey(), day);
+        }
+        evictOverflow();
+        return result;
+    }
+
+    /**
+     * Caches a loaded date unless its stripe changed since {@code version} was read,
+     * in which case the expired entry {@code seen} (if still there) is dropped instead.
+     */
+    private void install(DayOccupancy loaded, long version, DayOccupancy seen) {
+        int stripe = stripe(loaded.date);
+        days.compute(loaded.date, (d, current) -> {
+            if (versions.get(stripe) != version) {
+                // Changed while loading: answer from the load, but do not cache it
+                return current == seen ? null : current;
+            }
+            return loaded;
+        });
+    }
+
+    /**
+     * Records a new ACTIVE reservation. Call after the change was committed.
+     *
+     * @param reservationId the reservation ID
+     * @param date the booking date
+     * @param time the booking time
+     * @param guestCount the party size
+     */
+    public void reservationAdded(int reservationId, LocalDate date, LocalTime time, int guestCount) {
+        versions.incrementAndGet(stripe(date));
+        days.computeIfPresent(date, (d, day) -> day.with(reservationId, time.toSecondOfDay(), guestCount));
+    }
+
+    /**
+     * Records that a reservation is no longer ACTIVE (cancelled, completed or no-show).
+     * Call after the change was committed.
+     *
+     * @param reservationId the reservation ID
+     * @param date the booking date
+     */
+    public void reservationRemoved(int reservationId, LocalDate date) {
+        versions.incrementAndGet(stripe(date));
+        days.computeIfPresent(date, (d, day) -> day.without(reservationId));
+    }
+
+    /**
+     * Drops a date from the index, e.g. after a change whose details are unknown.
+     *
+     * @param date the date
+     */
+    public void invalidate(LocalDate date) {
+        versions.incrementAndGet(stripe(date));
+        days.remove(date);
+    }
+
+    /**
+     * @return number of dates currently in the index
+     */
+    public int size() {
+        return days.size();
+    }
+
+    /**
+     * Reads the ACTIVE reservations of a date that start within a time range straight
+     * from the database, without using or filling the index. The query is a range on
+     * (booking_date, booking_time), so it can use an index on those columns and, inside
+     * a SERIALIZABLE transaction, locks only that range.
+     *
+     * @param date the date
+     * @param fromSecond first booking time of interest as second of day (clamped to the day)
+     * @param toSecond last booking time of interest as second of day (clamped to the day)
+     * @param conn the connection
+     * @return the reservations in the range
+     * @throws SQLException if the query fails
+     */
+    public static DayOccupancy query(LocalDate date, int fromSecond, int toSecond, Connection conn)
+            throws SQLException {
+        LocalTime from = LocalTime.ofSecondOfDay(Math.max(0, fromSecond));
+        LocalTime to = LocalTime.ofSecondOfDay(Math.min(LocalTime.MAX.toSecondOfDay(), toSecond));
+        String sql = "SELECT reservation_id, booking_time, guest_count FROM reservations " +
+                     "WHERE booking_date = ? AND booking_time BETWEEN ? AND ? " +
+                     "AND reservation_status = 'ACTIVE' " +
+                     "ORDER BY booking_time";
+        PreparedStatement ps = conn.prepareStatement(sql);
+        ps.setDate(1, Date.valueOf(date));
+        ps.setTime(2, Time.valueOf(from));
+        ps.setTime(3, Time.valueOf(to));
+        return read(date, ps);
+    }
+
+    /**
+     * Reads the ACTIVE reservations of a date range straight from the database with one
+     * query, without using or filling the index.
+     *
+     * @param from first date
+     * @param to last date
+     * @param conn the connection
+     * @return the reservations per date; every date of the range is present
+     * @throws SQLException if the query fails
+     */
+    public static Map<LocalDate, DayOccupancy> queryDays(LocalDate from, LocalDate to, Connection conn)
+            throws SQLException {
+        String sql = "SELECT reservation_id, booking_date, booking_time, guest_count FROM reservations " +
+                     "WHERE booking_date BETWEEN ? AND ? AND reservation_status = 'ACTIVE' " +
+                     "ORDER BY booking_date, booking_time";
+        PreparedStatement ps = conn.prepareStatement(sql);
+        ps.setDate(1, Date.valueOf(from));
+        ps.setDate(2, Date.valueOf(to));
+        ResultSet rs = ps.executeQuery();
+
+        Map<LocalDate, List<int[]>> rows = new HashMap<>();
+        while (rs.next()) {
+            rows.computeIfAbsent(rs.getDate("booking_date").toLocalDate(), d -> new ArrayList<>())
+                    .add(new int[] {
+                            rs.getInt("reservation_id"),
+                            rs.getTime("booking_time").toLocalTime().toSecondOfDay(),
+                            rs.getInt("guest_count") });
+        }
+        rs.close();
+        ps.close();
+
+        long loadedAt = System.currentTimeMillis();
+        Map<LocalDate, DayOccupancy> result = new HashMap<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            List<int[]> dayRows = rows.getOrDefault(date, List.of());
+            int n = dayRows.size();
+            int[] ids = new int[n];
+            int[] seconds = new int[n];
+            int[] guests = new int[n];
+            for (int i = 0; i < n; i++) {
+                ids[i] = dayRows.get(i)[0];
+                seconds[i] = dayRows.get(i)[1];
+                guests[i] = dayRows.get(i)[2];
+            }
+            result.put(date, new DayOccupancy(date, loadedAt, ids, seconds, guests));
+        }
+        return result;
+    }
+
+    private DayOccupancy load(LocalDate date, Connection conn) throws SQLException {
+        String sql = "SELECT reservation_id, booking_time, guest_count FROM reservations " +
+                     "WHERE booking_date = ? AND reservation_status = 'ACTIVE' " +
+                     "ORDER BY booking_time";
+        PreparedStatement ps = conn.prepareStatement(sql);
+        ps.setDate(1, Date.valueOf(date));
+        return read(date, ps);
+    }
+
+    private static DayOccupancy read(LocalDate date, PreparedStatement ps) throws SQLException {
+        ResultSet rs = ps.executeQuery();
+
+        int[] ids = new int[16];
+        int[] seconds = new int[16];
+        int[] guests = new int[16];
+        int n = 0;
+        while (rs.next()) {
+            if (n == ids.length) {
+                ids = Arrays.copyOf(ids, n * 2);
+                seconds = Arrays.copyOf(seconds, n * 2);
+                guests = Arrays.copyOf(guests, n * 2);
+            }
+            ids[n] = rs.getInt("reservation_id");
+            seconds[n] = rs.getTime("booking_time").toLocalTime().toSecondOfDay();
+            guests[n] = rs.getInt("guest_count");
+            n++;
+        }
+        rs.close();
+        ps.close();
+
+        return new DayOccupancy(date, System.currentTimeMillis(),
+                Arrays.copyOf(ids, n), Arrays.copyOf(seconds, n), Arrays.copyOf(guests, n));
+    }
+
+    /**
+     * Keeps at most MAX_DAYS dates, dropping past dates first and then the oldest loads.
+     */
+    private void evictOverflow() {
+        if (days.size() <= MAX_DAYS) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        days.keySet().removeIf(date -> date.isBefore(today));
+        while (days.size() > MAX_DAYS) {
+            days.values().stream()
+                    .min(Comparator.comparingLong((DayOccupancy d) -> d.loadedAt))
+                    .ifPresent(oldest -> days.remove(oldest.date, oldest));
+        }
+    }
+
+    private int stripe(LocalDate date) {
+        return (int) (date.toEpochDay() & (versions.length() - 1));
+    }
+}
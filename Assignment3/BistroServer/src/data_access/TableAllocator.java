@@ -0,0 +1,102 @@
+package data_access;
+
+/**
+ * Decides whether a set of parties can sit at the same time, each at its own table
+ * with enough seats.
+ *
+ * A party fits every table with at least as many seats, so the tables a larger party
+ * can use are a subset of those a smaller party can use. For such nested choices a
+ * greedy assignment by size is exact (no general bipartite matching is needed): the
+ * parties fit if and only if, for every size n, the parties of n or more guests are
+ * no more than the tables of n or more seats. With the parties kept as a histogram
+ * by size, that check costs one pass over the sizes and does not depend on the
+ * number of reservations.
+ *
+ * The allocator for the current tables is kept in the {@link TableCatalog}.
+ */
+public final class TableAllocator {
+
+    // tablesAtLeast[n] = number of tables with n or more seats, for n = 0..maxCapacity + 1
+    private final int[] tablesAtLeast;
+
+    /**
+     * @param capacities seat capacity of every table
+     */
+    public TableAllocator(int[] capacities) {
+        int max = 0;
+        for (int capacity : capacities) {
+            max = Math.max(max, capacity);
+        }
+        tablesAtLeast = new int[max + 2];
+        for (int capacity : capacities) {
+            if (capacity > 0) {
+                tablesAtLeast[capacity]++;
+            }
+        }
+        for (int n = max - 1; n >= 0; n--) {
+            tablesAtLeast[n] += tablesAtLeast[n + 1];
+        }
+    }
+
+    /**
+     * @return seats of the largest table, 0 if there are no tables
+     */
+    public int getMaxCapacity() {
+        return tablesAtLeast.length - 2;
+    }
+
+    /**
+     * @param guests a party size
+     * @return number of tables with at least that many seats
+     */
+    public int tablesFor(int guests) {
+        if (guests >= tablesAtLeast.length) {
+            return 0;
+        }
+        return tablesAtLeast[Math.max(0, guests)];
+    }
+
+    /**
+     * Creates an empty histogram of parties by size for {@link #fits(int[], int)}.
+     *
+     * @return array indexed by party size, 0..maxCapacity + 1
+     */
+    public int[] newHistogram() {
+        return new int[tablesAtLeast.length];
+    }
+
+    /**
+     * Adds a party to a histogram. Parties larger than every table are counted in the
+     * last bucket, which no table can hold.
+     *
+     * @param histogram histogram from {@link #newHistogram()}
+     * @param guests party size
+     * @param delta 1 to add the party, -1 to remove it
+     */
+    public void add(int[] histogram, int guests, int delta) {
+        histogram[Math.max(1, Math.min(guests, histogram.length - 1))] += delta;
+    }
+
+    /**
+     * Checks whether the parties of a histogram plus one more party can all be seated
+     * at distinct tables that are large enough.
+     *
+     * @param histogram number of parties per size, from {@link #newHistogram()}
+     * @param guests size of the additional party
+     * @return true if there is an assignment
+     */
+    public boolean fits(int[] histogram, int guests) {
+        int newParty = Math.max(1, Math.min(guests, histogram.length - 1));
+        int partiesAtLeast = 0;
+        for (int n = histogram.length - 1; n >= 1; n--) {
+            partiesAtLeast += histogram[n];
+            if (n == newParty) {
+                partiesAtLeast++;
+            }
+            if (partiesAtLeast > tablesAtLeast[n]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,96 @@
+package data_access;
+
+import connection.ServerLog;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Immutable snapshot of the restaurant's table layout: the seat capacities, read in
+ * capacity order and kept as the number of tables per minimum capacity (see
+ * {@link TableAllocator}), so "how many tables seat n guests" is one array read.
+ *
+ * The layout changes only when staff add, update or delete a table. TableRepository
+ * calls {@link #reload(Connection)} after each such change, which builds a new
+ * snapshot and swaps it in with one write; readers keep using the snapshot they
+ * got. Whether a table is currently occupied is live state and is not part of the
+ * snapshot; it stays in tables_info, where it is changed with conditional updates.
+ */
+public final class TableCatalog {
+
+    private static volatile TableCatalog current;
+
+    private final TableAllocator allocator;
+
+    private TableCatalog(int[] capacities) {
+        this.allocator = new TableAllocator(capacities);
+    }
+
+    /**
+     * Returns the current snapshot, loading it if it was not loaded yet.
+     *
+     * @param conn connection used if the catalog must be loaded
+     * @return the current table layout
+     * @throws SQLException if loading fails
+     */
+    public static TableCatalog get(Connection conn) throws SQLException {
+        TableCatalog catalog = current;
+        if (catalog == null) {
+            synchronized (TableCatalog.class) {
+                catalog = current;
+                if (catalog == null) {
+                    catalog = reload(conn);
+                }
+            }
+        }
+        return catalog;
+    }
+
+    /**
+     * Reads the table layout and replaces the current snapshot. Called at startup and
+     * after every change of the tables.
+     *
+     * @param conn database connection
+     * @return the new snapshot
+     * @throws SQLException if loading fails; the previous snapshot stays in use
+     */
+    public static synchronized TableCatalog reload(Connection conn) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(
+                "SELECT seat_capacity FROM tables_info ORDER BY seat_capacity");
+        ResultSet rs = ps.executeQuery();
+        int[] seats = new int[16];
+        int n = 0;
+        while (rs.next()) {
+            if (n == seats.length) {
+                seats = Arrays.copyOf(seats, n * 2);
+            }
+            seats[n++] = rs.getInt("seat_capacity");
+        }
+        rs.close();
+        ps.close();
+
+        TableCatalog catalog = new TableCatalog(Arrays.copyOf(seats, n));
+        current = catalog;
+        ServerLog.info("[Tables] Table catalog loaded: " + n + " tables, largest seats "
+                + catalog.allocator.getMaxCapacity());
+        return catalog;
+    }
+
+    /**
+     * @param guests a party size
+     * @return number of tables with at least that many seats
+     */
+    public int tablesFor(int guests) {
+        return allocator.tablesFor(guests);
+    }
+
+    /**
+     * @return the allocator for this layout
+     */
+    public TableAllocator getAllocator() {
+        return allocator;
+    }
+}
@@ -1,6 +1,9 @@
 package data_access;
 import connection.MySQLConnectionPool;
 import connection.PooledConnection;
+import connection.ServerLog;
+import connection.ChangeEventBus;
+import common.ChangeEvent;
 import common.Message;
 import entities.Table;
 import services.AvailabilityService;
@@ -53,7 +56,7 @@ public class TableRepository {
             return Message.ok("GET_TABLES", tables);
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[TableRepository] getAllTables failed: " + e.getMessage(), e);
             return Message.fail("GET_TABLES", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -94,7 +97,7 @@ public class TableRepository {
             return Message.ok("GET_AVAILABLE_TABLES", tables);
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[TableRepository] getAvailableTables failed: " + e.getMessage(), e);
             return Message.fail("GET_AVAILABLE_TABLES", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -140,14 +143,17 @@ public class TableRepository {
             ps.setString(3, tableLocation);
             ps.executeUpdate();
             ps.close();
+            TableCatalog.reload(conn);
 
             // Create and return Table object
             Table table = new Table(tableNumber, seatCapacity, tableLocation);
 
+            AvailabilityCache.getInstance().invalidateAll();
+            ChangeEventBus.getInstance().publish(ChangeEvent.TABLES, "ADDED", tableNumber);
             return Message.ok("ADD_TABLE", table);
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[TableRepository] addTable failed: " + e.getMessage(), e);
             return Message.fail("ADD_TABLE", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -197,19 +203,24 @@ public class TableRepository {
             ps.close();
 
             if (rowsAffected > 0) {
+                TableCatalog.reload(conn);
+
                 // Check and cancel affected reservations if capacity was reduced
                 AvailabilityService.handleTableCapacityChange(
+                    conn,
                     table.getTableNumber(), 
                     oldCapacity, 
                     table.getSeatCapacity()
                 );
+                AvailabilityCache.getInstance().invalidateAll();
+                ChangeEventBus.getInstance().publish(ChangeEvent.TABLES, "UPDATED", table.getTableNumber());
                 return Message.ok("UPDATE_TABLE", "Table updated successfully");
             } else {
                 return Message.fail("UPDATE_TABLE", "Table not found");
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[TableRepository] updateTable failed: " + e.getMessage(), e);
             return Message.fail("UPDATE_TABLE", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -259,15 +270,19 @@ public class TableRepository {
             ps.close();
 
             if (rowsAffected > 0) {
+                TableCatalog.reload(conn);
+
                 // Check and cancel affected reservations
-                AvailabilityService.handleTableDeletion(tableNumber, capacity);
+                AvailabilityService.handleTableDeletion(conn, tableNumber, capacity);
+                AvailabilityCache.getInstance().invalidateAll();
+                ChangeEventBus.getInstance().publish(ChangeEvent.TABLES, "DELETED", tableNumber);
                 return Message.ok("DELETE_TABLE", "Table deleted successfully");
             } else {
                 return Message.fail("DELETE_TABLE", "Table not found");
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[TableRepository] deleteTable failed: " + e.getMessage(), e);
             return Message.fail("DELETE_TABLE", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -307,13 +322,14 @@ public class TableRepository {
             ps.close();
 
             if (rowsAffected > 0) {
+                ChangeEventBus.getInstance().publish(ChangeEvent.TABLES, "OCCUPIED", tableNumber);
                 return Message.ok("OCCUPY_TABLE", "Table marked as occupied");
             } else {
                 return Message.fail("OCCUPY_TABLE", "Table not found");
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[TableRepository] occupyTable failed: " + e.getMessage(), e);
             return Message.fail("OCCUPY_TABLE", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -352,13 +368,14 @@ public class TableRepository {
             ps.close();
 
             if (rowsAffected > 0) {
+                ChangeEventBus.getInstance().publish(ChangeEvent.TABLES, "RELEASED", tableNumber);
                 return Message.ok("RELEASE_TABLE", "Table marked as available");
             } else {
                 return Message.fail("RELEASE_TABLE", "Table not found");
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[TableRepository] releaseTable failed: " + e.getMessage(), e);
             return Message.fail("RELEASE_TABLE", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -424,7 +441,7 @@ public class TableRepository {
             return Message.ok("GET_CURRENT_DINERS", diners);
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[TableRepository] getCurrentDiners failed: " + e.getMessage(), e);
             return Message.fail("GET_CURRENT_DINERS", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
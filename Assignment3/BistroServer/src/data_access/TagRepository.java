@@ -1,5 +1,7 @@
 package data_access;
 
+import connection.ServerLog;
+
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
@@ -169,8 +171,7 @@ public class TagRepository {
             ps.executeUpdate();
         } catch (SQLException e) {
             // Log error but don't fail the main operation
-            System.err.println("[TagRepository] Failed to log activity: " + e.getMessage());
-            e.printStackTrace();
+            ServerLog.error("[TagRepository] Failed to log activity: " + e.getMessage(), e);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,234 @@
+package data_access;
+
+import common.Message;
+import connection.CommandMetrics;
+import connection.ServerLog;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs repository work in a database transaction.
+ *
+ * The work gets the connection, runs its statements and returns a result. The
+ * transaction is committed when the work returns, or rolled back if it throws or
+ * returns a failed {@link Message}, so a repository can simply
+ * {@code return Message.fail(...)} to abandon its changes. When MySQL aborts the
+ * transaction because of a deadlock or a lock wait timeout, the whole work is run
+ * again after a short random backoff, up to {@link #MAX_ATTEMPTS} times. Effects
+ * outside the database, such as change events, must therefore be registered with
+ * {@link #afterCommit(Runnable)} so they happen only once the changes are committed.
+ *
+ * If the connection is already inside a transaction (e.g. a pinned BATCH snapshot),
+ * the work joins it and nothing is committed or retried here.
+ *
+ * Usage:
+ * <pre>
+ * Message result = TransactionTemplate.inTransaction(conn, conn2 -> {
+ *     ... statements ...
+ *     TransactionTemplate.afterCommit(() -> ChangeEventBus.getInstance().publish(...));
+ *     return Message.ok("COMMAND", data);
+ * });
+ * </pre>
+ */
+public final class TransactionTemplate {
+
+    /** How many times the work is tried when it keeps hitting deadlocks. */
+    public static final int MAX_ATTEMPTS = Math.max(1, Integer.getInteger("bistro.tx.maxAttempts", 3));
+
+    // Backoff before attempt n is random in [0, BASE_BACKOFF_MS * 2^n)
+    private static final long BASE_BACKOFF_MS = 20;
+
+    // MySQL error codes
+    private static final int ER_LOCK_DEADLOCK = 1213;
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+
+    // Actions to run after the commit of the transaction running on this thread
+    private static final ThreadLocal<List<Runnable>> afterCommit = new ThreadLocal<>();
+
+    private static final CommandMetrics commitLatency = new CommandMetrics("commit");
+    private static final LongAdder transactions = new LongAdder();
+    private static final LongAdder rollbacks = new LongAdder();
+    private static final LongAdder retries = new LongAdder();
+
+    /**
+     * The statements of one transaction.
+     *
+     * @param <T> the result type
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+        T run(Connection conn) throws SQLException;
+    }
+
+    private TransactionTemplate() {}
+
+    /**
+     * Runs work in a transaction at the connection's default isolation level.
+     *
+     * @param conn the connection
+     * @param work the statements to run
+     * @return the work's result
+     * @throws SQLException if the work fails, or still deadlocks after the last attempt
+     */
+    public static <T> T inTransaction(Connection conn, Work<T> work) throws SQLException {
+        return run(conn, -1, false, work);
+    }
+
+    /**
+     * Runs work in a transaction at the given isolation level.
+     *
+     * @param conn the connection
+     * @param isolation a Connection.TRANSACTION_* level
+     * @param work the statements to run
+     * @return the work's result
+     * @throws SQLException if the work fails, or still deadlocks after the last attempt
+     */
+    public static <T> T inTransaction(Connection conn, int isolation, Work<T> work) throws SQLException {
+        return run(conn, isolation, false, work);
+    }
+
+    /**
+     * Runs read-only work in one REPEATABLE READ transaction, so all its queries
+     * see the same snapshot.
+     *
+     * @param conn the connection
+     * @param work the queries to run
+     * @return the work's result
+     * @throws SQLException if a query fails
+     */
+    public static <T> T readOnly(Connection conn, Work<T> work) throws SQLException {
+        return run(conn, Connection.TRANSACTION_REPEATABLE_READ, true, work);
+    }
+
+    /**
+     * Runs an action once the current transaction has committed, e.g. publishing a
+     * change event. The action is dropped if the transaction rolls back, and is not
+     * repeated when the transaction is retried. Outside a transaction started by this
+     * class it runs right away.
+     *
+     * @param action the action to run
+     */
+    public static void afterCommit(Runnable action) {
+        List<Runnable> actions = afterCommit.get();
+        if (actions != null) {
+            actions.add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Returns the transaction counters and the commit latency histogram.
+     *
+     * @return map of statistic name to value
+     */
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("transactions", transactions.sum());
+        stats.put("rollbacks", rollbacks.sum());
+        stats.put("deadlockRetries", retries.sum());
+        stats.put("commitLatency", commitLatency.toRow());
+        return stats;
+    }
+
+    private static <T> T run(Connection conn, int isolation, boolean readOnly, Work<T> work) throws SQLException {
+        if (!conn.getAutoCommit()) {
+            return work.run(conn); // Join the surrounding transaction
+        }
+
+        int previousIsolation = conn.getTransactionIsolation();
+        boolean changeIsolation = isolation >= 0 && isolation != previousIsolation;
+        if (changeIsolation) {
+            conn.setTransactionIsolation(isolation);
+        }
+        if (readOnly) {
+            conn.setReadOnly(true);
+        }
+
+        try {
+            for (int attempt = 1; ; attempt++) {
+                List<Runnable> actions = new ArrayList<>();
+                conn.setAutoCommit(false);
+                afterCommit.set(actions);
+                transactions.increment();
+                try {
+                    T result = work.run(conn);
+                    if (result instanceof Message m && !m.isSuccess()) {
+                        conn.rollback();
+                        rollbacks.increment();
+                        return result;
+                    }
+                    long start = System.nanoTime();
+                    conn.commit();
+                    commitLatency.record(System.nanoTime() - start, true);
+
+                    afterCommit.remove();
+                    for (Runnable action : actions) {
+                        action.run();
+                    }
+                    return result;
+                } catch (SQLException e) {
+                    rollbackQuietly(conn);
+                    if (!isRetryable(e) || attempt >= MAX_ATTEMPTS) {
+                        throw e;
+                    }
+                    retries.increment();
+                    ServerLog.warn("[DB] Transaction aborted (" + e.getMessage() + "), retry " + attempt
+                            + " of " + (MAX_ATTEMPTS - 1));
+                    backoff(attempt);
+                } catch (RuntimeException e) {
+                    rollbackQuietly(conn);
+                    throw e;
+                } finally {
+                    afterCommit.remove();
+                    conn.setAutoCommit(true);
+                }
+            }
+        } finally {
+            if (readOnly) {
+                conn.setReadOnly(false);
+            }
+            if (changeIsolation) {
+                conn.setTransactionIsolation(previousIsolation);
+            }
+        }
+    }
+
+    /**
+     * Checks whether MySQL rolled the transaction back because of lock contention,
+     * in which case running it again can succeed.
+     */
+    private static boolean isRetryable(SQLException e) {
+        return e instanceof SQLTransactionRollbackException
+                || e.getErrorCode() == ER_LOCK_DEADLOCK
+                || e.getErrorCode() == ER_LOCK_WAIT_TIMEOUT
+                || "40001".equals(e.getSQLState());
+    }
+
+    private static void backoff(int attempt) throws SQLException {
+        long bound = BASE_BACKOFF_MS << attempt;
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bound));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting to retry the transaction", e);
+        }
+    }
+
+    private static void rollbackQuietly(Connection conn) {
+        try {
+            conn.rollback();
+            rollbacks.increment();
+        } catch (SQLException e) {
+            ServerLog.error("[DB] Rollback failed: " + e.getMessage());
+        }
+    }
+}
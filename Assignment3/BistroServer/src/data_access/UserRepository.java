@@ -2,7 +2,9 @@ package data_access;
 
 import connection.MySQLConnectionPool;
 import connection.PooledConnection;
+import connection.ServerLog;
 import common.Message;
+import common.Paging;
 import entities.User;
 import entities.Subscriber;
 import entities.Representative;
@@ -11,6 +13,9 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -73,7 +78,7 @@ public class UserRepository {
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[UserRepository] login failed: " + e.getMessage(), e);
             return Message.fail("LOGIN", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -136,7 +141,7 @@ public class UserRepository {
             return Message.ok("LOGIN_BY_SUBSCRIBER_NUMBER", subscriber);
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[UserRepository] loginBySubscriberNumber failed: " + e.getMessage(), e);
             return Message.fail("LOGIN_BY_SUBSCRIBER_NUMBER", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -179,12 +184,11 @@ public class UserRepository {
                 return Message.fail("REGISTER_SUBSCRIBER", "Subscriber number already exists");
             }
 
-            conn.setAutoCommit(false);
-
-            try {
+            // Both rows or neither
+            return TransactionTemplate.inTransaction(conn, tx -> {
                 String userSql = "INSERT INTO users (name, email_address, phone_number, user_password, user_role) " +
                                 "VALUES (?, ?, ?, ?, 'SUBSCRIBER')";
-                PreparedStatement userPs = conn.prepareStatement(userSql, PreparedStatement.RETURN_GENERATED_KEYS);
+                PreparedStatement userPs = tx.prepareStatement(userSql, PreparedStatement.RETURN_GENERATED_KEYS);
                 userPs.setString(1, name);
                 userPs.setString(2, email);
                 userPs.setString(3, phone);
@@ -201,15 +205,13 @@ public class UserRepository {
 
                 String subscriberSql = "INSERT INTO subscribers (user_id, subscriber_number, membership_card) " +
                                       "VALUES (?, ?, ?)";
-                PreparedStatement subPs = conn.prepareStatement(subscriberSql);
+                PreparedStatement subPs = tx.prepareStatement(subscriberSql);
                 subPs.setInt(1, userId);
                 subPs.setString(2, subscriberNumber);
                 subPs.setString(3, membershipCard);
                 subPs.executeUpdate();
                 subPs.close();
 
-                conn.commit();
-
                 Subscriber subscriber = new Subscriber();
                 subscriber.setUserId(userId);
                 subscriber.setName(name);
@@ -222,16 +224,10 @@ public class UserRepository {
                 subscriber.setMembershipCard(membershipCard);
 
                 return Message.ok("REGISTER_SUBSCRIBER", subscriber);
-
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
-            }
+            });
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[UserRepository] registerSubscriber failed: " + e.getMessage(), e);
             return Message.fail("REGISTER_SUBSCRIBER", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -286,7 +282,7 @@ public class UserRepository {
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[UserRepository] getUser failed: " + e.getMessage(), e);
             return Message.fail("GET_USER", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -330,7 +326,7 @@ public class UserRepository {
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[UserRepository] updateUser failed: " + e.getMessage(), e);
             return Message.fail("UPDATE_USER", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -339,12 +335,18 @@ public class UserRepository {
 
     /**
      * Retrieves all subscribers for staff view.
+     * With a map of options as data, returns one page or streams the rows instead
+     * (see {@link #getSubscribersPage(Message)}).
      * 
-     * @param request Message (data not used)
-     * @return Message with List of Subscriber objects
+     * @param request Message (no data, or paging options)
+     * @return Message with List of Subscriber objects, or a page
      */
     public Message getAllSubscribers(Message request) {
-        MySQLConnectionPool pool = MySQLConnectionPool.getInstance();
+        if (PageCollector.isPaged(request)) {
+            return getSubscribersPage(request);
+        }
+
+        MySQLConnectionPool pool = MySQLConnectionPool.getReadInstance();
         PooledConnection pConn = null;
 
         try {
@@ -366,18 +368,7 @@ public class UserRepository {
 
             List<Subscriber> subscribers = new ArrayList<>();
             while (rs.next()) {
-                Subscriber subscriber = new Subscriber();
-                subscriber.setUserId(rs.getInt("user_id"));
-                subscriber.setName(rs.getString("name"));
-                subscriber.setEmailAddress(rs.getString("email_address"));
-                subscriber.setPhoneNumber(rs.getString("phone_number"));
-                subscriber.setUserPassword(rs.getString("user_password"));
-                subscriber.setUserRole(User.UserRole.SUBSCRIBER);
-                subscriber.setAccountStatus(rs.getBoolean("account_status"));
-                subscriber.setRegistrationDate(rs.getTimestamp("registration_date"));
-                subscriber.setSubscriberNumber(rs.getString("subscriber_number"));
-                subscriber.setMembershipCard(rs.getString("membership_card"));
-                subscribers.add(subscriber);
+                subscribers.add(extractSubscriberFromResultSet(rs));
             }
 
             rs.close();
@@ -386,8 +377,84 @@ public class UserRepository {
             return Message.ok("GET_ALL_SUBSCRIBERS", subscribers);
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[UserRepository] getAllSubscribers failed: " + e.getMessage(), e);
+            return Message.fail("GET_ALL_SUBSCRIBERS", "Database error: " + e.getMessage());
+        } finally {
+            pool.releaseConnection(pConn);
+        }
+    }
+
+    /**
+     * Gets one page of active subscribers ordered by name and user ID,
+     * or streams them in chunks.
+     * 
+     * @param request Message containing paging options (see common.Paging):
+     *                "limit", "cursor", "stream", and "fromDate"/"toDate" on the registration date
+     * @return Message with the page (items, nextCursor, last)
+     */
+    private Message getSubscribersPage(Message request) {
+        MySQLConnectionPool pool = MySQLConnectionPool.getReadInstance();
+        PooledConnection pConn = null;
+
+        try {
+            PageCollector<Subscriber> page = new PageCollector<>("GET_ALL_SUBSCRIBERS", request,
+                    s -> List.of(s.getName(), s.getUserId()));
+
+            LocalDate fromDate = page.date(Paging.FROM_DATE);
+            LocalDate toDate = page.date(Paging.TO_DATE);
+            List<?> cursor = page.cursor(2);
+
+            StringBuilder sql = new StringBuilder(
+                    "SELECT u.*, s.subscriber_number, s.membership_card " +
+                    "FROM users u " +
+                    "INNER JOIN subscribers s ON u.user_id = s.user_id " +
+                    "WHERE u.account_status = 1");
+            List<Object> params = new ArrayList<>();
+            if (fromDate != null) {
+                sql.append(" AND u.registration_date >= ?");
+                params.add(Timestamp.valueOf(fromDate.atStartOfDay()));
+            }
+            if (toDate != null) {
+                sql.append(" AND u.registration_date < ?");
+                params.add(Timestamp.valueOf(toDate.plusDays(1).atStartOfDay()));
+            }
+            if (cursor != null) {
+                String name = (String) cursor.get(0);
+                sql.append(" AND (u.name > ? OR (u.name = ? AND u.user_id > ?))");
+                params.addAll(List.of(name, name, (Integer) cursor.get(1)));
+            }
+            sql.append(" ORDER BY u.name ASC, u.user_id ASC").append(page.limitClause());
+
+            pConn = pool.getConnection();
+            if (pConn == null) {
+                return Message.fail("GET_ALL_SUBSCRIBERS", "Database connection failed");
+            }
+
+            Connection conn = pConn.getConnection();
+
+            PreparedStatement ps = conn.prepareStatement(sql.toString());
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            if (page.isStreaming()) {
+                ps.setFetchSize(Integer.MIN_VALUE); // MySQL: stream rows instead of buffering the result
+            }
+            ResultSet rs = ps.executeQuery();
+
+            while (rs.next() && page.add(extractSubscriberFromResultSet(rs))) {
+                // rows are collected (or streamed) by the page
+            }
+
+            rs.close();
+            ps.close();
+
+            return page.finish();
+
+        } catch (SQLException e) {
+            ServerLog.error("[UserRepository] getSubscribersPage failed: " + e.getMessage(), e);
             return Message.fail("GET_ALL_SUBSCRIBERS", "Database error: " + e.getMessage());
+        } catch (IllegalArgumentException | ClassCastException | DateTimeException e) {
+            return Message.fail("GET_ALL_SUBSCRIBERS", "Invalid list options: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
         }
@@ -450,7 +517,7 @@ public class UserRepository {
             return Message.ok("GET_SUBSCRIBER_BY_NUMBER", subscriber);
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[UserRepository] getSubscriberByNumber failed: " + e.getMessage(), e);
             return Message.fail("GET_SUBSCRIBER_BY_NUMBER", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -475,6 +542,24 @@ public class UserRepository {
         return user;
     }
 
+    /**
+     * Extracts a Subscriber from a row of users joined with subscribers.
+     */
+    private Subscriber extractSubscriberFromResultSet(ResultSet rs) throws SQLException {
+        Subscriber subscriber = new Subscriber();
+        subscriber.setUserId(rs.getInt("user_id"));
+        subscriber.setName(rs.getString("name"));
+        subscriber.setEmailAddress(rs.getString("email_address"));
+        subscriber.setPhoneNumber(rs.getString("phone_number"));
+        subscriber.setUserPassword(rs.getString("user_password"));
+        subscriber.setUserRole(User.UserRole.SUBSCRIBER);
+        subscriber.setAccountStatus(rs.getBoolean("account_status"));
+        subscriber.setRegistrationDate(rs.getTimestamp("registration_date"));
+        subscriber.setSubscriberNumber(rs.getString("subscriber_number"));
+        subscriber.setMembershipCard(rs.getString("membership_card"));
+        return subscriber;
+    }
+
     /**
      * Loads a complete Subscriber object with all details.
      */
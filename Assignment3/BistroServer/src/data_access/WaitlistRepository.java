@@ -1,13 +1,19 @@
 package data_access;
 import connection.MySQLConnectionPool;
 import connection.PooledConnection;
+import connection.ServerLog;
+import connection.ChangeEventBus;
+import common.ChangeEvent;
 import common.Message;
+import common.Paging;
 import entities.WaitlistEntry;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -67,6 +73,15 @@ public class WaitlistRepository {
 	            lookupPs.close();
 	        }
 
+	        // No table of the layout is large enough: do not even look at the live status
+	        if (TableCatalog.get(conn).tablesFor(numberOfDiners) == 0) {
+	            Map<String, Object> resp = new java.util.HashMap<>();
+	            resp.put("availableNow", false);
+	            resp.put("tableNumber", null);
+	            resp.put("text", "We have no table for " + numberOfDiners + " diners. Please ask our staff for help.");
+	            return Message.ok("CHECK_AVAILABILITY_TERMINAL", resp);
+	        }
+
 	        // Check if a table is immediately available
 	        String checkTableSql =
 	                "SELECT table_number, seat_capacity FROM tables_info " +
@@ -97,6 +112,8 @@ public class WaitlistRepository {
 	                return Message.fail("CHECK_AVAILABILITY_TERMINAL", "Table was just taken. Please try again.");
 	            }
 
+	            ChangeEventBus.getInstance().publish(ChangeEvent.TABLES, "OCCUPIED", tableNumber);
+
 	            Map<String, Object> resp = new java.util.HashMap<>();
 	            resp.put("availableNow", true);
 	            resp.put("tableNumber", tableNumber);
@@ -116,7 +133,7 @@ public class WaitlistRepository {
 	        return Message.ok("CHECK_AVAILABILITY_TERMINAL", resp);
 
 	    } catch (SQLException e) {
-	        e.printStackTrace();
+	        ServerLog.error("[WaitlistRepository] checkAvailabilityTerminal failed: " + e.getMessage(), e);
 	        return Message.fail("CHECK_AVAILABILITY_TERMINAL", "Database error: " + e.getMessage());
 	    } finally {
 	        pool.releaseConnection(pConn);
@@ -182,6 +199,8 @@ public class WaitlistRepository {
 	            TagRepository.logWaitlistJoin(conn, subscriberNumber, entryCode, numberOfDiners);
 	        }
 
+	        ChangeEventBus.getInstance().publish(ChangeEvent.WAITLIST, "JOINED", null);
+
 	        Map<String, Object> response = new java.util.HashMap<>();
 	        response.put("entryCode", entryCode);
 	        response.put("message", "You've been added to the waitlist! Your code: " + entryCode);
@@ -189,7 +208,7 @@ public class WaitlistRepository {
 	        return Message.ok("JOIN_WAITLIST", response);
 
 	    } catch (SQLException e) {
-	        e.printStackTrace();
+	        ServerLog.error("[WaitlistRepository] joinWaitlist failed: " + e.getMessage(), e);
 	        return Message.fail("JOIN_WAITLIST", "Database error: " + e.getMessage());
 	    } finally {
 	        pool.releaseConnection(pConn);
@@ -227,13 +246,14 @@ public class WaitlistRepository {
             ps.close();
 
             if (rowsAffected > 0) {
+                ChangeEventBus.getInstance().publish(ChangeEvent.WAITLIST, "LEFT", null);
                 return Message.ok("LEAVE_WAITLIST", "Successfully removed from waitlist");
             } else {
                 return Message.fail("LEAVE_WAITLIST", "Entry not found in waitlist");
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[WaitlistRepository] leaveWaitlist failed: " + e.getMessage(), e);
             return Message.fail("LEAVE_WAITLIST", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
@@ -242,12 +262,18 @@ public class WaitlistRepository {
 
     /**
      * Gets all current waitlist entries ordered by request time.
+     * With a map of options as data, returns one page or streams the rows instead
+     * (see {@link #getWaitlistPage(Message)}).
      *
-     * @param request Message (empty data)
-     * @return Message with List of WaitlistEntry objects
+     * @param request Message (empty data, or paging options)
+     * @return Message with List of WaitlistEntry objects, or a page
      */
     public Message getWaitlist(Message request) {
-        MySQLConnectionPool pool = MySQLConnectionPool.getInstance();
+        if (PageCollector.isPaged(request)) {
+            return getWaitlistPage(request);
+        }
+
+        MySQLConnectionPool pool = MySQLConnectionPool.getReadInstance();
         PooledConnection pConn = null;
 
         try {
@@ -274,8 +300,80 @@ public class WaitlistRepository {
             return Message.ok("GET_WAITLIST", waitlist);
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[WaitlistRepository] getWaitlist failed: " + e.getMessage(), e);
+            return Message.fail("GET_WAITLIST", "Database error: " + e.getMessage());
+        } finally {
+            pool.releaseConnection(pConn);
+        }
+    }
+
+    /**
+     * Gets one page of waitlist entries ordered by request time and entry ID,
+     * or streams them in chunks.
+     *
+     * @param request Message containing paging options (see common.Paging):
+     *                "limit", "cursor", "stream", and "fromDate"/"toDate" on the request time
+     * @return Message with the page (items, nextCursor, last)
+     */
+    private Message getWaitlistPage(Message request) {
+        MySQLConnectionPool pool = MySQLConnectionPool.getReadInstance();
+        PooledConnection pConn = null;
+
+        try {
+            PageCollector<WaitlistEntry> page = new PageCollector<>("GET_WAITLIST", request,
+                    e -> List.of(e.getRequestTime(), e.getEntryId()));
+
+            LocalDate fromDate = page.date(Paging.FROM_DATE);
+            LocalDate toDate = page.date(Paging.TO_DATE);
+            List<?> cursor = page.cursor(2);
+
+            StringBuilder sql = new StringBuilder("SELECT * FROM waiting_list WHERE 1 = 1");
+            List<Object> params = new ArrayList<>();
+            if (fromDate != null) {
+                sql.append(" AND request_time >= ?");
+                params.add(Timestamp.valueOf(fromDate.atStartOfDay()));
+            }
+            if (toDate != null) {
+                sql.append(" AND request_time < ?");
+                params.add(Timestamp.valueOf(toDate.plusDays(1).atStartOfDay()));
+            }
+            if (cursor != null) {
+                Timestamp requestTime = Timestamp.valueOf((LocalDateTime) cursor.get(0));
+                sql.append(" AND (request_time > ? OR (request_time = ? AND entry_id > ?))");
+                params.addAll(List.of(requestTime, requestTime, (Integer) cursor.get(1)));
+            }
+            sql.append(" ORDER BY request_time ASC, entry_id ASC").append(page.limitClause());
+
+            pConn = pool.getConnection();
+            if (pConn == null) {
+                return Message.fail("GET_WAITLIST", "Database connection failed");
+            }
+
+            Connection conn = pConn.getConnection();
+
+            PreparedStatement ps = conn.prepareStatement(sql.toString());
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            if (page.isStreaming()) {
+                ps.setFetchSize(Integer.MIN_VALUE); // MySQL: stream rows instead of buffering the result
+            }
+            ResultSet rs = ps.executeQuery();
+
+            while (rs.next() && page.add(extractWaitlistEntryFromResultSet(rs))) {
+                // rows are collected (or streamed) by the page
+            }
+
+            rs.close();
+            ps.close();
+
+            return page.finish();
+
+        } catch (SQLException e) {
+            ServerLog.error("[WaitlistRepository] getWaitlistPage failed: " + e.getMessage(), e);
             return Message.fail("GET_WAITLIST", "Database error: " + e.getMessage());
+        } catch (IllegalArgumentException | ClassCastException | DateTimeException e) {
+            return Message.fail("GET_WAITLIST", "Invalid list options: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
         }
@@ -356,7 +454,7 @@ public class WaitlistRepository {
             return Message.fail("LOST_CODE", "No waitlist entry found for this identifier");
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            ServerLog.error("[WaitlistRepository] retrieveLostCode failed: " + e.getMessage(), e);
             return Message.fail("LOST_CODE", "Database error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
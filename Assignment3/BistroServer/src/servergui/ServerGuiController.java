@@ -3,9 +3,12 @@ import common.ChatIF;
 import connection.BistroServer;
 import connection.MySQLConnectionPool;
 import services.NotificationScheduler;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
+import javafx.util.Duration;
 import java.net.InetAddress;
 
 /**
@@ -35,6 +38,8 @@ public class ServerGuiController {
     @FXML
     private Label clientsLabel;
     @FXML
+    private Label poolLabel;
+    @FXML
     private TextArea logArea;
     @FXML
     private Button startBtn;
@@ -44,6 +49,10 @@ public class ServerGuiController {
     private BistroServer server;
     private ChatIF ui;
 
+    // Refreshes the DB pool display while the server runs
+    private final Timeline poolRefresh = new Timeline(
+            new KeyFrame(Duration.seconds(2), e -> refreshPoolInfo()));
+
     /**
      * Initializes the controller. Called automatically by JavaFX after FXML
      * loading.
@@ -51,6 +60,7 @@ public class ServerGuiController {
     @FXML
     public void initialize() {
         ui = new ServerUI(logArea);
+        poolRefresh.setCycleCount(Timeline.INDEFINITE);
         portField.setText(String.valueOf(BistroServer.DEFAULT_PORT));
         refreshHostInfo();
         ui.display("Server GUI initialized and ready.");
@@ -101,6 +111,8 @@ public class ServerGuiController {
 
             portLabel.setText(String.valueOf(port));
             clientsLabel.setText("0");
+            refreshPoolInfo();
+            poolRefresh.play();
 
             startBtn.setDisable(true);
             stopBtn.setDisable(false);
@@ -161,6 +173,13 @@ public class ServerGuiController {
         }
     }
 
+    /**
+     * Updates the DB pool display with the pool's current usage.
+     */
+    private void refreshPoolInfo() {
+        poolLabel.setText(MySQLConnectionPool.getInstance().getSummary());
+    }
+
     /**
      * Updates the connected clients count display. Called by BistroServer when
      * client count changes.
@@ -178,6 +197,7 @@ public class ServerGuiController {
         try {
             // Stop the notification scheduler first
             NotificationScheduler.stop();
+            poolRefresh.stop();
             
             if (server != null && server.isListening()) {
                 server.close();
@@ -192,6 +212,7 @@ public class ServerGuiController {
 
             portLabel.setText("-");
             clientsLabel.setText("0");
+            poolLabel.setText("-");
 
             startBtn.setDisable(false);
             stopBtn.setDisable(true);
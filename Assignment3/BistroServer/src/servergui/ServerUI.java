@@ -1,26 +1,99 @@
 package servergui;
 
 import common.ChatIF;
-import javafx.application.Platform;
+import connection.ServerLog;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.scene.control.TextArea;
+import javafx.util.Duration;
 
-import java.time.LocalDateTime;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
 
+/**
+ * Shows the server log in the GUI's log area.
+ * Messages displayed here go to the {@link ServerLog}, and everything the server logs
+ * is collected from it. The collected lines are appended a few times per second in a
+ * single update instead of one FX task per line, and the area keeps only the newest
+ * {@link #MAX_LINES} lines. If lines arrive faster than that between two updates,
+ * the oldest ones are skipped in the GUI (they are still in the log file).
+ */
 public class ServerUI implements ChatIF {
 
+    /** Number of lines kept in the log area. */
+    public static final int MAX_LINES = Math.max(100, Integer.getInteger("bistro.log.guiMaxLines", 1000));
+
+    private static final Duration REFRESH = Duration.millis(Integer.getInteger("bistro.log.guiRefreshMs", 250));
+
     private final TextArea logArea;
-    private final DateTimeFormatter fmt = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private final DateTimeFormatter fmt = DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    // Lines waiting for the next refresh, filled by the log thread
+    private final Deque<String> pending = new ArrayDeque<>();
+    private int skipped = 0;
 
     public ServerUI(TextArea logArea) {
         this.logArea = logArea;
+        ServerLog.addSink(this::collect);
+
+        Timeline refresh = new Timeline(new KeyFrame(REFRESH, e -> refresh()));
+        refresh.setCycleCount(Timeline.INDEFINITE);
+        refresh.play();
     }
 
     @Override
     public void display(String message) {
-        Platform.runLater(() -> {
-            String ts = LocalDateTime.now().format(fmt);
-            logArea.appendText("[" + ts + "] " + message + "\n");
-        });
+        ServerLog.info(message);
+    }
+
+    private synchronized void collect(List<ServerLog.Entry> batch) {
+        for (ServerLog.Entry entry : batch) {
+            if (entry.getLevel() == ServerLog.Level.DEBUG) {
+                continue;
+            }
+            String level = entry.getLevel() == ServerLog.Level.INFO ? "" : entry.getLevel() + ": ";
+            pending.addLast("[" + fmt.format(Instant.ofEpochMilli(entry.getTime())) + "] "
+                    + level + entry.getMessage());
+            if (pending.size() > MAX_LINES) {
+                pending.removeFirst();
+                skipped++;
+            }
+        }
+    }
+
+    /**
+     * Appends the pending lines in one update and trims the area. Runs on the FX thread.
+     */
+    private void refresh() {
+        StringBuilder text = new StringBuilder();
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            if (skipped > 0) {
+                text.append("... ").append(skipped).append(" line(s) skipped, see the log file ...\n");
+                skipped = 0;
+            }
+            for (String line : pending) {
+                text.append(line).append('\n');
+            }
+            pending.clear();
+        }
+        logArea.appendText(text.toString());
+
+        // The last paragraph is the empty one after the final newline
+        int excess = logArea.getParagraphs().size() - 1 - MAX_LINES;
+        if (excess > 0) {
+            String current = logArea.getText();
+            int end = 0;
+            for (int i = 0; i < excess; i++) {
+                end = current.indexOf('\n', end) + 1;
+            }
+            logArea.deleteText(0, end);
+        }
     }
 }
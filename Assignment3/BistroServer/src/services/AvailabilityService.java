@@ -1,7 +1,13 @@
 package services;
 
-import connection.MySQLConnectionPool;
-import connection.PooledConnection;
+import connection.ChangeEventBus;
+import connection.ServerLog;
+import common.ChangeEvent;
+import data_access.AvailabilityCache;
+import data_access.OpeningHoursCalendar;
+import data_access.SlotOccupancyIndex;
+import data_access.TableAllocator;
+import data_access.TableCatalog;
 import entities.OpeningHours;
 
 import java.sql.Connection;
@@ -46,26 +52,19 @@ public class AvailabilityService {
     /**
      * Checks and cancels reservations affected by opening hours change for a weekday.
      * Called after updating regular weekly opening hours.
+     * Runs on the caller's connection, so the cascade never waits for a second
+     * connection from the pool while the caller holds one.
      * 
+     * @param conn the caller's database connection
      * @param weekday the weekday that was updated
      * @param newOpeningTime new opening time
      * @param newClosingTime new closing time
      */
-    public static void handleOpeningHoursChange(OpeningHours.Weekday weekday, 
+    public static void handleOpeningHoursChange(Connection conn,
+                                                 OpeningHours.Weekday weekday, 
                                                  LocalTime newOpeningTime, 
                                                  LocalTime newClosingTime) {
-        MySQLConnectionPool pool = MySQLConnectionPool.getInstance();
-        PooledConnection pConn = null;
-
         try {
-            pConn = pool.getConnection();
-            if (pConn == null) {
-                System.err.println("[AvailabilityService] Failed to get database connection");
-                return;
-            }
-
-            Connection conn = pConn.getConnection();
-            
             // Find all future dates that match this weekday (next 30 days)
             LocalDate today = LocalDate.now();
             List<LocalDate> affectedDates = new ArrayList<>();
@@ -74,7 +73,7 @@ public class AvailabilityService {
                 LocalDate checkDate = today.plusDays(i);
                 if (checkDate.getDayOfWeek().toString().equals(weekday.name())) {
                     // Check if there's no special hours override for this date
-                    if (!hasSpecialHours(conn, checkDate)) {
+                    if (!OpeningHoursCalendar.getInstance().hasSpecialHours(checkDate, conn)) {
                         affectedDates.add(checkDate);
                     }
                 }
@@ -85,12 +84,10 @@ public class AvailabilityService {
                 cancelInvalidReservationsForDate(conn, date, newOpeningTime, newClosingTime);
             }
 
-            System.out.println("[AvailabilityService] Processed opening hours change for " + weekday);
+            ServerLog.info("[AvailabilityService] Processed opening hours change for " + weekday);
 
         } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
-            pool.releaseConnection(pConn);
+            ServerLog.error("[AvailabilityService] handleOpeningHoursChange failed: " + e.getMessage(), e);
         }
     }
 
@@ -98,27 +95,18 @@ public class AvailabilityService {
      * Checks and cancels reservations affected by special hours change for a specific date.
      * Called after adding or updating special hours.
      * 
+     * @param conn the caller's database connection
      * @param specialDate the date with special hours
      * @param openingTime opening time (null if closed)
      * @param closingTime closing time (null if closed)
      * @param isClosed true if restaurant is closed on this date
      */
-    public static void handleSpecialHoursChange(LocalDate specialDate, 
+    public static void handleSpecialHoursChange(Connection conn,
+                                                 LocalDate specialDate, 
                                                  LocalTime openingTime, 
                                                  LocalTime closingTime, 
                                                  boolean isClosed) {
-        MySQLConnectionPool pool = MySQLConnectionPool.getInstance();
-        PooledConnection pConn = null;
-
         try {
-            pConn = pool.getConnection();
-            if (pConn == null) {
-                System.err.println("[AvailabilityService] Failed to get database connection");
-                return;
-            }
-
-            Connection conn = pConn.getConnection();
-
             if (isClosed) {
                 // Cancel ALL reservations for this date
                 cancelAllReservationsForDate(conn, specialDate);
@@ -127,12 +115,10 @@ public class AvailabilityService {
                 cancelInvalidReservationsForDate(conn, specialDate, openingTime, closingTime);
             }
 
-            System.out.println("[AvailabilityService] Processed special hours change for " + specialDate);
+            ServerLog.info("[AvailabilityService] Processed special hours change for " + specialDate);
 
         } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
-            pool.releaseConnection(pConn);
+            ServerLog.error("[AvailabilityService] handleSpecialHoursChange failed: " + e.getMessage(), e);
         }
     }
 
@@ -140,31 +126,19 @@ public class AvailabilityService {
      * Checks and cancels reservations affected by table deletion.
      * Called after deleting a table.
      * 
+     * @param conn the caller's database connection
      * @param deletedTableNumber the table number that was deleted
      * @param deletedCapacity the capacity of the deleted table
      */
-    public static void handleTableDeletion(int deletedTableNumber, int deletedCapacity) {
-        MySQLConnectionPool pool = MySQLConnectionPool.getInstance();
-        PooledConnection pConn = null;
-
+    public static void handleTableDeletion(Connection conn, int deletedTableNumber, int deletedCapacity) {
         try {
-            pConn = pool.getConnection();
-            if (pConn == null) {
-                System.err.println("[AvailabilityService] Failed to get database connection");
-                return;
-            }
-
-            Connection conn = pConn.getConnection();
-            
             // Check all future active reservations
             cancelReservationsWithInsufficientTables(conn);
 
-            System.out.println("[AvailabilityService] Processed table deletion: Table " + deletedTableNumber);
+            ServerLog.info("[AvailabilityService] Processed table deletion: Table " + deletedTableNumber);
 
         } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
-            pool.releaseConnection(pConn);
+            ServerLog.error("[AvailabilityService] handleTableDeletion failed: " + e.getMessage(), e);
         }
     }
 
@@ -172,61 +146,30 @@ public class AvailabilityService {
      * Checks and cancels reservations affected by table capacity reduction.
      * Called after updating a table's seat capacity.
      * 
+     * @param conn the caller's database connection
      * @param tableNumber the table that was updated
      * @param oldCapacity the old capacity
      * @param newCapacity the new capacity
      */
-    public static void handleTableCapacityChange(int tableNumber, int oldCapacity, int newCapacity) {
+    public static void handleTableCapacityChange(Connection conn, int tableNumber, int oldCapacity, int newCapacity) {
         if (newCapacity >= oldCapacity) {
             // Capacity increased or stayed the same - no reservations affected
             return;
         }
 
-        MySQLConnectionPool pool = MySQLConnectionPool.getInstance();
-        PooledConnection pConn = null;
-
         try {
-            pConn = pool.getConnection();
-            if (pConn == null) {
-                System.err.println("[AvailabilityService] Failed to get database connection");
-                return;
-            }
-
-            Connection conn = pConn.getConnection();
-            
             // Check all future active reservations
             cancelReservationsWithInsufficientTables(conn);
 
-            System.out.println("[AvailabilityService] Processed table capacity change: Table " + tableNumber);
+            ServerLog.info("[AvailabilityService] Processed table capacity change: Table " + tableNumber);
 
         } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
-            pool.releaseConnection(pConn);
+            ServerLog.error("[AvailabilityService] handleTableCapacityChange failed: " + e.getMessage(), e);
         }
     }
 
     // ==================== Private Helper Methods ====================
 
-    /**
-     * Checks if a specific date has special hours defined.
-     */
-    private static boolean hasSpecialHours(Connection conn, LocalDate date) throws SQLException {
-        String sql = "SELECT COUNT(*) FROM special_hours WHERE special_date = ?";
-        PreparedStatement ps = conn.prepareStatement(sql);
-        ps.setDate(1, Date.valueOf(date));
-        ResultSet rs = ps.executeQuery();
-        
-        boolean exists = false;
-        if (rs.next()) {
-            exists = rs.getInt(1) > 0;
-        }
-        
-        rs.close();
-        ps.close();
-        return exists;
-    }
-
     /**
      * Cancels all reservations for a specific date (used when restaurant is closed).
      */
@@ -290,36 +233,26 @@ public class AvailabilityService {
         ps.close();
 
         // For each reservation, check if there's still capacity
+        TableAllocator tables = TableCatalog.get(conn).getAllocator();
         for (ReservationInfo res : allReservations) {
-            if (!canAccommodateReservation(conn, res)) {
+            if (!canAccommodateReservation(conn, tables, res)) {
                 cancelReservationAndNotify(conn, res, "No suitable table available for your party size");
             }
         }
     }
 
     /**
-     * Checks if a reservation can be accommodated given current table configuration.
+     * Checks if a reservation can be accommodated given current table configuration:
+     * it and the reservations overlapping it must each get their own table with enough seats.
      */
-    private static boolean canAccommodateReservation(Connection conn, ReservationInfo res) throws SQLException {
-        // Count tables that can fit this guest count
-        String tableSql = "SELECT COUNT(*) FROM tables_info WHERE seat_capacity >= ?";
-        PreparedStatement tablePs = conn.prepareStatement(tableSql);
-        tablePs.setInt(1, res.guestCount);
-        ResultSet tableRs = tablePs.executeQuery();
-        
-        int suitableTableCount = 0;
-        if (tableRs.next()) {
-            suitableTableCount = tableRs.getInt(1);
-        }
-        tableRs.close();
-        tablePs.close();
-
-        if (suitableTableCount == 0) {
+    private static boolean canAccommodateReservation(Connection conn, TableAllocator tables,
+                                                     ReservationInfo res) throws SQLException {
+        if (tables.tablesFor(res.guestCount) == 0) {
             return false;
         }
 
-        // Count overlapping reservations (within 2-hour window)
-        String resSql = "SELECT COUNT(*) FROM reservations " +
+        // Party sizes of overlapping reservations (within 2-hour window)
+        String resSql = "SELECT guest_count FROM reservations " +
                        "WHERE reservation_status = 'ACTIVE' " +
                        "AND reservation_id != ? " +
                        "AND booking_date = ? " +
@@ -332,15 +265,14 @@ public class AvailabilityService {
         resPs.setTime(4, Time.valueOf(res.bookingTime.plusMinutes(119))); // Just under 2 hours
 
         ResultSet resRs = resPs.executeQuery();
-        int overlappingCount = 0;
-        if (resRs.next()) {
-            overlappingCount = resRs.getInt(1);
+        int[] parties = tables.newHistogram();
+        while (resRs.next()) {
+            tables.add(parties, resRs.getInt("guest_count"), 1);
         }
         resRs.close();
         resPs.close();
 
-        // If overlapping reservations >= suitable tables, can't accommodate
-        return overlappingCount < suitableTableCount;
+        return tables.fits(parties, res.guestCount);
     }
 
     /**
@@ -397,6 +329,9 @@ public class AvailabilityService {
         ps.setInt(1, res.reservationId);
         ps.executeUpdate();
         ps.close();
+        SlotOccupancyIndex.getInstance().reservationRemoved(res.reservationId, res.bookingDate);
+        AvailabilityCache.getInstance().invalidate(res.bookingDate);
+        ChangeEventBus.getInstance().publish(ChangeEvent.RESERVATIONS, "CANCELLED", res.reservationId, res.bookingDate);
 
         // Determine contact info
         String phone = res.subscriberNumber != null ? res.subscriberPhone : res.walkInPhone;
@@ -428,7 +363,7 @@ public class AvailabilityService {
         // Send notification
         NotificationService.sendNotification(phone, email, subject, message);
 
-        System.out.println("[AvailabilityService] Cancelled reservation " + res.confirmationCode + 
+        ServerLog.info("[AvailabilityService] Cancelled reservation " + res.confirmationCode + 
                           " and notified customer. Reason: " + reason);
     }
 }
\ No newline at end of file
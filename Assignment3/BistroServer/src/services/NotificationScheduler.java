@@ -1,12 +1,17 @@
 package services;
 import connection.MySQLConnectionPool;
 import connection.PooledConnection;
+import connection.ChangeEventBus;
+import connection.ServerLog;
+import common.ChangeEvent;
+import data_access.AvailabilityCache;
+import data_access.SlotOccupancyIndex;
+import data_access.TransactionTemplate;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.LocalDate;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -17,7 +22,6 @@ import java.util.concurrent.TimeUnit;
  */
 public class NotificationScheduler {
 
-    private static final DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     private static ScheduledExecutorService scheduler;
 
     /**
@@ -26,7 +30,7 @@ public class NotificationScheduler {
      */
     public static void start() {
         if (scheduler != null && !scheduler.isShutdown()) {
-            System.out.println("[NotificationScheduler] Already running");
+            ServerLog.info("[NotificationScheduler] Already running");
             return;
         }
 
@@ -34,7 +38,7 @@ public class NotificationScheduler {
 
         scheduler.scheduleAtFixedRate(() -> {
             try {
-                System.out.println("\n[" + LocalDateTime.now().format(fmt) + "] [NotificationScheduler] Running notification checks...");
+                ServerLog.debug("[NotificationScheduler] Running notification checks...");
 
                 checkReservationReminders();
                 checkNoShows();
@@ -42,15 +46,14 @@ public class NotificationScheduler {
                 checkWaitlistNotifications();
                 checkWaitlistNoShows();
 
-                System.out.println("[" + LocalDateTime.now().format(fmt) + "] [NotificationScheduler] Checks completed.\n");
+                ServerLog.debug("[NotificationScheduler] Checks completed.");
 
             } catch (Exception e) {
-                System.err.println("[NotificationScheduler] Error: " + e.getMessage());
-                e.printStackTrace();
+                ServerLog.error("[NotificationScheduler] Error: " + e.getMessage(), e);
             }
         }, 0, 1, TimeUnit.MINUTES);
 
-        System.out.println("[NotificationScheduler] Started (runs every 1 minute)");
+        ServerLog.info("[NotificationScheduler] Started (runs every 1 minute)");
     }
 
     /**
@@ -66,7 +69,7 @@ public class NotificationScheduler {
             } catch (InterruptedException e) {
                 scheduler.shutdownNow();
             }
-            System.out.println("[NotificationScheduler] Stopped");
+            ServerLog.info("[NotificationScheduler] Stopped");
         }
     }
 
@@ -122,11 +125,11 @@ public class NotificationScheduler {
             ps.close();
 
             if (count > 0) {
-                System.out.println("    [Reminders] Sent " + count + " reminder(s)");
+                ServerLog.info("[Reminders] Sent " + count + " reminder(s)");
             }
 
         } catch (SQLException e) {
-            System.err.println("    [Reminders] Error: " + e.getMessage());
+            ServerLog.error("[Reminders] Error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
         }
@@ -143,58 +146,70 @@ public class NotificationScheduler {
             pConn = pool.getConnection();
             if (pConn == null) return;
 
-            Connection conn = pConn.getConnection();
+            // Status changes commit together; notifications go out only after the commit
+            int count = TransactionTemplate.inTransaction(pConn.getConnection(), conn -> {
+                String selectSql =
+                    "SELECT r.reservation_id, r.confirmation_code, r.booking_date, r.subscriber_number, " +
+                    "       r.walk_in_phone, r.walk_in_email, " +
+                    "       u.phone_number AS sub_phone, u.email_address AS sub_email " +
+                    "FROM reservations r " +
+                    "LEFT JOIN subscribers s ON r.subscriber_number = s.subscriber_number " +
+                    "LEFT JOIN users u ON s.user_id = u.user_id " +
+                    "WHERE r.reservation_status = 'ACTIVE' " +
+                    "AND r.assigned_table_number IS NULL " +
+                    "AND TIMESTAMP(r.booking_date, r.booking_time) < NOW() - INTERVAL 15 MINUTE";
 
-            String selectSql =
-                "SELECT r.reservation_id, r.confirmation_code, r.subscriber_number, " +
-                "       r.walk_in_phone, r.walk_in_email, " +
-                "       u.phone_number AS sub_phone, u.email_address AS sub_email " +
-                "FROM reservations r " +
-                "LEFT JOIN subscribers s ON r.subscriber_number = s.subscriber_number " +
-                "LEFT JOIN users u ON s.user_id = u.user_id " +
-                "WHERE r.reservation_status = 'ACTIVE' " +
-                "AND r.assigned_table_number IS NULL " +
-                "AND TIMESTAMP(r.booking_date, r.booking_time) < NOW() - INTERVAL 15 MINUTE";
+                PreparedStatement selectPs = conn.prepareStatement(selectSql);
+                ResultSet rs = selectPs.executeQuery();
 
-            PreparedStatement selectPs = conn.prepareStatement(selectSql);
-            ResultSet rs = selectPs.executeQuery();
+                int processed = 0;
+                while (rs.next()) {
+                    int reservationId = rs.getInt("reservation_id");
+                    String code = rs.getString("confirmation_code");
 
-            int count = 0;
-            while (rs.next()) {
-                int reservationId = rs.getInt("reservation_id");
-                String code = rs.getString("confirmation_code");
+                    String phone = rs.getString("sub_phone");
+                    String email = rs.getString("sub_email");
+                    if (phone == null) phone = rs.getString("walk_in_phone");
+                    if (email == null) email = rs.getString("walk_in_email");
 
-                String phone = rs.getString("sub_phone");
-                String email = rs.getString("sub_email");
-                if (phone == null) phone = rs.getString("walk_in_phone");
-                if (email == null) email = rs.getString("walk_in_email");
+                    // Update status to NO_SHOW
+                    String updateSql = "UPDATE reservations SET reservation_status = 'NO_SHOW' WHERE reservation_id = ?";
+                    PreparedStatement updatePs = conn.prepareStatement(updateSql);
+                    updatePs.setInt(1, reservationId);
+                    updatePs.executeUpdate();
+                    updatePs.close();
+                    LocalDate bookingDate = rs.getDate("booking_date").toLocalDate();
 
-                // Update status to NO_SHOW
-                String updateSql = "UPDATE reservations SET reservation_status = 'NO_SHOW' WHERE reservation_id = ?";
-                PreparedStatement updatePs = conn.prepareStatement(updateSql);
-                updatePs.setInt(1, reservationId);
-                updatePs.executeUpdate();
-                updatePs.close();
+                    String message = String.format(
+                        "Your reservation (code: %s) has been cancelled because you did not arrive within 15 minutes of the scheduled time.",
+                        code
+                    );
 
-                String message = String.format(
-                    "Your reservation (code: %s) has been cancelled because you did not arrive within 15 minutes of the scheduled time.",
-                    code
-                );
+                    String to = phone;
+                    String toEmail = email;
+                    TransactionTemplate.afterCommit(() -> {
+                        SlotOccupancyIndex.getInstance().reservationRemoved(reservationId, bookingDate);
+                        AvailabilityCache.getInstance().invalidate(bookingDate);
+                        ChangeEventBus.getInstance().publish(ChangeEvent.RESERVATIONS, "NO_SHOW", reservationId,
+                                bookingDate);
+                        NotificationService.sendNotification(to, toEmail, "Reservation Cancelled - No Show", message);
+                        ServerLog.info("[No-Show] Reservation " + code + " marked as NO_SHOW");
+                    });
+                    processed++;
+                }
 
-                NotificationService.sendNotification(phone, email, "Reservation Cancelled - No Show", message);
-                System.out.println("    [No-Show] Reservation " + code + " marked as NO_SHOW");
-                count++;
-            }
+                rs.close();
+                selectPs.close();
 
-            rs.close();
-            selectPs.close();
+                return processed;
+            });
 
             if (count > 0) {
-                System.out.println("    [No-Show] Processed " + count + " reservation no-show(s)");
+                ServerLog.info("[No-Show] Processed " + count + " reservation no-show(s)");
             }
 
         } catch (SQLException e) {
-            System.err.println("    [No-Show] Error: " + e.getMessage());
+            ServerLog.error("[No-Show] Error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
         }
@@ -253,11 +268,11 @@ public class NotificationScheduler {
             ps.close();
 
             if (count > 0) {
-                System.out.println("    [Table Clearing] Sent " + count + " bill notification(s)");
+                ServerLog.info("[Table Clearing] Sent " + count + " bill notification(s)");
             }
 
         } catch (SQLException e) {
-            System.err.println("    [Table Clearing] Error: " + e.getMessage());
+            ServerLog.error("[Table Clearing] Error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
         }
@@ -275,79 +290,87 @@ public class NotificationScheduler {
             pConn = pool.getConnection();
             if (pConn == null) return;
 
-            Connection conn = pConn.getConnection();
-
-            // Find available tables ordered by capacity
-            String tablesSql =
-                "SELECT table_number, seat_capacity FROM tables_info " +
-                "WHERE table_status = 'AVAILABLE' ORDER BY seat_capacity";
-
-            PreparedStatement tablesPs = conn.prepareStatement(tablesSql);
-            ResultSet tablesRs = tablesPs.executeQuery();
-
-            int count = 0;
-            while (tablesRs.next()) {
-                int tableNumber = tablesRs.getInt("table_number");
-                int capacity = tablesRs.getInt("seat_capacity");
-
-                // Find first waitlist entry that fits this table and hasn't been notified yet
-                String waitlistSql =
-                    "SELECT w.entry_id, w.entry_code, w.number_of_diners, w.subscriber_number, " +
-                    "       w.walk_in_phone, w.walk_in_email, " +
-                    "       u.phone_number AS sub_phone, u.email_address AS sub_email " +
-                    "FROM waiting_list w " +
-                    "LEFT JOIN subscribers s ON w.subscriber_number = s.subscriber_number " +
-                    "LEFT JOIN users u ON s.user_id = u.user_id " +
-                    "WHERE w.number_of_diners <= ? " +
-                    "AND w.notified_at IS NULL " +
-                    "ORDER BY w.request_time ASC " +
-                    "LIMIT 1";
-
-                PreparedStatement waitlistPs = conn.prepareStatement(waitlistSql);
-                waitlistPs.setInt(1, capacity);
-                ResultSet waitlistRs = waitlistPs.executeQuery();
-
-                if (waitlistRs.next()) {
-                    int entryId = waitlistRs.getInt("entry_id");
-                    String entryCode = waitlistRs.getString("entry_code");
-                    int diners = waitlistRs.getInt("number_of_diners");
-
-                    String phone = waitlistRs.getString("sub_phone");
-                    String email = waitlistRs.getString("sub_email");
-                    if (phone == null) phone = waitlistRs.getString("walk_in_phone");
-                    if (email == null) email = waitlistRs.getString("walk_in_email");
-
-                    // Update notified_at timestamp
-                    String updateSql = "UPDATE waiting_list SET notified_at = NOW() WHERE entry_id = ?";
-                    PreparedStatement updatePs = conn.prepareStatement(updateSql);
-                    updatePs.setInt(1, entryId);
-                    updatePs.executeUpdate();
-                    updatePs.close();
-
-                    String message = String.format(
-                        "Great news! A table is now available for your party of %d. " +
-                        "Please check in within 15 minutes using code: %s",
-                        diners, entryCode
-                    );
-
-                    NotificationService.sendNotification(phone, email, "Table Available! - Bistro", message);
-                    System.out.println("    [Waitlist] Notified entry " + entryCode + " - table " + tableNumber + " available");
-                    count++;
+            // Marks commit together; notifications go out only after the commit
+            int count = TransactionTemplate.inTransaction(pConn.getConnection(), conn -> {
+                // Find available tables ordered by capacity
+                String tablesSql =
+                    "SELECT table_number, seat_capacity FROM tables_info " +
+                    "WHERE table_status = 'AVAILABLE' ORDER BY seat_capacity";
+
+                PreparedStatement tablesPs = conn.prepareStatement(tablesSql);
+                ResultSet tablesRs = tablesPs.executeQuery();
+
+                int processed = 0;
+                while (tablesRs.next()) {
+                    int tableNumber = tablesRs.getInt("table_number");
+                    int capacity = tablesRs.getInt("seat_capacity");
+
+                    // Find first waitlist entry that fits this table and hasn't been notified yet
+                    String waitlistSql =
+                        "SELECT w.entry_id, w.entry_code, w.number_of_diners, w.subscriber_number, " +
+                        "       w.walk_in_phone, w.walk_in_email, " +
+                        "       u.phone_number AS sub_phone, u.email_address AS sub_email " +
+                        "FROM waiting_list w " +
+                        "LEFT JOIN subscribers s ON w.subscriber_number = s.subscriber_number " +
+                        "LEFT JOIN users u ON s.user_id = u.user_id " +
+                        "WHERE w.number_of_diners <= ? " +
+                        "AND w.notified_at IS NULL " +
+                        "ORDER BY w.request_time ASC " +
+                        "LIMIT 1";
+
+                    PreparedStatement waitlistPs = conn.prepareStatement(waitlistSql);
+                    waitlistPs.setInt(1, capacity);
+                    ResultSet waitlistRs = waitlistPs.executeQuery();
+
+                    if (waitlistRs.next()) {
+                        int entryId = waitlistRs.getInt("entry_id");
+                        String entryCode = waitlistRs.getString("entry_code");
+                        int diners = waitlistRs.getInt("number_of_diners");
+
+                        String phone = waitlistRs.getString("sub_phone");
+                        String email = waitlistRs.getString("sub_email");
+                        if (phone == null) phone = waitlistRs.getString("walk_in_phone");
+                        if (email == null) email = waitlistRs.getString("walk_in_email");
+
+                        // Update notified_at timestamp
+                        String updateSql = "UPDATE waiting_list SET notified_at = NOW() WHERE entry_id = ?";
+                        PreparedStatement updatePs = conn.prepareStatement(updateSql);
+                        updatePs.setInt(1, entryId);
+                        updatePs.executeUpdate();
+                        updatePs.close();
+
+                        String message = String.format(
+                            "Great news! A table is now available for your party of %d. " +
+                            "Please check in within 15 minutes using code: %s",
+                            diners, entryCode
+                        );
+
+                        String to = phone;
+                        String toEmail = email;
+                        TransactionTemplate.afterCommit(() -> {
+                            ChangeEventBus.getInstance().publish(ChangeEvent.WAITLIST, "NOTIFIED", entryId);
+                            NotificationService.sendNotification(to, toEmail, "Table Available! - Bistro", message);
+                            ServerLog.info("[Waitlist] Notified entry " + entryCode + " - table " + tableNumber + " available");
+                        });
+                        processed++;
+                    }
+
+                    waitlistRs.close();
+                    waitlistPs.close();
                 }
 
-                waitlistRs.close();
-                waitlistPs.close();
-            }
+                tablesRs.close();
+                tablesPs.close();
 
-            tablesRs.close();
-            tablesPs.close();
+                return processed;
+            });
 
             if (count > 0) {
-                System.out.println("    [Waitlist] Sent " + count + " availability notification(s)");
+                ServerLog.info("[Waitlist] Sent " + count + " availability notification(s)");
             }
 
         } catch (SQLException e) {
-            System.err.println("    [Waitlist] Error: " + e.getMessage());
+            ServerLog.error("[Waitlist] Error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
         }
@@ -365,58 +388,66 @@ public class NotificationScheduler {
             pConn = pool.getConnection();
             if (pConn == null) return;
 
-            Connection conn = pConn.getConnection();
+            // Deletions commit together; notifications go out only after the commit
+            int count = TransactionTemplate.inTransaction(pConn.getConnection(), conn -> {
+                // Find waitlist entries that were notified more than 15 minutes ago
+                String selectSql =
+                    "SELECT w.entry_id, w.entry_code, w.number_of_diners, w.subscriber_number, " +
+                    "       w.walk_in_phone, w.walk_in_email, " +
+                    "       u.phone_number AS sub_phone, u.email_address AS sub_email " +
+                    "FROM waiting_list w " +
+                    "LEFT JOIN subscribers s ON w.subscriber_number = s.subscriber_number " +
+                    "LEFT JOIN users u ON s.user_id = u.user_id " +
+                    "WHERE w.notified_at IS NOT NULL " +
+                    "AND w.notified_at < NOW() - INTERVAL 15 MINUTE";
 
-            // Find waitlist entries that were notified more than 15 minutes ago
-            String selectSql =
-                "SELECT w.entry_id, w.entry_code, w.number_of_diners, w.subscriber_number, " +
-                "       w.walk_in_phone, w.walk_in_email, " +
-                "       u.phone_number AS sub_phone, u.email_address AS sub_email " +
-                "FROM waiting_list w " +
-                "LEFT JOIN subscribers s ON w.subscriber_number = s.subscriber_number " +
-                "LEFT JOIN users u ON s.user_id = u.user_id " +
-                "WHERE w.notified_at IS NOT NULL " +
-                "AND w.notified_at < NOW() - INTERVAL 15 MINUTE";
+                PreparedStatement selectPs = conn.prepareStatement(selectSql);
+                ResultSet rs = selectPs.executeQuery();
 
-            PreparedStatement selectPs = conn.prepareStatement(selectSql);
-            ResultSet rs = selectPs.executeQuery();
+                int processed = 0;
+                while (rs.next()) {
+                    int entryId = rs.getInt("entry_id");
+                    String entryCode = rs.getString("entry_code");
 
-            int count = 0;
-            while (rs.next()) {
-                int entryId = rs.getInt("entry_id");
-                String entryCode = rs.getString("entry_code");
+                    String phone = rs.getString("sub_phone");
+                    String email = rs.getString("sub_email");
+                    if (phone == null) phone = rs.getString("walk_in_phone");
+                    if (email == null) email = rs.getString("walk_in_email");
 
-                String phone = rs.getString("sub_phone");
-                String email = rs.getString("sub_email");
-                if (phone == null) phone = rs.getString("walk_in_phone");
-                if (email == null) email = rs.getString("walk_in_email");
+                    // Delete the entry from waitlist
+                    String deleteSql = "DELETE FROM waiting_list WHERE entry_id = ?";
+                    PreparedStatement deletePs = conn.prepareStatement(deleteSql);
+                    deletePs.setInt(1, entryId);
+                    deletePs.executeUpdate();
+                    deletePs.close();
 
-                // Delete the entry from waitlist
-                String deleteSql = "DELETE FROM waiting_list WHERE entry_id = ?";
-                PreparedStatement deletePs = conn.prepareStatement(deleteSql);
-                deletePs.setInt(1, entryId);
-                deletePs.executeUpdate();
-                deletePs.close();
+                    String message = String.format(
+                        "Your waitlist entry (code: %s) has been cancelled because you did not arrive within 15 minutes after being notified.",
+                        entryCode
+                    );
 
-                String message = String.format(
-                    "Your waitlist entry (code: %s) has been cancelled because you did not arrive within 15 minutes after being notified.",
-                    entryCode
-                );
+                    String to = phone;
+                    String toEmail = email;
+                    TransactionTemplate.afterCommit(() -> {
+                        ChangeEventBus.getInstance().publish(ChangeEvent.WAITLIST, "REMOVED", entryId);
+                        NotificationService.sendNotification(to, toEmail, "Waitlist Entry Cancelled - No Show", message);
+                        ServerLog.info("[Waitlist No-Show] Entry " + entryCode + " removed from waitlist");
+                    });
+                    processed++;
+                }
 
-                NotificationService.sendNotification(phone, email, "Waitlist Entry Cancelled - No Show", message);
-                System.out.println("    [Waitlist No-Show] Entry " + entryCode + " removed from waitlist");
-                count++;
-            }
+                rs.close();
+                selectPs.close();
 
-            rs.close();
-            selectPs.close();
+                return processed;
+            });
 
             if (count > 0) {
-                System.out.println("    [Waitlist No-Show] Processed " + count + " waitlist no-show(s)");
+                ServerLog.info("[Waitlist No-Show] Processed " + count + " waitlist no-show(s)");
             }
 
         } catch (SQLException e) {
-            System.err.println("    [Waitlist No-Show] Error: " + e.getMessage());
+            ServerLog.error("[Waitlist No-Show] Error: " + e.getMessage());
         } finally {
             pool.releaseConnection(pConn);
         }
@@ -1,6 +1,5 @@
 package services;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import connection.ServerLog;
 
 /**
  * Mock notification service - simulates sending SMS and Email.
@@ -8,8 +7,6 @@ import java.time.format.DateTimeFormatter;
  */
 public class NotificationService {
 
-    private static final DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
     /**
      * Simulates sending an SMS message.
      * 
@@ -17,9 +14,7 @@ public class NotificationService {
      * @param message     message content
      */
     public static void sendSMS(String phoneNumber, String message) {
-        String timestamp = LocalDateTime.now().format(fmt);
-        System.out.println("[" + timestamp + "] [SMS] To: " + phoneNumber);
-        System.out.println("    Message: " + message);
+        ServerLog.info("[SMS] To: " + phoneNumber + " | Message: " + message);
     }
 
     /**
@@ -30,10 +25,7 @@ public class NotificationService {
      * @param message      email body
      */
     public static void sendEmail(String emailAddress, String subject, String message) {
-        String timestamp = LocalDateTime.now().format(fmt);
-        System.out.println("[" + timestamp + "] [EMAIL] To: " + emailAddress);
-        System.out.println("    Subject: " + subject);
-        System.out.println("    Body: " + message);
+        ServerLog.info("[EMAIL] To: " + emailAddress + " | Subject: " + subject + " | Body: " + message);
     }
 
     /**